@@ -1,10 +1,6 @@
 package com.bookmatch.backend.config;
 
-import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.http.client.BufferingClientHttpRequestFactory;
-import org.springframework.http.client.SimpleClientHttpRequestFactory;
-import org.springframework.web.client.RestTemplate;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
@@ -19,20 +15,4 @@ public class WebConfig implements WebMvcConfigurer {
                 .allowedHeaders("*")
                 .allowCredentials(true);
     }
-
-    /**
-     * Configura RestTemplate con timeouts para evitar que las llamadas a APIs externas
-     * se queden colgadas indefinidamente.
-     * Importante para la integración con Google Books API.
-     */
-    @Bean
-    public RestTemplate restTemplate() {
-        SimpleClientHttpRequestFactory factory = new SimpleClientHttpRequestFactory();
-        // Timeout de conexión: 10 segundos
-        factory.setConnectTimeout(10000);
-        // Timeout de lectura: 30 segundos
-        factory.setReadTimeout(30000);
-
-        return new RestTemplate(new BufferingClientHttpRequestFactory(factory));
-    }
 }
\ No newline at end of file
@@ -1,17 +1,38 @@
 package com.bookmatch.backend.controller;
 
+import com.bookmatch.backend.dto.BookSearchResponse;
+import com.bookmatch.backend.dto.BookSummaryResponse;
+import com.bookmatch.backend.dto.HybridSearchResponse;
 import com.bookmatch.backend.entity.Book;
-import com.bookmatch.backend.entity.Genre;
-import com.bookmatch.backend.entity.Tag;
+import com.bookmatch.backend.entity.User;
+import com.bookmatch.backend.service.BookPageService;
+import com.bookmatch.backend.service.BookResponseAssembler;
 import com.bookmatch.backend.service.BookService;
+import com.bookmatch.backend.service.BookSuggestIndex;
+import com.bookmatch.backend.service.CatalogCounterCache;
+import com.bookmatch.backend.service.FieldSelector;
+import com.bookmatch.backend.service.GoogleSearchCache;
+import com.bookmatch.backend.service.HomePageCache;
+import com.bookmatch.backend.service.HomeService;
+import com.bookmatch.backend.service.HybridSearchService;
 import com.bookmatch.backend.repository.GenreRepository;
 import com.bookmatch.backend.repository.TagRepository;
+import com.bookmatch.backend.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.IOException;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 
 /**
@@ -31,16 +52,151 @@ public class BookController {
     @Autowired
     private TagRepository tagRepository;
 
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CatalogCounterCache catalogCounterCache;
+
+    @Autowired
+    private HomeService homeService;
+
+    @Autowired
+    private HomePageCache homePageCache;
+
+    @Autowired
+    private GoogleSearchCache googleSearchCache;
+
+    @Autowired
+    private BookPageService bookPageService;
+
+    @Autowired
+    private BookSuggestIndex bookSuggestIndex;
+
+    @Autowired
+    private HybridSearchService hybridSearchService;
+
+    @Autowired
+    private BookResponseAssembler bookResponseAssembler;
+
+    @Autowired
+    private FieldSelector fieldSelector;
+
     /**
      * Busca libros en la API de Google Books según el término de búsqueda.
+     * La petición se procesa de forma asíncrona: el hilo del servidor queda libre
+     * mientras se espera la respuesta de Google.
      *
      * @param query Término de búsqueda (título, autor, ISBN, etc.).
+     * @param fields Campos a devolver de cada libro, separados por comas (opcional).
      * @return Lista de libros encontrados.
      */
     @GetMapping("/search")
-    public ResponseEntity<List<Book>> searchBooks(@RequestParam String query) {
-        List<Book> books = bookService.searchBooksInGoogle(query);
-        return ResponseEntity.ok(books);
+    public CompletableFuture<ResponseEntity<?>> searchBooks(@RequestParam String query,
+                                                            @RequestParam(required = false) String fields) {
+        return bookService.searchBooksInGoogleAsync(query)
+                .thenApply(books -> ResponseEntity.ok(fieldSelector.select(
+                        books.stream().map(bookResponseAssembler::fromRemote).toList(), fields)));
+    }
+
+    /**
+     * Busca libros en el catálogo local (título, autores, descripción e ISBN),
+     * ordenados por relevancia.
+     *
+     * @param query Término de búsqueda
+     * @param prefix Si la última palabra se completa como prefijo (por defecto true)
+     * @param page Número de página (empezando en 0)
+     * @param size Tamaño de la página (por defecto 20, máximo 100)
+     * @return Página de libros encontrados
+     */
+    @GetMapping("/search/local")
+    public ResponseEntity<BookSearchResponse> searchLocalBooks(@RequestParam String query,
+                                                               @RequestParam(defaultValue = "true") boolean prefix,
+                                                               @RequestParam(defaultValue = "0") int page,
+                                                               @RequestParam(defaultValue = "20") int size) {
+        return ResponseEntity.ok(homeService.searchBooks(query, prefix, page, size));
+    }
+
+    /**
+     * Búsqueda combinada en el catálogo local y en Google Books.
+     * Los resultados se mezclan por googleBookId y se ordenan combinando la relevancia del texto
+     * con la popularidad en BookMatch. Si Google no responde dentro del presupuesto de tiempo,
+     * se devuelven solo los resultados locales (googleComplete = false); si la llamada falla,
+     * además googleFailed = true.
+     *
+     * @param query Término de búsqueda
+     * @return Resultados mezclados
+     */
+    @GetMapping("/search/hybrid")
+    public CompletableFuture<ResponseEntity<HybridSearchResponse>> searchHybrid(@RequestParam String query) {
+        return hybridSearchService.search(query)
+                .thenApply(ResponseEntity::ok);
+    }
+
+    /**
+     * Variante en streaming (Server-Sent Events) de la búsqueda combinada.
+     * Envía primero un evento "local" con los resultados del catálogo local y después un evento
+     * "merged" con los resultados mezclados cuando responde Google (o vence el presupuesto).
+     * Si Google falla, el evento "merged" lleva solo los locales con googleFailed = true.
+     *
+     * @param query Término de búsqueda
+     * @return Emisor de eventos
+     */
+    @GetMapping(value = "/search/hybrid/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter searchHybridStream(@RequestParam String query) {
+        SseEmitter emitter = new SseEmitter();
+
+        // La búsqueda en Google se lanza antes de la local para que corran en paralelo
+        CompletableFuture<HybridSearchService.GoogleHits> google = hybridSearchService.searchGoogle(query);
+        HybridSearchService.LocalHits local = hybridSearchService.searchLocal(query);
+        try {
+            emitter.send(SseEmitter.event().name("local")
+                    .data(hybridSearchService.merge(local, HybridSearchService.GoogleHits.PENDING)));
+        } catch (IOException e) {
+            emitter.completeWithError(e);
+            return emitter;
+        }
+
+        hybridSearchService.mergeWhenReady(local, google)
+                .whenComplete((response, error) -> {
+                    try {
+                        if (error != null) {
+                            emitter.completeWithError(error);
+                            return;
+                        }
+                        emitter.send(SseEmitter.event().name("merged").data(response));
+                        emitter.complete();
+                    } catch (IOException e) {
+                        emitter.completeWithError(e);
+                    }
+                });
+        return emitter;
+    }
+
+    /**
+     * Sugerencias de autocompletado para la caja de búsqueda: libros del catálogo local cuyo
+     * título o autor empieza por el texto escrito, ordenados por popularidad.
+     * Se sirven desde memoria, sin llamar a Google.
+     *
+     * @param query Texto escrito hasta el momento
+     * @param limit Número máximo de sugerencias (por defecto 8, máximo 10)
+     * @return Lista de libros sugeridos
+     */
+    @GetMapping("/suggest")
+    public ResponseEntity<List<BookSummaryResponse>> suggestBooks(@RequestParam String query,
+                                                                  @RequestParam(defaultValue = "8") int limit) {
+        return ResponseEntity.ok(bookSuggestIndex.suggest(query, limit));
+    }
+
+    /**
+     * Obtiene los contadores de la caché de búsquedas de Google Books
+     * (aciertos, aciertos caducados, fallos, expulsiones y tamaño).
+     *
+     * @return Mapa con los contadores de la caché
+     */
+    @GetMapping("/search/stats")
+    public ResponseEntity<Map<String, Long>> getSearchCacheStats() {
+        return ResponseEntity.ok(googleSearchCache.getStats());
     }
 
     /**
@@ -50,12 +206,12 @@ public class BookController {
      */
     @GetMapping("/genres")
     public ResponseEntity<?> getGenres() {
-        List<Genre> genres = genreRepository.findAll();
+        List<GenreRepository.GenreCountView> genres = catalogCounterCache.getGenreCounts();
         return ResponseEntity.ok(genres.stream()
                 .map(g -> new Object() {
-                    public Long id = g.getGenreId();
+                    public Long id = g.getId();
                     public String name = g.getName();
-                    public Long bookCount = (long) g.getBooks().size();
+                    public Long bookCount = g.getBookCount();
                 })
                 .collect(Collectors.toList()));
     }
@@ -67,57 +223,65 @@ public class BookController {
      */
     @GetMapping("/tags")
     public ResponseEntity<?> getTags() {
-        List<Tag> tags = tagRepository.findAll();
+        List<TagRepository.TagCountView> tags = catalogCounterCache.getTagCounts();
         return ResponseEntity.ok(tags.stream()
                 .map(t -> new Object() {
-                    public Long id = t.getTagId();
+                    public Long id = t.getId();
                     public String name = t.getName();
                     public String description = t.getDescription();
-                    public Long bookCount = (long) t.getBooks().size();
+                    public Long bookCount = t.getBookCount();
                 })
                 .collect(Collectors.toList()));
     }
 
     /**
-     * Obtiene libros filtrados por un género específico.
+     * Obtiene libros filtrados por un género específico, paginados por cursor.
      *
      * @param genreId ID del género a filtrar
-     * @return Lista de libros del género
+     * @param sort Ordenación: id (por defecto), rating (valoración) o created (más recientes)
+     * @param cursor Cursor de la página siguiente devuelto en la respuesta anterior
+     * @param size Número de libros por página (por defecto 20, máximo 100)
+     * @return Página de libros del género
      */
     @GetMapping("/genre/{genreId}")
-    public ResponseEntity<?> getBooksByGenre(@PathVariable Long genreId) {
-        Genre genre = genreRepository.findById(genreId)
-                .orElse(null);
-
-        if (genre == null) {
+    public ResponseEntity<?> getBooksByGenre(@PathVariable Long genreId,
+                                             @RequestParam(required = false) String sort,
+                                             @RequestParam(required = false) String cursor,
+                                             @RequestParam(required = false) Integer size) {
+        if (!genreRepository.existsById(genreId)) {
             return ResponseEntity.notFound().build();
         }
 
-        List<Book> books = genre.getBooks().stream()
-                .collect(Collectors.toList());
-
-        return ResponseEntity.ok(books);
+        try {
+            return ResponseEntity.ok(bookPageService.getBooksByGenre(genreId, sort, cursor, size));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
     }
 
     /**
-     * Obtiene libros filtrados por una etiqueta específica.
+     * Obtiene libros filtrados por una etiqueta específica, paginados por cursor.
      *
      * @param tagId ID de la etiqueta a filtrar
-     * @return Lista de libros con la etiqueta
+     * @param sort Ordenación: id (por defecto), rating (valoración) o created (más recientes)
+     * @param cursor Cursor de la página siguiente devuelto en la respuesta anterior
+     * @param size Número de libros por página (por defecto 20, máximo 100)
+     * @return Página de libros con la etiqueta
      */
     @GetMapping("/tag/{tagId}")
-    public ResponseEntity<?> getBooksByTag(@PathVariable Long tagId) {
-        Tag tag = tagRepository.findById(tagId)
-                .orElse(null);
-
-        if (tag == null) {
+    public ResponseEntity<?> getBooksByTag(@PathVariable Long tagId,
+                                           @RequestParam(required = false) String sort,
+                                           @RequestParam(required = false) String cursor,
+                                           @RequestParam(required = false) Integer size) {
+        if (!tagRepository.existsById(tagId)) {
             return ResponseEntity.notFound().build();
         }
 
-        List<Book> books = tag.getBooks().stream()
-                .collect(Collectors.toList());
-
-        return ResponseEntity.ok(books);
+        try {
+            return ResponseEntity.ok(bookPageService.getBooksByTag(tagId, sort, cursor, size));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
     }
 
     /**
@@ -127,41 +291,50 @@ public class BookController {
      * @return Información del libro
      */
     @GetMapping("/{bookId}")
-    public ResponseEntity<?> getBook(@PathVariable Long bookId) {
+    public ResponseEntity<?> getBook(@PathVariable Long bookId,
+                                     @RequestParam(required = false) String fields) {
         Book book = bookService.getBookById(bookId);
         if (book == null) {
             return ResponseEntity.notFound().build();
         }
-        return ResponseEntity.ok(book);
+        return ResponseEntity.ok(fieldSelector.select(bookResponseAssembler.toResponse(book), fields));
     }
 
     /**
      * Obtiene datos para la página principal de la aplicación.
      * Devuelve libros destacados, géneros y tags disponibles.
+     * A los usuarios autenticados se les añaden sus recomendaciones personalizadas (ya precalculadas).
+     * A los anónimos se les sirve el JSON ya serializado con su ETag; si el cliente envía un
+     * If-None-Match que coincide, Spring responde 304 sin cuerpo.
      *
      * @return ResponseEntity con datos de la página principal
      */
     @GetMapping("/home")
     public ResponseEntity<?> getHome() {
         try {
-            List<Genre> genres = genreRepository.findAll().stream()
-                    .limit(10)
-                    .toList();
-
-            List<Tag> tags = tagRepository.findAll().stream()
-                    .limit(10)
-                    .toList();
-
-            List<Book> featuredBooks = bookService.findRandomBooks(6);
+            Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+            if (auth != null && auth.isAuthenticated() && !(auth instanceof AnonymousAuthenticationToken)) {
+                Optional<User> user = userRepository.findByEmail(auth.getName());
+                if (user.isPresent()) {
+                    return ResponseEntity.ok()
+                            .cacheControl(CacheControl.noStore())
+                            .body(homeService.getHomePageForUser(user.get().getUserId()));
+                }
+            }
 
-            Map<String, Object> response = new java.util.HashMap<>();
-            response.put("featuredBooks", featuredBooks);
-            response.put("genres", genres);
-            response.put("tags", tags);
+            HomePageCache.Variant variant = homePageCache.current();
+            if (variant == null) {
+                // Todavía no se ha construido la página: la calculamos en el momento
+                return ResponseEntity.ok(homeService.getHomePagePublic());
+            }
 
-            return ResponseEntity.ok(response);
+            return ResponseEntity.ok()
+                    .eTag(variant.getEtag())
+                    .cacheControl(CacheControl.noCache())
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(variant.getBody());
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(e.getMessage());
         }
     }
-}
\ No newline at end of file
+}
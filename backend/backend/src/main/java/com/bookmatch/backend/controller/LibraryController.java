@@ -1,19 +1,25 @@
 package com.bookmatch.backend.controller;
 
 import com.bookmatch.backend.dto.BookStatusRequest;
+import com.bookmatch.backend.dto.CustomListResponse;
 import com.bookmatch.backend.entity.ReadingStatus;
 import com.bookmatch.backend.entity.CustomList;
-import com.bookmatch.backend.entity.Book;
 import com.bookmatch.backend.entity.User;
 import com.bookmatch.backend.repository.UserRepository;
 import com.bookmatch.backend.repository.CustomListRepository;
-import com.bookmatch.backend.repository.BookRepository;
+import com.bookmatch.backend.service.FieldSelector;
+import com.bookmatch.backend.service.LibraryExportService;
 import com.bookmatch.backend.service.LibraryService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.util.Map;
 import java.util.List;
@@ -36,7 +42,10 @@ public class LibraryController {
     private CustomListRepository customListRepository;
 
     @Autowired
-    private BookRepository bookRepository;
+    private FieldSelector fieldSelector;
+
+    @Autowired
+    private LibraryExportService libraryExportService;
 
     /**
      * Actualiza el estado de lectura de un libro para el usuario.
@@ -87,10 +96,11 @@ public class LibraryController {
     /**
      * Obtiene todas las listas personalizadas del usuario autenticado.
      *
+     * @param fields Campos a devolver de cada lista, separados por comas (opcional)
      * @return Lista de listas personalizadas del usuario
      */
     @GetMapping("/custom-lists")
-    public ResponseEntity<?> getUserCustomLists() {
+    public ResponseEntity<?> getUserCustomLists(@RequestParam(required = false) String fields) {
         try {
             Authentication auth = SecurityContextHolder.getContext().getAuthentication();
             String email = auth.getName();
@@ -98,8 +108,8 @@ public class LibraryController {
             User user = userRepository.findByEmail(email)
                     .orElseThrow(() -> new RuntimeException("Usuario no encontrado"));
 
-            List<CustomList> lists = customListRepository.findByUser(user);
-            return ResponseEntity.ok(lists);
+            List<CustomListResponse> lists = libraryService.getCustomLists(user.getUserId());
+            return ResponseEntity.ok(fieldSelector.select(lists, fields));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(e.getMessage());
         }
@@ -115,14 +125,7 @@ public class LibraryController {
     @PostMapping("/custom-list/{listId}/add-book")
     public ResponseEntity<?> addBookToList(@PathVariable Long listId, @RequestParam Long bookId) {
         try {
-            CustomList list = customListRepository.findById(listId)
-                    .orElseThrow(() -> new RuntimeException("Lista no encontrada"));
-
-            Book book = bookRepository.findById(bookId)
-                    .orElseThrow(() -> new RuntimeException("Libro no encontrado"));
-
-            list.getBooks().add(book);
-            customListRepository.save(list);
+            libraryService.addBookToList(listId, bookId);
 
             return ResponseEntity.ok("Libro añadido a la lista");
         } catch (Exception e) {
@@ -140,14 +143,7 @@ public class LibraryController {
     @DeleteMapping("/custom-list/{listId}/remove-book")
     public ResponseEntity<?> removeBookFromList(@PathVariable Long listId, @RequestParam Long bookId) {
         try {
-            CustomList list = customListRepository.findById(listId)
-                    .orElseThrow(() -> new RuntimeException("Lista no encontrada"));
-
-            Book book = bookRepository.findById(bookId)
-                    .orElseThrow(() -> new RuntimeException("Libro no encontrado"));
-
-            list.getBooks().remove(book);
-            customListRepository.save(list);
+            libraryService.removeBookFromList(listId, bookId);
 
             return ResponseEntity.ok("Libro eliminado de la lista");
         } catch (Exception e) {
@@ -170,4 +166,48 @@ public class LibraryController {
             return ResponseEntity.badRequest().body(e.getMessage());
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Exporta la biblioteca completa del usuario autenticado (estados de lectura,
+     * listas personalizadas con sus libros y reseñas) en streaming.
+     * Cada entrada es una línea (NDJSON) o una fila (CSV); para retomar una descarga
+     * interrumpida se indica en offset el número de entradas ya recibidas.
+     *
+     * @param format Formato de salida: ndjson (por defecto) o csv
+     * @param offset Número de entradas a saltar
+     * @return ResponseEntity con el fichero de exportación
+     */
+    @GetMapping("/export")
+    public ResponseEntity<?> exportLibrary(@RequestParam(defaultValue = "ndjson") String format,
+                                           @RequestParam(defaultValue = "0") long offset) {
+        try {
+            if (!libraryExportService.isSupportedFormat(format)) {
+                throw new RuntimeException("Formato de exportación no soportado: " + format);
+            }
+
+            Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+            String email = auth.getName();
+
+            User user = userRepository.findByEmail(email)
+                    .orElseThrow(() -> new RuntimeException("Usuario no encontrado"));
+            Long userId = user.getUserId();
+
+            boolean csv = LibraryExportService.FORMAT_CSV.equals(format);
+            MediaType contentType = csv
+                    ? new MediaType("text", "csv", StandardCharsets.UTF_8)
+                    : MediaType.APPLICATION_NDJSON;
+            String filename = "biblioteca." + (csv ? "csv" : "ndjson");
+
+            // El cuerpo se escribe fila a fila desde la base de datos, fuera del hilo de la petición
+            StreamingResponseBody body = out -> libraryExportService.export(userId, format, offset, out);
+
+            return ResponseEntity.ok()
+                    .contentType(contentType)
+                    .header(HttpHeaders.CONTENT_DISPOSITION,
+                            ContentDisposition.attachment().filename(filename).build().toString())
+                    .body(body);
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+}
@@ -1,8 +1,8 @@
 package com.bookmatch.backend.controller;
 
 import com.bookmatch.backend.dto.BlindDateResponse;
+import com.bookmatch.backend.dto.BookResponse;
 import com.bookmatch.backend.dto.RecommendationResponse;
-import com.bookmatch.backend.entity.Book;
 import com.bookmatch.backend.entity.User;
 import com.bookmatch.backend.repository.UserRepository;
 import com.bookmatch.backend.service.RecommendationService;
@@ -64,6 +64,23 @@ public class RecommendationController {
         }
     }
 
+    /**
+     * Endpoint público para obtener una "Cita a Ciegas" filtrada por género.
+     * No requiere autenticación.
+     *
+     * @param genreId ID del género para filtrar
+     * @return ResponseEntity con la información de la cita filtrada
+     */
+    @GetMapping("/blind-date/genre/{genreId}")
+    public ResponseEntity<?> getBlindDateByGenre(@PathVariable Long genreId) {
+        try {
+            BlindDateResponse response = recommendationService.getBlindDateByGenre(genreId);
+            return ResponseEntity.ok(response);
+        } catch (RuntimeException e) {
+            return ResponseEntity.status(404).body(e.getMessage());
+        }
+    }
+
     /**
      * Endpoint protegido para obtener recomendaciones personalizadas CON PUNTUACIÓN.
      * Utiliza el Token JWT del usuario autenticado para identificar sus preferencias.
@@ -88,6 +105,31 @@ public class RecommendationController {
         }
     }
 
+    /**
+     * Endpoint protegido para obtener recomendaciones por filtrado colaborativo
+     * ("lectores con gustos parecidos a los tuyos también han leído...").
+     * Si el usuario no tiene historial suficiente devuelve las recomendaciones por géneros.
+     *
+     * @return Lista de recomendaciones con puntuación y el libro que las explica
+     */
+    @GetMapping("/personal/cf")
+    public ResponseEntity<?> getCollaborativeRecommendations() {
+        try {
+            Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+            String email = auth.getName();
+
+            User user = userRepository.findByEmail(email)
+                    .orElseThrow(() -> new RuntimeException("Usuario no encontrado"));
+
+            List<RecommendationResponse> recommendations =
+                    recommendationService.getCollaborativeRecommendations(user.getUserId());
+
+            return ResponseEntity.ok(recommendations);
+        } catch (RuntimeException e) {
+            return ResponseEntity.status(400).body(e.getMessage());
+        }
+    }
+
     /**
      * Endpoint protegido para obtener recomendaciones personalizadas (legacy, sin puntuación).
      * Utiliza el Token JWT del usuario autenticado para identificar sus preferencias.
@@ -105,7 +147,7 @@ public class RecommendationController {
                 .orElseThrow(() -> new RuntimeException("Usuario no encontrado"));
 
         // 3. Pedir recomendaciones al servicio usando el ID del usuario
-        List<Book> books = recommendationService.getPersonalizedRecommendations(user.getUserId());
+        List<BookResponse> books = recommendationService.getPersonalizedRecommendations(user.getUserId());
 
         return ResponseEntity.ok(books);
     }
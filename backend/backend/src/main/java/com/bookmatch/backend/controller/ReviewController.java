@@ -1,7 +1,9 @@
 package com.bookmatch.backend.controller;
 
 import com.bookmatch.backend.dto.ReviewRequest;
+import com.bookmatch.backend.dto.ReviewResponse;
 import com.bookmatch.backend.entity.Review;
+import com.bookmatch.backend.service.FieldSelector;
 import com.bookmatch.backend.service.ReviewService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
@@ -16,6 +18,9 @@ public class ReviewController {
     @Autowired
     private ReviewService reviewService;
 
+    @Autowired
+    private FieldSelector fieldSelector;
+
     // Publicar una reseña
     @PostMapping
     public ResponseEntity<?> createReview(@RequestBody ReviewRequest request) {
@@ -31,10 +36,13 @@ public class ReviewController {
      * Obtiene todas las reseñas de un libro específico.
      *
      * @param googleBookId El ID del libro en Google Books.
+     * @param fields Campos a devolver de cada reseña, separados por comas (opcional).
      * @return Lista de reseñas del libro.
      */
     @GetMapping("/{googleBookId}")
-    public ResponseEntity<List<Review>> getBookReviews(@PathVariable String googleBookId) {
-        return ResponseEntity.ok(reviewService.getReviewsByBook(googleBookId));
+    public ResponseEntity<?> getBookReviews(@PathVariable String googleBookId,
+                                            @RequestParam(required = false) String fields) {
+        List<ReviewResponse> reviews = reviewService.getReviewsByBook(googleBookId);
+        return ResponseEntity.ok(fieldSelector.select(reviews, fields));
     }
 }
\ No newline at end of file
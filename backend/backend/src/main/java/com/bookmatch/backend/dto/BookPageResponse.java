@@ -0,0 +1,21 @@
+package com.bookmatch.backend.dto;
+
+import lombok.Builder;
+import lombok.Data;
+import java.util.List;
+
+/**
+ * DTO para una página de un listado de libros paginado por cursor.
+ */
+@Data
+@Builder
+public class BookPageResponse {
+    /** Libros de la página */
+    private List<BookSummaryResponse> books;
+
+    /** Cursor para pedir la página siguiente (null si no hay más) */
+    private String nextCursor;
+
+    /** Indica si hay más páginas */
+    private boolean hasMore;
+}
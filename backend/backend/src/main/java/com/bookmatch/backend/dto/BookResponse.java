@@ -9,7 +9,7 @@ import java.util.List;
  * Incluye información del libro con sus géneros, tags, reseñas y estado de lectura del usuario.
  */
 @Data
-@Builder
+@Builder(toBuilder = true)
 public class BookResponse {
     /** ID del libro en la base de datos local */
     private Long bookId;
@@ -23,9 +23,12 @@ public class BookResponse {
     /** Autores del libro */
     private String authors;
 
-    /** Descripción del libro */
+    /** Descripción completa del libro (solo en la ficha de detalle y en los resultados de Google) */
     private String description;
 
+    /** Resumen corto de la descripción, en texto plano, para los listados */
+    private String summary;
+
     /** ISBN del libro */
     private String isbn;
 
@@ -0,0 +1,24 @@
+package com.bookmatch.backend.dto;
+
+import lombok.Builder;
+import lombok.Data;
+import java.util.List;
+
+/**
+ * DTO para una página de resultados de la búsqueda en el catálogo local.
+ */
+@Data
+@Builder
+public class BookSearchResponse {
+    /** Libros de la página, ordenados por relevancia */
+    private List<BookSummaryResponse> books;
+
+    /** Número total de libros que coinciden con la búsqueda */
+    private long totalHits;
+
+    /** Número de página (empezando en 0) */
+    private int page;
+
+    /** Tamaño de la página */
+    private int size;
+}
@@ -0,0 +1,41 @@
+package com.bookmatch.backend.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * DTO reducida de un libro para listados (sin descripción completa, géneros ni etiquetas).
+ */
+@Data
+@Builder
+public class BookSummaryResponse {
+    /** ID del libro en la base de datos local */
+    private Long bookId;
+
+    /** ID del libro en Google Books */
+    private String googleBookId;
+
+    /** Título del libro */
+    private String title;
+
+    /** Autores del libro */
+    private String authors;
+
+    /** URL de la portada */
+    private String coverUrl;
+
+    /** Fecha de publicación */
+    private String publishedDate;
+
+    /** Número de páginas */
+    private Integer pageCount;
+
+    /** ISBN del libro */
+    private String isbn;
+
+    /** Calificación promedio de la API de Google Books */
+    private Double averageRatingApi;
+
+    /** Resumen corto de la descripción, en texto plano */
+    private String summary;
+}
@@ -9,7 +9,7 @@ import java.util.List;
  * Incluye resumen de libros destacados, recomendaciones y datos del usuario.
  */
 @Data
-@Builder
+@Builder(toBuilder = true)
 public class HomeResponse {
     /** Libros más populares o destacados */
     private List<BookResponse> featuredBooks;
@@ -24,7 +24,7 @@ public class HomeResponse {
     private List<TagDTO> mainTags;
 
     @Data
-    @Builder
+    @Builder(toBuilder = true)
     public static class GenreDTO {
         private Long genreId;
         private String name;
@@ -32,7 +32,7 @@ public class HomeResponse {
     }
 
     @Data
-    @Builder
+    @Builder(toBuilder = true)
     public static class TagDTO {
         private Long tagId;
         private String name;
@@ -0,0 +1,36 @@
+package com.bookmatch.backend.dto;
+
+import lombok.Builder;
+import lombok.Data;
+import java.util.List;
+
+/**
+ * DTO para la búsqueda combinada en el catálogo local y en Google Books.
+ * Los libros que ya están en el catálogo local llevan su bookId, géneros, etiquetas y valoración
+ * de la comunidad; los que solo vienen de Google llevan bookId null.
+ */
+@Data
+@Builder
+public class HybridSearchResponse {
+    /** Resultados ordenados por puntuación combinada */
+    private List<HitDTO> results;
+
+    /** Indica si la respuesta incluye ya los resultados de Google (false si no llegaron a tiempo) */
+    private boolean googleComplete;
+
+    /** Indica que la llamada a Google ha fallado (los resultados son solo los locales) */
+    private boolean googleFailed;
+
+    @Data
+    @Builder
+    public static class HitDTO {
+        /** Datos del libro */
+        private BookResponse book;
+
+        /** Origen del resultado: local, google o both */
+        private String source;
+
+        /** Puntuación combinada (relevancia del texto y popularidad), entre 0 y 1 */
+        private double score;
+    }
+}
@@ -11,7 +11,7 @@ import java.util.List;
  * Contiene el libro recomendado, explicación y alternativas.
  */
 @Data
-@Builder
+@Builder(toBuilder = true)
 @NoArgsConstructor
 @AllArgsConstructor
 public class QuizResponse {
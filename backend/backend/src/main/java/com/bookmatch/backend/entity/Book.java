@@ -7,7 +7,11 @@ import java.util.HashSet;
 import java.util.Set;
 
 @Entity
-@Table(name = "books")
+@Table(name = "books", indexes = {
+        // Listados paginados por valoración y por fecha de alta
+        @Index(name = "idx_books_rating", columnList = "average_rating_api, book_id"),
+        @Index(name = "idx_books_created", columnList = "created_at, book_id")
+})
 @Getter @Setter
 @NoArgsConstructor @AllArgsConstructor
 @Builder // Patrón Builder para crear objetos fácilmente
@@ -27,9 +31,18 @@ public class Book {
     @Column(columnDefinition = "TEXT")
     private String authors;
 
-    @Column(columnDefinition = "TEXT")
+    /**
+     * Descripción completa. No se guarda en books sino comprimida en book_details
+     * (ver BookDescriptionService): solo viene rellena en los libros recién convertidos
+     * desde Google Books.
+     */
+    @Transient
     private String description;
 
+    /** Resumen corto de la descripción (texto plano) para los listados */
+    @Column(length = 300)
+    private String summary;
+
     private String isbn;
 
     @Column(name = "page_count")
@@ -0,0 +1,31 @@
+package com.bookmatch.backend.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+/**
+ * Entidad con la descripción completa de un libro, separada de la tabla books.
+ * La descripción de Google puede ocupar varios KB; guardarla aparte (y comprimida)
+ * mantiene pequeñas las filas de books, que se recorren en los listados, los muestreos
+ * aleatorios y el scoring. Solo se lee en la ficha de detalle y al indexar el catálogo.
+ */
+@Entity
+@Table(name = "book_details")
+@Getter @Setter
+@NoArgsConstructor @AllArgsConstructor
+@Builder
+public class BookDetails {
+
+    /** ID del libro al que pertenece la descripción (también es la clave primaria) */
+    @Id
+    @Column(name = "book_id")
+    private Long bookId;
+
+    /** Descripción en UTF-8 comprimida con Deflate */
+    @Column(name = "description_data", nullable = false, columnDefinition = "MEDIUMBLOB")
+    private byte[] descriptionData;
+
+    /** Longitud en caracteres de la descripción sin comprimir */
+    @Column(name = "description_length", nullable = false)
+    private Integer descriptionLength;
+}
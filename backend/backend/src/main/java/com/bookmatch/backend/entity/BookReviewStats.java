@@ -0,0 +1,49 @@
+package com.bookmatch.backend.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import java.time.LocalDateTime;
+
+/**
+ * Entidad que representa el agregado precalculado de reseñas de un libro.
+ * Se mantiene de forma incremental al guardar reseñas para que el scoring de
+ * recomendaciones no tenga que recorrer la tabla de reseñas en cada petición.
+ */
+@Entity
+@Table(name = "book_review_stats")
+@Getter @Setter
+@NoArgsConstructor @AllArgsConstructor
+@Builder
+public class BookReviewStats {
+
+    /** ID del libro al que pertenece el agregado (también es la clave primaria) */
+    @Id
+    @Column(name = "book_id")
+    private Long bookId;
+
+    /** Número total de reseñas del libro */
+    @Column(name = "review_count", nullable = false)
+    private Long reviewCount;
+
+    /** Suma de todas las calificaciones (para calcular la media sin leer las reseñas) */
+    @Column(name = "rating_sum", nullable = false)
+    private Long ratingSum;
+
+    /** Número de reseñas creadas en los últimos 30 días */
+    @Column(name = "recent_review_count", nullable = false)
+    private Long recentReviewCount;
+
+    /** Fecha de la reseña más reciente */
+    @Column(name = "last_review_at")
+    private LocalDateTime lastReviewAt;
+
+    /**
+     * Calcula la calificación media del libro a partir del agregado.
+     *
+     * @return Media de 1 a 5, o 0 si no hay reseñas.
+     */
+    public double getAverageRating() {
+        if (reviewCount == null || reviewCount == 0) return 0.0;
+        return (double) ratingSum / reviewCount;
+    }
+}
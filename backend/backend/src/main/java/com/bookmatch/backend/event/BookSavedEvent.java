@@ -0,0 +1,15 @@
+package com.bookmatch.backend.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Evento publicado cuando se guarda un libro nuevo en el catálogo local.
+ * Lo escuchan los índices y cachés en memoria para actualizarse de forma incremental.
+ */
+@Getter
+@AllArgsConstructor
+public class BookSavedEvent {
+    /** ID del libro guardado */
+    private final Long bookId;
+}
@@ -0,0 +1,16 @@
+package com.bookmatch.backend.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Evento publicado al terminar una importación masiva del catálogo.
+ * Los libros importados no publican BookSavedEvent uno a uno, así que los índices y
+ * cachés en memoria se reconstruyen o invalidan completos al recibir este evento.
+ */
+@Getter
+@AllArgsConstructor
+public class CatalogImportedEvent {
+    /** Número de libros nuevos insertados */
+    private final long insertedBooks;
+}
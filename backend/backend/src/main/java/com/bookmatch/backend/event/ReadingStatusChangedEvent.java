@@ -0,0 +1,17 @@
+package com.bookmatch.backend.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Evento publicado cuando un usuario añade un libro a su estantería o cambia su estado de lectura.
+ */
+@Getter
+@AllArgsConstructor
+public class ReadingStatusChangedEvent {
+    /** ID del usuario */
+    private final Long userId;
+
+    /** ID del libro */
+    private final Long bookId;
+}
@@ -0,0 +1,18 @@
+package com.bookmatch.backend.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Evento publicado cuando un usuario crea o edita una reseña.
+ * Se emite después de actualizar el agregado book_review_stats.
+ */
+@Getter
+@AllArgsConstructor
+public class ReviewSavedEvent {
+    /** ID del usuario que escribió la reseña */
+    private final Long userId;
+
+    /** ID del libro reseñado */
+    private final Long bookId;
+}
@@ -0,0 +1,14 @@
+package com.bookmatch.backend.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Evento publicado cuando un usuario actualiza su perfil (bio o preferencias de géneros y etiquetas).
+ */
+@Getter
+@AllArgsConstructor
+public class UserProfileUpdatedEvent {
+    /** ID del usuario */
+    private final Long userId;
+}
@@ -0,0 +1,12 @@
+package com.bookmatch.backend.repository;
+
+import com.bookmatch.backend.entity.BookDetails;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Repositorio de las descripciones comprimidas de los libros (tabla book_details).
+ */
+@Repository
+public interface BookDetailsRepository extends JpaRepository<BookDetails, Long> {
+}
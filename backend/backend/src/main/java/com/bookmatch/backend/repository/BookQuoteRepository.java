@@ -15,13 +15,13 @@ import java.util.List;
 public interface BookQuoteRepository extends JpaRepository<BookQuote, Long> {
 
     /**
-     * Obtiene una cita aleatoria de la base de datos.
-     * Utilizado para la funcionalidad "Cita a Ciegas".
+     * Obtiene los IDs de todas las citas, sin cargar las entidades.
+     * Utilizado por RandomSampler para la funcionalidad "Cita a Ciegas".
      *
-     * @return Una cita aleatoria de la base de datos.
+     * @return IDs de todas las citas.
      */
-    @Query(value = "SELECT * FROM book_quotes ORDER BY RAND() LIMIT 1", nativeQuery = true)
-    BookQuote findRandomQuote();
+    @Query("SELECT q.quoteId FROM BookQuote q")
+    List<Long> findAllQuoteIds();
 
     /**
      * Obtiene todas las citas de un libro específico.
@@ -30,4 +30,30 @@ public interface BookQuoteRepository extends JpaRepository<BookQuote, Long> {
      * @return Lista de citas del libro.
      */
     List<BookQuote> findByBook(Book book);
-}
\ No newline at end of file
+
+    /**
+     * Obtiene los pares (etiqueta, cita) de todas las citas, según las etiquetas de su libro.
+     * Utilizado para construir el índice de citas por etiqueta.
+     *
+     * @return Una fila por cada combinación etiqueta-cita.
+     */
+    @Query("SELECT t.tagId AS groupId, q.quoteId AS quoteId FROM BookQuote q JOIN q.book b JOIN b.tags t")
+    List<QuoteLinkView> findAllTagQuoteLinks();
+
+    /**
+     * Obtiene los pares (género, cita) de todas las citas, según los géneros de su libro.
+     * Utilizado para construir el índice de citas por género.
+     *
+     * @return Una fila por cada combinación género-cita.
+     */
+    @Query("SELECT g.genreId AS groupId, q.quoteId AS quoteId FROM BookQuote q JOIN q.book b JOIN b.genres g")
+    List<QuoteLinkView> findAllGenreQuoteLinks();
+
+    /**
+     * Proyección con una cita y el ID de la etiqueta o género al que pertenece.
+     */
+    interface QuoteLinkView {
+        Long getGroupId();
+        Long getQuoteId();
+    }
+}
@@ -1,11 +1,14 @@
 package com.bookmatch.backend.repository;
 
 import com.bookmatch.backend.entity.Book;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -27,9 +30,312 @@ public interface BookRepository extends JpaRepository<Book, Long> {
     List<Book> findRecommendations(@Param("genres") List<String> genres, @Param("userId") Long userId);
 
     /**
-     * Fallback: Devuelve libros aleatorios si no hay datos del usuario.
-     * Nota: ORDER BY RAND() es para MySQL. Si usas PostgreSQL cambia RAND() por RANDOM().
+     * Obtiene los IDs de todo el catálogo ordenados, sin cargar las entidades.
      */
-    @Query(value = "SELECT * FROM books ORDER BY RAND() LIMIT :limit", nativeQuery = true)
-    List<Book> findRandomBooks(@Param("limit") int limit);
-}
\ No newline at end of file
+    @Query("SELECT b.bookId FROM Book b ORDER BY b.bookId")
+    List<Long> findAllBookIds();
+
+    /**
+     * Obtiene todas las relaciones libro-género (book_genres) con el nombre del género.
+     */
+    @Query("SELECT b.bookId AS bookId, g.genreId AS linkId, g.name AS name FROM Book b JOIN b.genres g")
+    List<BookLinkView> findAllGenreLinks();
+
+    /**
+     * Obtiene los géneros de un conjunto de libros con una sola consulta IN.
+     *
+     * @param bookIds IDs de los libros.
+     * @return Filas (bookId, genreId, nombre).
+     */
+    @Query("SELECT b.bookId AS bookId, g.genreId AS linkId, g.name AS name FROM Book b JOIN b.genres g WHERE b.bookId IN :bookIds")
+    List<BookLinkView> findGenreLinksByBookIds(@Param("bookIds") Collection<Long> bookIds);
+
+    /**
+     * Obtiene las etiquetas de un conjunto de libros con una sola consulta IN.
+     *
+     * @param bookIds IDs de los libros.
+     * @return Filas (bookId, tagId, nombre).
+     */
+    @Query("SELECT b.bookId AS bookId, t.tagId AS linkId, t.name AS name FROM Book b JOIN b.tags t WHERE b.bookId IN :bookIds")
+    List<BookLinkView> findTagLinksByBookIds(@Param("bookIds") Collection<Long> bookIds);
+
+    /**
+     * Lee una página del catálogo para el cuestionario usando paginación por clave (bookId),
+     * con solo las columnas que necesita el scoring.
+     *
+     * @param afterId Último bookId de la página anterior (0 para empezar).
+     * @param pageable Tamaño de la página.
+     * @return Filas ordenadas por bookId.
+     */
+    @Query("SELECT b.bookId AS bookId, b.pageCount AS pageCount, b.averageRatingApi AS averageRatingApi " +
+            "FROM Book b WHERE b.bookId > :afterId ORDER BY b.bookId")
+    List<QuizCandidateView> findQuizCandidatesAfter(@Param("afterId") Long afterId, Pageable pageable);
+
+    /**
+     * Preselección de candidatos del cuestionario en la base de datos: libros del género
+     * elegido o con la etiqueta de la emoción elegida, que no superen el número de páginas
+     * deseado (o sin número de páginas conocido), ordenados por valoración de Google.
+     *
+     * @param genre Nombre del género preferido (puede ser null).
+     * @param emotion Nombre de la etiqueta de emoción preferida (puede ser null).
+     * @param maxPageCount Número máximo de páginas.
+     * @param pageable Tamaño máximo de la preselección.
+     * @return Candidatos preseleccionados.
+     */
+    @Query("SELECT b.bookId AS bookId, b.pageCount AS pageCount, b.averageRatingApi AS averageRatingApi " +
+            "FROM Book b " +
+            "WHERE (b.pageCount IS NULL OR b.pageCount <= :maxPageCount) " +
+            "AND (EXISTS (SELECT g FROM b.genres g WHERE LOWER(g.name) = LOWER(:genre)) " +
+            "OR EXISTS (SELECT t FROM b.tags t WHERE LOWER(t.name) = LOWER(:emotion))) " +
+            "ORDER BY b.averageRatingApi DESC, b.bookId")
+    List<QuizCandidateView> findQuizShortlist(@Param("genre") String genre,
+                                              @Param("emotion") String emotion,
+                                              @Param("maxPageCount") int maxPageCount,
+                                              Pageable pageable);
+
+    // --- Listados paginados por clave (keyset) de libros de un género o de una etiqueta ---
+    // Cada página continúa a partir de la última fila de la anterior, así que el coste no
+    // depende de la profundidad. Las condiciones y el ORDER BY usan las columnas tal cual
+    // (sin COALESCE) para que MySQL pueda recorrer idx_books_rating / idx_books_created hacia
+    // atrás. En orden descendente MySQL deja los NULL al final: cuando la página anterior
+    // termina en un libro sin valoración o sin fecha se sigue con la consulta "Unrated"/"Undated",
+    // que recorre solo esos libros por bookId descendente.
+
+    String SUMMARY_COLUMNS = "SELECT b.bookId AS bookId, b.googleBookId AS googleBookId, b.title AS title, " +
+            "b.authors AS authors, b.coverUrl AS coverUrl, b.publishedDate AS publishedDate, " +
+            "b.pageCount AS pageCount, b.isbn AS isbn, " +
+            "b.averageRatingApi AS averageRatingApi, b.createdAt AS createdAt, b.summary AS summary FROM Book b ";
+
+    /** Filas después de (afterRating, afterId) en orden valoración DESC, bookId DESC, seguidas de las sin valoración */
+    String AFTER_RATING = "AND (b.averageRatingApi < :afterRating " +
+            "OR (b.averageRatingApi = :afterRating AND b.bookId < :afterId) " +
+            "OR b.averageRatingApi IS NULL) " +
+            "ORDER BY b.averageRatingApi DESC, b.bookId DESC";
+
+    /** Filas después de (afterCreated, afterId) en orden fecha de alta DESC, bookId DESC, seguidas de las sin fecha */
+    String AFTER_CREATED = "AND (b.createdAt < :afterCreated " +
+            "OR (b.createdAt = :afterCreated AND b.bookId < :afterId) " +
+            "OR b.createdAt IS NULL) " +
+            "ORDER BY b.createdAt DESC, b.bookId DESC";
+
+    /**
+     * Página de libros de un género ordenada por bookId ascendente.
+     *
+     * @param genreId ID del género.
+     * @param afterId Último bookId de la página anterior (0 para empezar).
+     * @param pageable Tamaño de la página.
+     */
+    @Query(SUMMARY_COLUMNS + "JOIN b.genres g WHERE g.genreId = :genreId AND b.bookId > :afterId ORDER BY b.bookId")
+    List<BookSummaryView> findGenrePageById(@Param("genreId") Long genreId,
+                                            @Param("afterId") Long afterId,
+                                            Pageable pageable);
+
+    /**
+     * Página de libros de un género ordenada por valoración de Google (de mayor a menor) y bookId
+     * descendente; los libros sin valoración van al final.
+     *
+     * @param genreId ID del género.
+     * @param afterRating Valoración de la última fila de la página anterior.
+     * @param afterId bookId de la última fila de la página anterior.
+     * @param pageable Tamaño de la página.
+     */
+    @Query(SUMMARY_COLUMNS + "JOIN b.genres g WHERE g.genreId = :genreId " + AFTER_RATING)
+    List<BookSummaryView> findGenrePageByRating(@Param("genreId") Long genreId,
+                                                @Param("afterRating") Double afterRating,
+                                                @Param("afterId") Long afterId,
+                                                Pageable pageable);
+
+    /**
+     * Continuación del listado por valoración de un género con los libros sin valoración.
+     */
+    @Query(SUMMARY_COLUMNS + "JOIN b.genres g WHERE g.genreId = :genreId " +
+            "AND b.averageRatingApi IS NULL AND b.bookId < :afterId ORDER BY b.bookId DESC")
+    List<BookSummaryView> findGenrePageUnrated(@Param("genreId") Long genreId,
+                                               @Param("afterId") Long afterId,
+                                               Pageable pageable);
+
+    /**
+     * Página de libros de un género ordenada por fecha de alta (los más recientes primero) y bookId
+     * descendente; los libros sin fecha van al final.
+     *
+     * @param genreId ID del género.
+     * @param afterCreated Fecha de alta de la última fila de la página anterior.
+     * @param afterId bookId de la última fila de la página anterior.
+     * @param pageable Tamaño de la página.
+     */
+    @Query(SUMMARY_COLUMNS + "JOIN b.genres g WHERE g.genreId = :genreId " + AFTER_CREATED)
+    List<BookSummaryView> findGenrePageByCreated(@Param("genreId") Long genreId,
+                                                 @Param("afterCreated") LocalDateTime afterCreated,
+                                                 @Param("afterId") Long afterId,
+                                                 Pageable pageable);
+
+    /**
+     * Continuación del listado por fecha de alta de un género con los libros sin fecha.
+     */
+    @Query(SUMMARY_COLUMNS + "JOIN b.genres g WHERE g.genreId = :genreId " +
+            "AND b.createdAt IS NULL AND b.bookId < :afterId ORDER BY b.bookId DESC")
+    List<BookSummaryView> findGenrePageUndated(@Param("genreId") Long genreId,
+                                               @Param("afterId") Long afterId,
+                                               Pageable pageable);
+
+    /**
+     * Página de libros de una etiqueta ordenada por bookId ascendente.
+     */
+    @Query(SUMMARY_COLUMNS + "JOIN b.tags t WHERE t.tagId = :tagId AND b.bookId > :afterId ORDER BY b.bookId")
+    List<BookSummaryView> findTagPageById(@Param("tagId") Long tagId,
+                                          @Param("afterId") Long afterId,
+                                          Pageable pageable);
+
+    /**
+     * Página de libros de una etiqueta ordenada por valoración de Google (de mayor a menor) y bookId
+     * descendente; los libros sin valoración van al final.
+     */
+    @Query(SUMMARY_COLUMNS + "JOIN b.tags t WHERE t.tagId = :tagId " + AFTER_RATING)
+    List<BookSummaryView> findTagPageByRating(@Param("tagId") Long tagId,
+                                              @Param("afterRating") Double afterRating,
+                                              @Param("afterId") Long afterId,
+                                              Pageable pageable);
+
+    /**
+     * Continuación del listado por valoración de una etiqueta con los libros sin valoración.
+     */
+    @Query(SUMMARY_COLUMNS + "JOIN b.tags t WHERE t.tagId = :tagId " +
+            "AND b.averageRatingApi IS NULL AND b.bookId < :afterId ORDER BY b.bookId DESC")
+    List<BookSummaryView> findTagPageUnrated(@Param("tagId") Long tagId,
+                                             @Param("afterId") Long afterId,
+                                             Pageable pageable);
+
+    /**
+     * Página de libros de una etiqueta ordenada por fecha de alta (los más recientes primero) y bookId
+     * descendente; los libros sin fecha van al final.
+     */
+    @Query(SUMMARY_COLUMNS + "JOIN b.tags t WHERE t.tagId = :tagId " + AFTER_CREATED)
+    List<BookSummaryView> findTagPageByCreated(@Param("tagId") Long tagId,
+                                               @Param("afterCreated") LocalDateTime afterCreated,
+                                               @Param("afterId") Long afterId,
+                                               Pageable pageable);
+
+    /**
+     * Continuación del listado por fecha de alta de una etiqueta con los libros sin fecha.
+     */
+    @Query(SUMMARY_COLUMNS + "JOIN b.tags t WHERE t.tagId = :tagId " +
+            "AND b.createdAt IS NULL AND b.bookId < :afterId ORDER BY b.bookId DESC")
+    List<BookSummaryView> findTagPageUndated(@Param("tagId") Long tagId,
+                                             @Param("afterId") Long afterId,
+                                             Pageable pageable);
+
+    /**
+     * Obtiene los datos de listado de un conjunto de libros con una sola consulta IN.
+     *
+     * @param bookIds IDs de los libros.
+     * @return Filas en cualquier orden (sin los IDs que no existan).
+     */
+    @Query(SUMMARY_COLUMNS + "WHERE b.bookId IN :bookIds")
+    List<BookSummaryView> findSummariesByIds(@Param("bookIds") Collection<Long> bookIds);
+
+    /**
+     * Obtiene los datos de listado de los libros que ya están en el catálogo local
+     * a partir de sus IDs de Google Books.
+     *
+     * @param googleBookIds IDs de Google Books.
+     * @return Filas de los libros que existen localmente.
+     */
+    @Query(SUMMARY_COLUMNS + "WHERE b.googleBookId IN :googleBookIds")
+    List<BookSummaryView> findSummariesByGoogleBookIds(@Param("googleBookIds") Collection<String> googleBookIds);
+
+    /**
+     * Lee una página de títulos y autores de todo el catálogo (paginación por clave).
+     * Utilizado para construir el índice de autocompletado.
+     *
+     * @param afterId Último bookId de la página anterior (0 para empezar).
+     * @param pageable Tamaño de la página.
+     * @return Filas ordenadas por bookId.
+     */
+    @Query("SELECT b.bookId AS bookId, b.title AS title, b.authors AS authors FROM Book b " +
+            "WHERE b.bookId > :afterId ORDER BY b.bookId")
+    List<TitleView> findTitlesAfter(@Param("afterId") Long afterId, Pageable pageable);
+
+    /**
+     * Obtiene el título y los autores de un libro.
+     */
+    @Query("SELECT b.bookId AS bookId, b.title AS title, b.authors AS authors FROM Book b WHERE b.bookId = :bookId")
+    Optional<TitleView> findTitleById(@Param("bookId") Long bookId);
+
+    /**
+     * Lee una página de los textos indexables del catálogo (paginación por clave).
+     *
+     * @param afterId Último bookId de la página anterior (0 para empezar).
+     * @param pageable Tamaño de la página.
+     * @return Filas ordenadas por bookId.
+     */
+    @Query("SELECT b.bookId AS bookId, b.title AS title, b.authors AS authors, " +
+            "d.descriptionData AS descriptionData, b.isbn AS isbn " +
+            "FROM Book b LEFT JOIN BookDetails d ON d.bookId = b.bookId " +
+            "WHERE b.bookId > :afterId ORDER BY b.bookId")
+    List<SearchDocumentView> findSearchDocumentsAfter(@Param("afterId") Long afterId, Pageable pageable);
+
+    /**
+     * Obtiene los textos indexables de un libro.
+     */
+    @Query("SELECT b.bookId AS bookId, b.title AS title, b.authors AS authors, " +
+            "d.descriptionData AS descriptionData, b.isbn AS isbn " +
+            "FROM Book b LEFT JOIN BookDetails d ON d.bookId = b.bookId " +
+            "WHERE b.bookId = :bookId")
+    Optional<SearchDocumentView> findSearchDocument(@Param("bookId") Long bookId);
+
+    /**
+     * Proyección con los campos de un libro que se muestran en los listados.
+     */
+    interface BookSummaryView {
+        Long getBookId();
+        String getGoogleBookId();
+        String getTitle();
+        String getAuthors();
+        String getCoverUrl();
+        String getPublishedDate();
+        Integer getPageCount();
+        String getIsbn();
+        Double getAverageRatingApi();
+        LocalDateTime getCreatedAt();
+        String getSummary();
+    }
+
+    /**
+     * Proyección con el título y los autores de un libro (claves del autocompletado).
+     */
+    interface TitleView {
+        Long getBookId();
+        String getTitle();
+        String getAuthors();
+    }
+
+    /**
+     * Proyección con los campos de texto de un libro que se indexan para la búsqueda.
+     * La descripción viene comprimida desde book_details (null si el libro no tiene).
+     */
+    interface SearchDocumentView {
+        Long getBookId();
+        String getTitle();
+        String getAuthors();
+        byte[] getDescriptionData();
+        String getIsbn();
+    }
+
+    /**
+     * Proyección de un libro con los campos usados por el scoring del cuestionario.
+     */
+    interface QuizCandidateView {
+        Long getBookId();
+        Integer getPageCount();
+        Double getAverageRatingApi();
+    }
+
+    /**
+     * Proyección de una relación entre un libro y un género o etiqueta.
+     */
+    interface BookLinkView {
+        Long getBookId();
+        Long getLinkId();
+        String getName();
+    }
+}
@@ -0,0 +1,93 @@
+package com.bookmatch.backend.repository;
+
+import com.bookmatch.backend.entity.BookReviewStats;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+
+/**
+ * Repositorio para el agregado de reseñas por libro (tabla book_review_stats).
+ * Las actualizaciones incrementales usan SQL nativo de MySQL para que sean atómicas.
+ */
+@Repository
+public interface BookReviewStatsRepository extends JpaRepository<BookReviewStats, Long> {
+
+    /**
+     * Registra una reseña nueva en el agregado del libro.
+     * Crea la fila si todavía no existe (INSERT ... ON DUPLICATE KEY UPDATE de MySQL).
+     *
+     * @param bookId ID del libro reseñado.
+     * @param rating Calificación de la nueva reseña.
+     * @param reviewedAt Fecha de creación de la reseña.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO book_review_stats (book_id, review_count, rating_sum, recent_review_count, last_review_at) " +
+            "VALUES (:bookId, 1, :rating, 1, :reviewedAt) " +
+            "ON DUPLICATE KEY UPDATE review_count = review_count + 1, " +
+            "rating_sum = rating_sum + :rating, " +
+            "recent_review_count = recent_review_count + 1, " +
+            "last_review_at = GREATEST(COALESCE(last_review_at, :reviewedAt), :reviewedAt)", nativeQuery = true)
+    void registerNewReview(@Param("bookId") Long bookId,
+                           @Param("rating") int rating,
+                           @Param("reviewedAt") LocalDateTime reviewedAt);
+
+    /**
+     * Ajusta la suma de calificaciones cuando se edita una reseña existente.
+     *
+     * @param bookId ID del libro.
+     * @param delta Diferencia entre la calificación nueva y la anterior.
+     */
+    @Modifying
+    @Query(value = "UPDATE book_review_stats SET rating_sum = rating_sum + :delta WHERE book_id = :bookId", nativeQuery = true)
+    void adjustRatingSum(@Param("bookId") Long bookId, @Param("delta") int delta);
+
+    /**
+     * Recalcula el agregado de todos los libros a partir de la tabla de reseñas con una sola
+     * sentencia (INSERT ... SELECT ... ON DUPLICATE KEY UPDATE). Las filas existentes se
+     * sobrescriben en el sitio, así que no hay ningún momento en que la tabla esté vacía y las
+     * reseñas que se guardan a la vez no se pierden ni se cuentan dos veces.
+     *
+     * @param since Inicio de la ventana de reseñas recientes.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO book_review_stats (book_id, review_count, rating_sum, recent_review_count, last_review_at) " +
+            "SELECT a.book_id, a.review_count, a.rating_sum, a.recent_count, a.last_review_at FROM (" +
+            "SELECT book_id, COUNT(*) AS review_count, SUM(rating) AS rating_sum, " +
+            "SUM(CASE WHEN created_at > :since THEN 1 ELSE 0 END) AS recent_count, " +
+            "MAX(created_at) AS last_review_at FROM reviews GROUP BY book_id) a " +
+            "ON DUPLICATE KEY UPDATE review_count = a.review_count, rating_sum = a.rating_sum, " +
+            "recent_review_count = a.recent_count, last_review_at = a.last_review_at", nativeQuery = true)
+    int rebuildFromReviews(@Param("since") LocalDateTime since);
+
+    /**
+     * Elimina los agregados de libros que ya no tienen reseñas.
+     */
+    @Modifying
+    @Query(value = "DELETE s FROM book_review_stats s " +
+            "WHERE NOT EXISTS (SELECT 1 FROM reviews r WHERE r.book_id = s.book_id)", nativeQuery = true)
+    int deleteWithoutReviews();
+
+    /**
+     * Pone a cero el contador de reseñas recientes de todos los libros.
+     * Se usa antes de recalcular la ventana móvil de 30 días.
+     */
+    @Modifying
+    @Query(value = "UPDATE book_review_stats SET recent_review_count = 0", nativeQuery = true)
+    void resetRecentCounts();
+
+    /**
+     * Recalcula el contador de reseñas recientes a partir de la tabla de reseñas.
+     *
+     * @param since Inicio de la ventana móvil.
+     */
+    @Modifying
+    @Query(value = "UPDATE book_review_stats s " +
+            "JOIN (SELECT book_id, COUNT(*) AS recent FROM reviews WHERE created_at > :since GROUP BY book_id) r " +
+            "ON r.book_id = s.book_id " +
+            "SET s.recent_review_count = r.recent", nativeQuery = true)
+    void refreshRecentCounts(@Param("since") LocalDateTime since);
+}
@@ -3,6 +3,8 @@ package com.bookmatch.backend.repository;
 import com.bookmatch.backend.entity.CustomList;
 import com.bookmatch.backend.entity.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import java.util.List;
 
@@ -26,4 +28,48 @@ public interface CustomListRepository extends JpaRepository<CustomList, Long> {
      * @return Lista de listas personalizadas públicas.
      */
     List<CustomList> findByIsPublicTrue();
-}
\ No newline at end of file
+
+    /**
+     * Obtiene las listas de un usuario con solo los campos que se muestran.
+     *
+     * @param userId ID del usuario.
+     * @return Listas en orden de creación.
+     */
+    @Query("SELECT l.listId AS listId, l.name AS name, l.description AS description, l.isPublic AS isPublic " +
+            "FROM CustomList l WHERE l.user.userId = :userId ORDER BY l.createdAt, l.listId")
+    List<CustomListView> findViewsByUserId(@Param("userId") Long userId);
+
+    /**
+     * Obtiene los libros de todas las listas de un usuario en una sola consulta,
+     * con los campos de listado de cada libro.
+     *
+     * @param userId ID del usuario.
+     * @return Filas (listId, datos del libro).
+     */
+    @Query("SELECT l.listId AS listId, b.bookId AS bookId, b.googleBookId AS googleBookId, b.title AS title, " +
+            "b.authors AS authors, b.coverUrl AS coverUrl " +
+            "FROM CustomList l JOIN l.books b WHERE l.user.userId = :userId ORDER BY b.bookId")
+    List<ListBookView> findBookViewsByUserId(@Param("userId") Long userId);
+
+    /**
+     * Proyección de una lista personalizada.
+     */
+    interface CustomListView {
+        Long getListId();
+        String getName();
+        String getDescription();
+        Boolean getIsPublic();
+    }
+
+    /**
+     * Proyección de un libro dentro de una lista personalizada.
+     */
+    interface ListBookView {
+        Long getListId();
+        Long getBookId();
+        String getGoogleBookId();
+        String getTitle();
+        String getAuthors();
+        String getCoverUrl();
+    }
+}
@@ -2,7 +2,9 @@ package com.bookmatch.backend.repository;
 
 import com.bookmatch.backend.entity.Genre;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
+import java.util.List;
 import java.util.Optional;
 
 /**
@@ -18,4 +20,24 @@ public interface GenreRepository extends JpaRepository<Genre, Long> {
      * @return Optional con el género si existe.
      */
     Optional<Genre> findByName(String name);
-}
\ No newline at end of file
+
+    /**
+     * Obtiene todos los géneros con su número de libros en una sola consulta
+     * agrupada sobre la tabla book_genres, sin cargar las entidades Book.
+     *
+     * @return Una fila por género, ordenadas por ID.
+     */
+    @Query(value = "SELECT g.genre_id AS id, g.name AS name, COUNT(bg.book_id) AS bookCount " +
+            "FROM genres g LEFT JOIN book_genres bg ON bg.genre_id = g.genre_id " +
+            "GROUP BY g.genre_id, g.name ORDER BY g.genre_id", nativeQuery = true)
+    List<GenreCountView> findAllWithBookCount();
+
+    /**
+     * Proyección con los datos de un género y su número de libros.
+     */
+    interface GenreCountView {
+        Long getId();
+        String getName();
+        Long getBookCount();
+    }
+}
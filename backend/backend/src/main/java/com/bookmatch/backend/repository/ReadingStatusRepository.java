@@ -5,7 +5,10 @@ import com.bookmatch.backend.entity.User;
 import com.bookmatch.backend.entity.Book;
 import com.bookmatch.backend.enums.ReadingStatusType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -40,4 +43,70 @@ public interface ReadingStatusRepository extends JpaRepository<ReadingStatus, Lo
      * @return Lista de estados de lectura que coinciden con el filtro.
      */
     List<ReadingStatus> findByUserAndStatus(User user, ReadingStatusType status);
-}
\ No newline at end of file
+
+    /**
+     * Obtiene los IDs de todos los libros que el usuario tiene en su estantería.
+     *
+     * @param userId ID del usuario.
+     * @return IDs de los libros con algún estado de lectura.
+     */
+    @Query("SELECT rs.book.bookId FROM ReadingStatus rs WHERE rs.user.userId = :userId")
+    List<Long> findBookIdsByUserId(@Param("userId") Long userId);
+
+    /**
+     * Cuenta cuántos usuarios tienen cada libro en su estantería (con cualquier estado).
+     *
+     * @return Una fila por libro con al menos un estado de lectura.
+     */
+    @Query("SELECT rs.book.bookId AS bookId, COUNT(rs) AS total FROM ReadingStatus rs GROUP BY rs.book.bookId")
+    List<BookCountView> countByBook();
+
+    /**
+     * Cuenta cuántos usuarios tienen un libro en su estantería (con cualquier estado).
+     *
+     * @param bookId ID del libro.
+     */
+    @Query("SELECT COUNT(rs) FROM ReadingStatus rs WHERE rs.book.bookId = :bookId")
+    long countByBookId(@Param("bookId") Long bookId);
+
+    /**
+     * Obtiene todos los estados de lectura (usuario, libro, estado) sin cargar las entidades.
+     * Utilizado por el filtrado colaborativo.
+     */
+    @Query("SELECT rs.user.userId AS userId, rs.book.bookId AS bookId, rs.status AS status FROM ReadingStatus rs")
+    List<StatusView> findAllStatuses();
+
+    /**
+     * Obtiene los estados de lectura de un usuario sin cargar las entidades.
+     *
+     * @param userId ID del usuario.
+     */
+    @Query("SELECT rs.user.userId AS userId, rs.book.bookId AS bookId, rs.status AS status FROM ReadingStatus rs WHERE rs.user.userId = :userId")
+    List<StatusView> findStatusesByUserId(@Param("userId") Long userId);
+
+    /**
+     * Obtiene los estados de lectura de varios usuarios sin cargar las entidades.
+     * Utilizado por la pasada incremental del filtrado colaborativo.
+     *
+     * @param userIds IDs de los usuarios.
+     */
+    @Query("SELECT rs.user.userId AS userId, rs.book.bookId AS bookId, rs.status AS status FROM ReadingStatus rs WHERE rs.user.userId IN :userIds")
+    List<StatusView> findStatusesByUserIds(@Param("userIds") Collection<Long> userIds);
+
+    /**
+     * Proyección del estado de lectura de un usuario para un libro.
+     */
+    interface StatusView {
+        Long getUserId();
+        Long getBookId();
+        ReadingStatusType getStatus();
+    }
+
+    /**
+     * Proyección con un contador por libro.
+     */
+    interface BookCountView {
+        Long getBookId();
+        Long getTotal();
+    }
+}
@@ -3,8 +3,14 @@ package com.bookmatch.backend.repository;
 import com.bookmatch.backend.entity.Review;
 import com.bookmatch.backend.entity.Book;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 /**
  * Repositorio para la gestión de reseñas de libros en la base de datos.
@@ -20,4 +26,83 @@ public interface ReviewRepository extends JpaRepository<Review, Long> {
      */
     List<Review> findByBook(Book book);
     List<Review> findByUser_UserIdAndRatingGreaterThanEqual(Long userId, Integer rating);
-}
\ No newline at end of file
+
+    /**
+     * Busca la reseña de un usuario para un libro concreto.
+     *
+     * @param userId ID del usuario.
+     * @param bookId ID del libro.
+     * @return Optional con la reseña si existe.
+     */
+    Optional<Review> findByUser_UserIdAndBook_BookId(Long userId, Long bookId);
+
+    /**
+     * Obtiene los IDs de los libros que un usuario ha valorado con al menos una calificación.
+     *
+     * @param userId ID del usuario.
+     * @param minRating Calificación mínima.
+     * @return IDs de los libros.
+     */
+    @Query("SELECT r.book.bookId FROM Review r WHERE r.user.userId = :userId AND r.rating >= :minRating")
+    List<Long> findBookIdsByUserIdAndMinRating(@Param("userId") Long userId, @Param("minRating") Integer minRating);
+
+    /**
+     * Obtiene todas las calificaciones (usuario, libro, calificación) sin cargar las entidades.
+     * Utilizado por el filtrado colaborativo.
+     */
+    @Query("SELECT r.user.userId AS userId, r.book.bookId AS bookId, r.rating AS rating FROM Review r")
+    List<RatingView> findAllRatings();
+
+    /**
+     * Obtiene las calificaciones de un usuario sin cargar las entidades.
+     *
+     * @param userId ID del usuario.
+     */
+    @Query("SELECT r.user.userId AS userId, r.book.bookId AS bookId, r.rating AS rating FROM Review r WHERE r.user.userId = :userId")
+    List<RatingView> findRatingsByUserId(@Param("userId") Long userId);
+
+    /**
+     * Obtiene las calificaciones de varios usuarios sin cargar las entidades.
+     * Utilizado por la pasada incremental del filtrado colaborativo.
+     *
+     * @param userIds IDs de los usuarios.
+     */
+    @Query("SELECT r.user.userId AS userId, r.book.bookId AS bookId, r.rating AS rating FROM Review r WHERE r.user.userId IN :userIds")
+    List<RatingView> findRatingsByUserIds(@Param("userIds") Collection<Long> userIds);
+
+    /**
+     * Obtiene las reseñas de un libro con el nombre y la bio de su autor, seleccionando solo
+     * las columnas que se muestran (sin cargar las entidades Review ni User).
+     *
+     * @param googleBookId ID del libro en Google Books.
+     * @return Reseñas de la más reciente a la más antigua.
+     */
+    @Query("SELECT r.reviewId AS reviewId, u.username AS username, u.bio AS userBio, r.rating AS rating, " +
+            "r.comment AS comment, r.llmSentimentScore AS sentimentScore, r.llmKeywords AS keywords, " +
+            "r.createdAt AS createdAt " +
+            "FROM Review r JOIN r.user u WHERE r.book.googleBookId = :googleBookId ORDER BY r.createdAt DESC")
+    List<ReviewView> findViewsByGoogleBookId(@Param("googleBookId") String googleBookId);
+
+    /**
+     * Proyección de una reseña tal como se muestra en la ficha del libro.
+     */
+    interface ReviewView {
+        Long getReviewId();
+        String getUsername();
+        String getUserBio();
+        Integer getRating();
+        String getComment();
+        Double getSentimentScore();
+        String getKeywords();
+        LocalDateTime getCreatedAt();
+    }
+
+    /**
+     * Proyección de una calificación de un usuario a un libro.
+     */
+    interface RatingView {
+        Long getUserId();
+        Long getBookId();
+        Integer getRating();
+    }
+}
@@ -2,7 +2,9 @@ package com.bookmatch.backend.repository;
 
 import com.bookmatch.backend.entity.Tag;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
+import java.util.List;
 import java.util.Optional;
 
 /**
@@ -18,4 +20,25 @@ public interface TagRepository extends JpaRepository<Tag, Long> {
      * @return Optional con la etiqueta si existe.
      */
     Optional<Tag> findByName(String name);
-}
\ No newline at end of file
+
+    /**
+     * Obtiene todas las etiquetas con su número de libros en una sola consulta
+     * agrupada sobre la tabla book_tags, sin cargar las entidades Book.
+     *
+     * @return Una fila por etiqueta, ordenadas por ID.
+     */
+    @Query(value = "SELECT t.tag_id AS id, t.name AS name, t.description AS description, COUNT(bt.book_id) AS bookCount " +
+            "FROM tags t LEFT JOIN book_tags bt ON bt.tag_id = t.tag_id " +
+            "GROUP BY t.tag_id, t.name, t.description ORDER BY t.tag_id", nativeQuery = true)
+    List<TagCountView> findAllWithBookCount();
+
+    /**
+     * Proyección con los datos de una etiqueta y su número de libros.
+     */
+    interface TagCountView {
+        Long getId();
+        String getName();
+        String getDescription();
+        Long getBookCount();
+    }
+}
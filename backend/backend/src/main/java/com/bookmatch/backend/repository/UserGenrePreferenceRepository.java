@@ -2,6 +2,8 @@ package com.bookmatch.backend.repository;
 
 import com.bookmatch.backend.entity.UserGenrePreference;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import java.util.List;
 
@@ -18,4 +20,13 @@ public interface UserGenrePreferenceRepository extends JpaRepository<UserGenrePr
      * @return Lista de preferencias de géneros del usuario.
      */
     List<UserGenrePreference> findByUserId(Long userId);
-}
\ No newline at end of file
+
+    /**
+     * Obtiene solo los IDs de los géneros preferidos de un usuario.
+     *
+     * @param userId ID del usuario.
+     * @return IDs de los géneros preferidos.
+     */
+    @Query("SELECT p.genreId FROM UserGenrePreference p WHERE p.userId = :userId")
+    List<Long> findGenreIdsByUserId(@Param("userId") Long userId);
+}
@@ -2,6 +2,8 @@ package com.bookmatch.backend.repository;
 
 import com.bookmatch.backend.entity.UserTagPreference;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import java.util.List;
 
@@ -18,4 +20,13 @@ public interface UserTagPreferenceRepository extends JpaRepository<UserTagPrefer
      * @return Lista de preferencias de etiquetas del usuario.
      */
     List<UserTagPreference> findByUserId(Long userId);
+
+    /**
+     * Obtiene solo los IDs de las etiquetas preferidas de un usuario.
+     *
+     * @param userId ID del usuario.
+     * @return IDs de las etiquetas preferidas.
+     */
+    @Query("SELECT p.tagId FROM UserTagPreference p WHERE p.userId = :userId")
+    List<Long> findTagIdsByUserId(@Param("userId") Long userId);
 }
\ No newline at end of file
@@ -4,23 +4,18 @@ import com.bookmatch.backend.dto.AuthResponse;
 import com.bookmatch.backend.dto.LoginRequest;
 import com.bookmatch.backend.dto.RegisterRequest;
 import com.bookmatch.backend.dto.UpdateUserProfileRequest;
-import com.bookmatch.backend.entity.Genre;
-import com.bookmatch.backend.entity.Tag;
 import com.bookmatch.backend.entity.User;
-import com.bookmatch.backend.entity.UserGenrePreference;
-import com.bookmatch.backend.entity.UserTagPreference;
 import com.bookmatch.backend.enums.Role;
-import com.bookmatch.backend.repository.GenreRepository;
-import com.bookmatch.backend.repository.TagRepository;
-import com.bookmatch.backend.repository.UserGenrePreferenceRepository;
+import com.bookmatch.backend.event.UserProfileUpdatedEvent;
 import com.bookmatch.backend.repository.UserRepository;
-import com.bookmatch.backend.repository.UserTagPreferenceRepository;
 import com.bookmatch.backend.security.JwtService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
@@ -50,16 +45,10 @@ public class AuthService {
     private EmailService emailService;
 
     @Autowired
-    private GenreRepository genreRepository;
+    private UserPreferenceService userPreferenceService;
 
     @Autowired
-    private TagRepository tagRepository;
-
-    @Autowired
-    private UserGenrePreferenceRepository userGenrePreferenceRepository;
-
-    @Autowired
-    private UserTagPreferenceRepository userTagPreferenceRepository;
+    private ApplicationEventPublisher eventPublisher;
 
     /**
      * Autentica a un usuario existente verificando sus credenciales (email y contraseña).
@@ -143,41 +132,11 @@ public class AuthService {
         // 4. Guardar en MySQL
         User savedUser = userRepository.save(user);
 
-        // 5. Guardar preferencias de géneros si se proporcionan
-        if (request.getGenrePreferenceIds() != null && !request.getGenrePreferenceIds().isEmpty()) {
-            for (Long genreId : request.getGenrePreferenceIds()) {
-                Genre genre = genreRepository.findById(genreId).orElse(null);
-                if (genre != null) {
-                    UserGenrePreference preference = UserGenrePreference.builder()
-                            .user(savedUser)
-                            .userId(savedUser.getUserId())
-                            .genre(genre)
-                            .genreId(genre.getGenreId())
-                            .weight(1)
-                            .build();
-                    userGenrePreferenceRepository.save(preference);
-                }
-            }
-        }
+        // 5. Guardar preferencias iniciales de géneros y tags (en lote, una transacción)
+        userPreferenceService.replacePreferences(savedUser.getUserId(),
+                request.getGenrePreferenceIds(), request.getTagPreferenceIds());
 
-        // 6. Guardar preferencias de tags si se proporcionan
-        if (request.getTagPreferenceIds() != null && !request.getTagPreferenceIds().isEmpty()) {
-            for (Long tagId : request.getTagPreferenceIds()) {
-                Tag tag = tagRepository.findById(tagId).orElse(null);
-                if (tag != null) {
-                    UserTagPreference preference = UserTagPreference.builder()
-                            .user(savedUser)
-                            .userId(savedUser.getUserId())
-                            .tag(tag)
-                            .tagId(tag.getTagId())
-                            .weight(1)
-                            .build();
-                    userTagPreferenceRepository.save(preference);
-                }
-            }
-        }
-
-        // 7. Enviar email de verificación
+        // 6. Enviar email de verificación
         emailService.sendVerificationEmail(savedUser.getEmail(), verificationToken);
 
         return savedUser;
@@ -213,6 +172,7 @@ public class AuthService {
      * @param request Datos a actualizar
      * @throws RuntimeException Si el usuario no se encuentra
      */
+    @Transactional
     public void updateUserProfile(String email, UpdateUserProfileRequest request) {
         User user = userRepository.findByEmail(email)
                 .orElseThrow(() -> new RuntimeException("Usuario no encontrado"));
@@ -222,42 +182,13 @@ public class AuthService {
             user.setBio(request.getBio());
         }
 
-        // Actualizar preferencias de géneros si se proporcionan
-        if (request.getGenrePreferenceIds() != null) {
-            // Eliminar preferencias anteriores
-            userGenrePreferenceRepository.deleteAll(user.getGenrePreferences());
-
-            // Añadir nuevas preferencias
-            for (Long genreId : request.getGenrePreferenceIds()) {
-                Genre genre = genreRepository.findById(genreId).orElse(null);
-                if (genre != null) {
-                    UserGenrePreference preference = UserGenrePreference.builder()
-                            .user(user)
-                            .genre(genre)
-                            .build();
-                    userGenrePreferenceRepository.save(preference);
-                }
-            }
-        }
-
-        // Actualizar preferencias de tags si se proporcionan
-        if (request.getTagPreferenceIds() != null) {
-            // Eliminar preferencias anteriores
-            userTagPreferenceRepository.deleteAll(user.getTagPreferences());
-
-            // Añadir nuevas preferencias
-            for (Long tagId : request.getTagPreferenceIds()) {
-                Tag tag = tagRepository.findById(tagId).orElse(null);
-                if (tag != null) {
-                    UserTagPreference preference = UserTagPreference.builder()
-                            .user(user)
-                            .tag(tag)
-                            .build();
-                    userTagPreferenceRepository.save(preference);
-                }
-            }
-        }
+        // Actualizar preferencias (solo se borran e insertan las que cambian)
+        userPreferenceService.replacePreferences(user.getUserId(),
+                request.getGenrePreferenceIds(), request.getTagPreferenceIds());
 
         userRepository.save(user);
+
+        // Las recomendaciones cacheadas del usuario dependen de sus preferencias
+        eventPublisher.publishEvent(new UserProfileUpdatedEvent(user.getUserId()));
     }
 }
\ No newline at end of file
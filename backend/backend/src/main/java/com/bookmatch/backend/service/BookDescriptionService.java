@@ -0,0 +1,225 @@
+package com.bookmatch.backend.service;
+
+import com.bookmatch.backend.entity.BookDetails;
+import com.bookmatch.backend.repository.BookDetailsRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Servicio que guarda y lee las descripciones completas de los libros.
+ * Las descripciones se guardan comprimidas con Deflate en book_details y en books solo
+ * queda un resumen corto en texto plano para los listados, así que las consultas que
+ * recorren muchos libros no arrastran varios KB de texto por fila.
+ * Si se activa app.book-details.migrate-legacy, al arrancar copia las descripciones de la
+ * antigua columna books.description (la columna no se toca: se elimina a mano cuando se
+ * haya comprobado la migración).
+ */
+@Service
+public class BookDescriptionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(BookDescriptionService.class);
+
+    /** Longitud máxima del resumen de los listados (la columna admite 300 caracteres) */
+    static final int SUMMARY_LENGTH = 280;
+
+    private static final Pattern HTML_TAG = Pattern.compile("<[^>]*>");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private static final String INSERT_DETAILS_SQL = "INSERT IGNORE INTO book_details " +
+            "(book_id, description_data, description_length) VALUES (?, ?, ?)";
+
+    @Autowired
+    private BookDetailsRepository bookDetailsRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${app.book-details.migrate-legacy:false}")
+    private boolean migrateLegacy;
+
+    @Value("${app.book-details.migration-batch-size:500}")
+    private int migrationBatchSize;
+
+    /**
+     * Guarda la descripción completa de un libro.
+     *
+     * @param bookId ID del libro.
+     * @param description Descripción (si es null o está vacía no se guarda nada).
+     */
+    @Transactional
+    public void saveDescription(Long bookId, String description) {
+        if (description == null || description.isBlank()) return;
+
+        bookDetailsRepository.save(BookDetails.builder()
+                .bookId(bookId)
+                .descriptionData(compress(description))
+                .descriptionLength(description.length())
+                .build());
+    }
+
+    /**
+     * Obtiene la descripción completa de un libro (solo para la ficha de detalle).
+     *
+     * @param bookId ID del libro.
+     * @return Descripción, o null si el libro no tiene.
+     */
+    @Transactional(readOnly = true)
+    public String getDescription(Long bookId) {
+        return bookDetailsRepository.findById(bookId)
+                .map(details -> decompress(details.getDescriptionData()))
+                .orElse(null);
+    }
+
+    /**
+     * Copia las descripciones de la antigua columna books.description a book_details y
+     * rellena los resúmenes. Solo se ejecuta con app.book-details.migrate-legacy=true; se
+     * puede relanzar sin peligro (las filas ya copiadas se ignoran) y si la columna no
+     * existe no hace nada. La columna antigua se conserva para poder volver atrás.
+     * Se ejecuta antes que el resto de tareas de arranque para que el índice de búsqueda
+     * ya encuentre las descripciones en book_details.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void migrateLegacyDescriptions() {
+        if (!migrateLegacy) return;
+
+        Integer legacyColumns = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM information_schema.columns WHERE table_schema = DATABASE() " +
+                        "AND table_name = 'books' AND column_name = 'description'", Integer.class);
+        if (legacyColumns == null || legacyColumns == 0) return;
+
+        long start = System.currentTimeMillis();
+        long migrated = 0;
+        long afterId = 0;
+        while (true) {
+            List<LegacyRow> rows = jdbcTemplate.query(
+                    "SELECT book_id, description FROM books WHERE book_id > ? ORDER BY book_id LIMIT ?",
+                    (rs, rowNum) -> new LegacyRow(rs.getLong("book_id"), rs.getString("description")),
+                    afterId, migrationBatchSize);
+            if (rows.isEmpty()) break;
+
+            List<Object[]> details = new ArrayList<>(rows.size());
+            List<Object[]> summaries = new ArrayList<>(rows.size());
+            for (LegacyRow row : rows) {
+                if (row.description == null || row.description.isBlank()) continue;
+                details.add(new Object[]{row.bookId, compress(row.description), row.description.length()});
+                summaries.add(new Object[]{summarize(row.description), row.bookId});
+            }
+            if (!details.isEmpty()) {
+                jdbcTemplate.batchUpdate(INSERT_DETAILS_SQL, details);
+                jdbcTemplate.batchUpdate("UPDATE books SET summary = ? WHERE book_id = ?", summaries);
+            }
+
+            migrated += details.size();
+            afterId = rows.get(rows.size() - 1).bookId;
+        }
+
+        logger.info("Descripciones copiadas a book_details: {} libros en {} ms. La columna books.description " +
+                "ya no se usa y puede eliminarse a mano", migrated, System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Construye el resumen de los listados: texto plano (sin las etiquetas HTML que manda
+     * Google) recortado por la última palabra completa.
+     *
+     * @param description Descripción completa.
+     * @return Resumen, o null si no hay descripción.
+     */
+    static String summarize(String description) {
+        if (description == null || description.isBlank()) return null;
+
+        String text = HTML_TAG.matcher(description).replaceAll(" ")
+                .replace("&nbsp;", " ")
+                .replace("&quot;", "\"")
+                .replace("&#39;", "'")
+                .replace("&lt;", "<")
+                .replace("&gt;", ">")
+                .replace("&amp;", "&");
+        text = WHITESPACE.matcher(text).replaceAll(" ").trim();
+        if (text.length() <= SUMMARY_LENGTH) return text;
+
+        int cut = text.lastIndexOf(' ', SUMMARY_LENGTH - 1);
+        if (cut < SUMMARY_LENGTH / 2) cut = SUMMARY_LENGTH - 1;
+        return text.substring(0, cut).trim() + "…";
+    }
+
+    /**
+     * Comprime un texto en UTF-8 con Deflate.
+     */
+    static byte[] compress(String text) {
+        byte[] input = text.getBytes(StandardCharsets.UTF_8);
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        try {
+            deflater.setInput(input);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, input.length / 2));
+            byte[] buffer = new byte[4096];
+            while (!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /**
+     * Descomprime un texto guardado con {@link #compress(String)}.
+     *
+     * @param data Datos comprimidos (puede ser null).
+     * @return Texto original, o null si no hay datos.
+     */
+    static String decompress(byte[] data) {
+        if (data == null) return null;
+
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(data);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(data.length * 3);
+            byte[] buffer = new byte[4096];
+            while (!inflater.finished()) {
+                int count = inflater.inflate(buffer);
+                if (count == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new RuntimeException("Descripción comprimida incompleta");
+                }
+                out.write(buffer, 0, count);
+            }
+            return out.toString(StandardCharsets.UTF_8);
+        } catch (DataFormatException e) {
+            throw new RuntimeException("Descripción comprimida no válida", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    /**
+     * Fila de la antigua columna books.description.
+     */
+    private static final class LegacyRow {
+        final long bookId;
+        final String description;
+
+        LegacyRow(long bookId, String description) {
+            this.bookId = bookId;
+            this.description = description;
+        }
+    }
+}
@@ -0,0 +1,222 @@
+package com.bookmatch.backend.service;
+
+import com.bookmatch.backend.dto.BookPageResponse;
+import com.bookmatch.backend.dto.BookSummaryResponse;
+import com.bookmatch.backend.repository.BookRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Servicio para los listados de libros de un género o de una etiqueta.
+ * Usa paginación por clave (keyset): cada página se pide con un cursor opaco que codifica
+ * el valor de ordenación y el bookId de la última fila de la página anterior, de modo que
+ * la base de datos continúa desde ahí en lugar de saltar filas con OFFSET.
+ */
+@Service
+public class BookPageService {
+
+    /** Ordenaciones soportadas */
+    public static final String SORT_ID = "id";
+    public static final String SORT_RATING = "rating";
+    public static final String SORT_CREATED = "created";
+
+    private static final int DEFAULT_PAGE_SIZE = 20;
+    private static final int MAX_PAGE_SIZE = 100;
+
+    /** Cota superior de la fecha de alta para la primera página */
+    private static final LocalDateTime MAX_CREATED = LocalDateTime.of(9999, 12, 31, 0, 0);
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    /**
+     * Obtiene una página de libros de un género.
+     *
+     * @param genreId ID del género.
+     * @param sort Ordenación: id (por defecto), rating o created.
+     * @param cursor Cursor devuelto en la página anterior (null para la primera).
+     * @param size Tamaño de la página (como máximo 100).
+     * @return Página de libros con el cursor de la siguiente.
+     */
+    public BookPageResponse getBooksByGenre(Long genreId, String sort, String cursor, Integer size) {
+        return getPage(sort, cursor, size, new PageQueries() {
+            public List<BookRepository.BookSummaryView> byId(Long afterId, Pageable page) {
+                return bookRepository.findGenrePageById(genreId, afterId, page);
+            }
+            public List<BookRepository.BookSummaryView> byRating(Double afterRating, Long afterId, Pageable page) {
+                return afterRating != null
+                        ? bookRepository.findGenrePageByRating(genreId, afterRating, afterId, page)
+                        : bookRepository.findGenrePageUnrated(genreId, afterId, page);
+            }
+            public List<BookRepository.BookSummaryView> byCreated(LocalDateTime afterCreated, Long afterId, Pageable page) {
+                return afterCreated != null
+                        ? bookRepository.findGenrePageByCreated(genreId, afterCreated, afterId, page)
+                        : bookRepository.findGenrePageUndated(genreId, afterId, page);
+            }
+        });
+    }
+
+    /**
+     * Obtiene una página de libros de una etiqueta.
+     *
+     * @param tagId ID de la etiqueta.
+     * @param sort Ordenación: id (por defecto), rating o created.
+     * @param cursor Cursor devuelto en la página anterior (null para la primera).
+     * @param size Tamaño de la página (como máximo 100).
+     * @return Página de libros con el cursor de la siguiente.
+     */
+    public BookPageResponse getBooksByTag(Long tagId, String sort, String cursor, Integer size) {
+        return getPage(sort, cursor, size, new PageQueries() {
+            public List<BookRepository.BookSummaryView> byId(Long afterId, Pageable page) {
+                return bookRepository.findTagPageById(tagId, afterId, page);
+            }
+            public List<BookRepository.BookSummaryView> byRating(Double afterRating, Long afterId, Pageable page) {
+                return afterRating != null
+                        ? bookRepository.findTagPageByRating(tagId, afterRating, afterId, page)
+                        : bookRepository.findTagPageUnrated(tagId, afterId, page);
+            }
+            public List<BookRepository.BookSummaryView> byCreated(LocalDateTime afterCreated, Long afterId, Pageable page) {
+                return afterCreated != null
+                        ? bookRepository.findTagPageByCreated(tagId, afterCreated, afterId, page)
+                        : bookRepository.findTagPageUndated(tagId, afterId, page);
+            }
+        });
+    }
+
+    /**
+     * Obtiene los datos de listado de varios libros manteniendo el orden de los IDs.
+     *
+     * @param bookIds IDs de los libros (p. ej. ordenados por relevancia).
+     * @return Libros en el mismo orden, sin los que ya no existan.
+     */
+    public List<BookSummaryResponse> getSummaries(List<Long> bookIds) {
+        if (bookIds.isEmpty()) return new ArrayList<>();
+
+        Map<Long, BookRepository.BookSummaryView> byId = new HashMap<>(bookIds.size() * 2);
+        for (BookRepository.BookSummaryView view : bookRepository.findSummariesByIds(bookIds)) {
+            byId.put(view.getBookId(), view);
+        }
+
+        List<BookSummaryResponse> result = new ArrayList<>(bookIds.size());
+        for (Long id : bookIds) {
+            BookRepository.BookSummaryView view = byId.get(id);
+            if (view != null) result.add(convertToSummary(view));
+        }
+        return result;
+    }
+
+    private BookPageResponse getPage(String sort, String cursor, Integer size, PageQueries queries) {
+        String sortKey = (sort == null || sort.isBlank()) ? SORT_ID : sort;
+        int pageSize = (size == null || size <= 0) ? DEFAULT_PAGE_SIZE : Math.min(size, MAX_PAGE_SIZE);
+        // Se pide una fila de más para saber si hay página siguiente
+        Pageable page = PageRequest.of(0, pageSize + 1);
+
+        String[] position = cursor != null && !cursor.isBlank() ? decodeCursor(cursor, sortKey) : null;
+        List<BookRepository.BookSummaryView> rows;
+        try {
+            switch (sortKey) {
+                case SORT_ID -> rows = queries.byId(
+                        position != null ? Long.parseLong(position[2]) : 0L, page);
+                // Un valor vacío en el cursor indica que la página anterior acabó en los libros
+                // sin valoración o sin fecha
+                case SORT_RATING -> rows = queries.byRating(
+                        position == null ? Double.valueOf(Double.MAX_VALUE)
+                                : position[1].isEmpty() ? null : Double.valueOf(position[1]),
+                        position != null ? Long.parseLong(position[2]) : Long.MAX_VALUE, page);
+                case SORT_CREATED -> rows = queries.byCreated(
+                        position == null ? MAX_CREATED
+                                : position[1].isEmpty() ? null : LocalDateTime.parse(position[1]),
+                        position != null ? Long.parseLong(position[2]) : Long.MAX_VALUE, page);
+                default -> throw new RuntimeException("Ordenación no soportada: " + sortKey);
+            }
+        } catch (NumberFormatException | DateTimeParseException e) {
+            throw new RuntimeException("Cursor no válido");
+        }
+
+        boolean hasMore = rows.size() > pageSize;
+        if (hasMore) {
+            rows = rows.subList(0, pageSize);
+        }
+
+        String nextCursor = hasMore ? encodeCursor(sortKey, rows.get(rows.size() - 1)) : null;
+
+        return BookPageResponse.builder()
+                .books(rows.stream()
+                        .map(this::convertToSummary)
+                        .collect(Collectors.toList()))
+                .nextCursor(nextCursor)
+                .hasMore(hasMore)
+                .build();
+    }
+
+    /**
+     * Codifica la posición de la última fila: "ordenación|valor|bookId" en Base64 URL-safe
+     * (valor vacío si la fila no tiene valoración o fecha).
+     */
+    private String encodeCursor(String sortKey, BookRepository.BookSummaryView last) {
+        String value = switch (sortKey) {
+            case SORT_RATING -> last.getAverageRatingApi() != null ? last.getAverageRatingApi().toString() : "";
+            case SORT_CREATED -> last.getCreatedAt() != null ? last.getCreatedAt().toString() : "";
+            default -> "";
+        };
+        String raw = sortKey + "|" + value + "|" + last.getBookId();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decodifica un cursor y comprueba que corresponde a la ordenación pedida.
+     *
+     * @return Partes del cursor: ordenación, valor y bookId.
+     */
+    private String[] decodeCursor(String cursor, String sortKey) {
+        String raw;
+        try {
+            raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new RuntimeException("Cursor no válido");
+        }
+        String[] parts = raw.split("\\|", -1);
+        if (parts.length != 3 || !parts[0].equals(sortKey)) {
+            throw new RuntimeException("Cursor no válido");
+        }
+        return parts;
+    }
+
+    private BookSummaryResponse convertToSummary(BookRepository.BookSummaryView view) {
+        return BookSummaryResponse.builder()
+                .bookId(view.getBookId())
+                .googleBookId(view.getGoogleBookId())
+                .title(view.getTitle())
+                .authors(view.getAuthors())
+                .coverUrl(view.getCoverUrl())
+                .publishedDate(view.getPublishedDate())
+                .pageCount(view.getPageCount())
+                .isbn(view.getIsbn())
+                .averageRatingApi(view.getAverageRatingApi())
+                .summary(view.getSummary())
+                .build();
+    }
+
+    /**
+     * Consultas de página de un listado concreto (género o etiqueta) para cada ordenación.
+     */
+    private interface PageQueries {
+        List<BookRepository.BookSummaryView> byId(Long afterId, Pageable page);
+
+        List<BookRepository.BookSummaryView> byRating(Double afterRating, Long afterId, Pageable page);
+
+        List<BookRepository.BookSummaryView> byCreated(LocalDateTime afterCreated, Long afterId, Pageable page);
+    }
+}
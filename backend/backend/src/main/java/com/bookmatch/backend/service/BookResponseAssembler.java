@@ -0,0 +1,189 @@
+package com.bookmatch.backend.service;
+
+import com.bookmatch.backend.dto.BookResponse;
+import com.bookmatch.backend.entity.Book;
+import com.bookmatch.backend.entity.BookReviewStats;
+import com.bookmatch.backend.repository.BookRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Construye los DTO BookResponse de una lista de libros de una vez.
+ * Los géneros, las etiquetas y las estadísticas de reseñas de todos los libros se cargan con
+ * una consulta IN cada uno, en lugar de inicializar las colecciones lazy de cada entidad,
+ * así que convertir una lista de 20 libros cuesta siempre el mismo número de consultas.
+ */
+@Component
+public class BookResponseAssembler {
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private BookReviewStatsService bookReviewStatsService;
+
+    @Autowired
+    private BookDescriptionService bookDescriptionService;
+
+    /**
+     * Convierte una lista de entidades Book (sin tocar sus colecciones lazy).
+     * Solo incluye el resumen de la descripción; la descripción completa es de la ficha de detalle.
+     *
+     * @param books Libros a convertir.
+     * @return DTOs en el mismo orden.
+     */
+    public List<BookResponse> toResponses(List<Book> books) {
+        Links links = loadLinks(books.stream().map(Book::getBookId).toList());
+
+        List<BookResponse> responses = new ArrayList<>(books.size());
+        for (Book book : books) {
+            responses.add(links.complete(BookResponse.builder()
+                    .bookId(book.getBookId())
+                    .googleBookId(book.getGoogleBookId())
+                    .title(book.getTitle())
+                    .authors(book.getAuthors())
+                    .summary(book.getSummary())
+                    .isbn(book.getIsbn())
+                    .pageCount(book.getPageCount())
+                    .publishedDate(book.getPublishedDate())
+                    .coverUrl(book.getCoverUrl())
+                    .averageRatingApi(book.getAverageRatingApi()), book.getBookId()));
+        }
+        return responses;
+    }
+
+    /**
+     * Convierte un único libro para su ficha de detalle, con la descripción completa.
+     */
+    public BookResponse toResponse(Book book) {
+        BookResponse response = toResponses(List.of(book)).get(0);
+        response.setDescription(bookDescriptionService.getDescription(book.getBookId()));
+        return response;
+    }
+
+    /**
+     * Convierte un libro de Google Books que todavía no está en el catálogo
+     * (sin géneros, etiquetas ni reseñas).
+     */
+    public BookResponse fromRemote(Book book) {
+        return BookResponse.builder()
+                .googleBookId(book.getGoogleBookId())
+                .title(book.getTitle())
+                .authors(book.getAuthors())
+                .description(book.getDescription())
+                .summary(book.getSummary())
+                .isbn(book.getIsbn())
+                .pageCount(book.getPageCount())
+                .publishedDate(book.getPublishedDate())
+                .coverUrl(book.getCoverUrl())
+                .averageRatingApi(book.getAverageRatingApi())
+                .genres(List.of())
+                .tags(List.of())
+                .build();
+    }
+
+    /**
+     * Convierte filas de listado (proyecciones, solo con el resumen de la descripción).
+     *
+     * @param views Filas a convertir.
+     * @return DTOs en el mismo orden.
+     */
+    public List<BookResponse> fromSummaries(List<BookRepository.BookSummaryView> views) {
+        Links links = loadLinks(views.stream().map(BookRepository.BookSummaryView::getBookId).toList());
+
+        List<BookResponse> responses = new ArrayList<>(views.size());
+        for (BookRepository.BookSummaryView view : views) {
+            responses.add(links.complete(BookResponse.builder()
+                    .bookId(view.getBookId())
+                    .googleBookId(view.getGoogleBookId())
+                    .title(view.getTitle())
+                    .authors(view.getAuthors())
+                    .publishedDate(view.getPublishedDate())
+                    .pageCount(view.getPageCount())
+                    .isbn(view.getIsbn())
+                    .coverUrl(view.getCoverUrl())
+                    .averageRatingApi(view.getAverageRatingApi())
+                    .summary(view.getSummary()), view.getBookId()));
+        }
+        return responses;
+    }
+
+    /**
+     * Carga los libros por ID y los convierte desde sus filas de listado.
+     *
+     * @param bookIds IDs de los libros, en el orden deseado.
+     * @return Mapa bookId -> DTO en el mismo orden (sin los IDs que no existan).
+     */
+    public Map<Long, BookResponse> byIds(Collection<Long> bookIds) {
+        Map<Long, BookResponse> result = new LinkedHashMap<>();
+        if (bookIds.isEmpty()) return result;
+
+        Set<Long> ids = new LinkedHashSet<>(bookIds);
+        Map<Long, BookRepository.BookSummaryView> views = new HashMap<>(ids.size() * 2);
+        for (BookRepository.BookSummaryView view : bookRepository.findSummariesByIds(ids)) {
+            views.put(view.getBookId(), view);
+        }
+
+        List<BookRepository.BookSummaryView> ordered = new ArrayList<>(views.size());
+        for (Long id : ids) {
+            BookRepository.BookSummaryView view = views.get(id);
+            if (view != null) ordered.add(view);
+        }
+        for (BookResponse response : fromSummaries(ordered)) {
+            result.put(response.getBookId(), response);
+        }
+        return result;
+    }
+
+    /**
+     * Carga géneros, etiquetas y estadísticas de un conjunto de libros (una consulta IN cada uno).
+     */
+    private Links loadLinks(List<Long> bookIds) {
+        Links links = new Links(bookIds.size());
+        if (bookIds.isEmpty()) return links;
+
+        for (BookRepository.BookLinkView link : bookRepository.findGenreLinksByBookIds(bookIds)) {
+            links.genres.computeIfAbsent(link.getBookId(), id -> new ArrayList<>(4)).add(link.getName());
+        }
+        for (BookRepository.BookLinkView link : bookRepository.findTagLinksByBookIds(bookIds)) {
+            links.tags.computeIfAbsent(link.getBookId(), id -> new ArrayList<>(4)).add(link.getName());
+        }
+        links.stats.putAll(bookReviewStatsService.getStatsForBooks(bookIds));
+        return links;
+    }
+
+    /**
+     * Géneros, etiquetas y estadísticas por bookId.
+     */
+    private static final class Links {
+        final Map<Long, List<String>> genres;
+        final Map<Long, List<String>> tags;
+        final Map<Long, BookReviewStats> stats;
+
+        Links(int expectedBooks) {
+            int capacity = Math.max(16, expectedBooks * 2);
+            this.genres = new HashMap<>(capacity);
+            this.tags = new HashMap<>(capacity);
+            this.stats = new HashMap<>(capacity);
+        }
+
+        BookResponse complete(BookResponse.BookResponseBuilder builder, Long bookId) {
+            BookReviewStats bookStats = stats.get(bookId);
+            return builder
+                    .genres(genres.getOrDefault(bookId, List.of()))
+                    .tags(tags.getOrDefault(bookId, List.of()))
+                    .communityRating(bookStats != null ? bookStats.getAverageRating() : null)
+                    .totalReviews(bookStats != null ? bookStats.getReviewCount() : 0L)
+                    .build();
+        }
+    }
+}
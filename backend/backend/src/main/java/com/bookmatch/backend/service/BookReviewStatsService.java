@@ -0,0 +1,108 @@
+package com.bookmatch.backend.service;
+
+import com.bookmatch.backend.entity.BookReviewStats;
+import com.bookmatch.backend.repository.BookReviewStatsRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Servicio que mantiene el agregado de reseñas por libro (book_review_stats).
+ * Se actualiza de forma incremental al guardar reseñas y se reconstruye
+ * completamente mediante un proceso de backfill programado.
+ */
+@Service
+public class BookReviewStatsService {
+
+    private static final Logger logger = LoggerFactory.getLogger(BookReviewStatsService.class);
+
+    /** Tamaño de la ventana de reseñas "recientes" usada por el scoring de tendencias */
+    public static final int RECENT_WINDOW_DAYS = 30;
+
+    @Autowired
+    private BookReviewStatsRepository bookReviewStatsRepository;
+
+    /**
+     * Actualiza el agregado tras guardar una reseña.
+     *
+     * @param bookId ID del libro reseñado.
+     * @param previousRating Calificación anterior si la reseña ya existía, o null si es nueva.
+     * @param newRating Calificación guardada.
+     * @param reviewedAt Fecha de creación de la reseña.
+     */
+    @Transactional
+    public void recordReview(Long bookId, Integer previousRating, int newRating, LocalDateTime reviewedAt) {
+        if (previousRating == null) {
+            bookReviewStatsRepository.registerNewReview(bookId, newRating,
+                    reviewedAt != null ? reviewedAt : LocalDateTime.now());
+        } else if (previousRating != newRating) {
+            bookReviewStatsRepository.adjustRatingSum(bookId, newRating - previousRating);
+        }
+    }
+
+    /**
+     * Obtiene el agregado de varios libros con una sola consulta.
+     *
+     * @param bookIds IDs de los libros.
+     * @return Mapa bookId -> agregado. Los libros sin reseñas no aparecen en el mapa.
+     */
+    @Transactional(readOnly = true)
+    public Map<Long, BookReviewStats> getStatsForBooks(Collection<Long> bookIds) {
+        Map<Long, BookReviewStats> statsByBook = new HashMap<>();
+        if (bookIds == null || bookIds.isEmpty()) return statsByBook;
+
+        for (BookReviewStats stats : bookReviewStatsRepository.findAllById(bookIds)) {
+            statsByBook.put(stats.getBookId(), stats);
+        }
+        return statsByBook;
+    }
+
+    /**
+     * Lanza el backfill al arrancar si la tabla de agregados está vacía.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void backfillOnStartup() {
+        if (bookReviewStatsRepository.count() == 0) {
+            backfill();
+        }
+    }
+
+    /**
+     * Reconstruye por completo book_review_stats a partir de la tabla de reseñas.
+     * Se ejecuta de forma programada (por defecto cada noche) y corrige también
+     * la ventana móvil de reseñas recientes. Las filas se actualizan en el sitio con un
+     * upsert, sin vaciar la tabla, para no pisar las reseñas que se registran a la vez.
+     */
+    @Scheduled(cron = "${app.review-stats.backfill-cron:0 0 3 * * *}")
+    @Transactional
+    public void backfill() {
+        LocalDateTime since = LocalDateTime.now().minusDays(RECENT_WINDOW_DAYS);
+        bookReviewStatsRepository.rebuildFromReviews(since);
+        int removed = bookReviewStatsRepository.deleteWithoutReviews();
+
+        logger.info("Backfill de book_review_stats completado: {} libros ({} sin reseñas eliminados)",
+                bookReviewStatsRepository.count(), removed);
+    }
+
+    /**
+     * Recalcula cada hora el contador de reseñas recientes para que la ventana
+     * de 30 días no se quede desfasada entre dos backfills.
+     */
+    @Scheduled(cron = "${app.review-stats.recent-cron:0 15 * * * *}")
+    @Transactional
+    public void refreshRecentWindow() {
+        bookReviewStatsRepository.resetRecentCounts();
+        bookReviewStatsRepository.refreshRecentCounts(LocalDateTime.now().minusDays(RECENT_WINDOW_DAYS));
+    }
+}
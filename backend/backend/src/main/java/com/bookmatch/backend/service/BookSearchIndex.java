@@ -0,0 +1,431 @@
+package com.bookmatch.backend.service;
+
+import com.bookmatch.backend.event.BookSavedEvent;
+import com.bookmatch.backend.event.CatalogImportedEvent;
+import com.bookmatch.backend.repository.BookRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.Getter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Índice invertido en memoria para la búsqueda de texto completo en el catálogo local.
+ * Indexa título, autores, descripción e ISBN de cada libro (con más peso en título, autores e ISBN)
+ * y ordena los resultados con BM25. El último término de la consulta se puede buscar como prefijo,
+ * para autocompletar mientras se escribe.
+ * Los libros nuevos se añaden al guardarse y, periódicamente, se recogen los insertados fuera de
+ * la aplicación (p. ej. por la importación masiva). El índice se guarda en disco para no tener que
+ * reconstruirlo entero al arrancar: solo se indexan los libros posteriores al último guardado.
+ */
+@Component
+public class BookSearchIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(BookSearchIndex.class);
+
+    /** Cabecera y versión del fichero del índice */
+    private static final int FILE_MAGIC = 0x424D5349;
+    private static final int FILE_VERSION = 1;
+
+    /** Pesos de cada campo en la frecuencia de un término */
+    private static final int TITLE_WEIGHT = 3;
+    private static final int AUTHORS_WEIGHT = 2;
+    private static final int ISBN_WEIGHT = 3;
+    private static final int DESCRIPTION_WEIGHT = 1;
+
+    /** Parámetros de BM25 */
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    /** Términos que se prueban como máximo al expandir un prefijo */
+    private static final int MAX_PREFIX_EXPANSIONS = 50;
+
+    /** Resultados que se ordenan como máximo (posición más profunda que se puede paginar) */
+    static final int MAX_RESULTS = 1000;
+
+    private static final int SYNC_BATCH_SIZE = 1000;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Value("${app.search-index.file:data/search-index.bin.gz}")
+    private String indexFile;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /** Término -> lista de libros que lo contienen (ordenada para poder buscar prefijos) */
+    private final TreeMap<String, Postings> terms = new TreeMap<>();
+
+    /** Documentos: posición interna -> bookId y longitud (ponderada) */
+    private long[] docBookIds = new long[1024];
+    private int[] docLengths = new int[1024];
+    private int docCount;
+    private long totalLength;
+    private final Map<Long, Integer> docByBookId = new HashMap<>();
+
+    /** Mayor bookId leído de la base de datos en las sincronizaciones */
+    private long syncedUpTo;
+
+    /** Hay cambios sin guardar en disco */
+    private volatile boolean dirty;
+
+    /**
+     * Carga el índice guardado en disco (si existe) y añade los libros posteriores.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialize() {
+        Path file = Paths.get(indexFile);
+        if (Files.exists(file)) {
+            try {
+                load(file);
+                logger.info("Índice de búsqueda cargado de {}: {} libros, {} términos", file, docCount, terms.size());
+            } catch (IOException | RuntimeException e) {
+                logger.warn("No se pudo cargar el índice de búsqueda ({}), se reconstruye entero", e.getMessage());
+                clear();
+            }
+        }
+        sync();
+    }
+
+    /**
+     * Indexa los libros de la base de datos posteriores a la última sincronización.
+     */
+    @Scheduled(initialDelayString = "${app.search-index.sync-interval-ms:60000}",
+            fixedDelayString = "${app.search-index.sync-interval-ms:60000}")
+    public synchronized void sync() {
+        int added = 0;
+        while (true) {
+            List<BookRepository.SearchDocumentView> page = bookRepository.findSearchDocumentsAfter(
+                    syncedUpTo, PageRequest.of(0, SYNC_BATCH_SIZE));
+            if (page.isEmpty()) break;
+
+            lock.writeLock().lock();
+            try {
+                for (BookRepository.SearchDocumentView document : page) {
+                    if (addDocument(document)) added++;
+                }
+                syncedUpTo = page.get(page.size() - 1).getBookId();
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+        if (added > 0) {
+            dirty = true;
+            logger.info("Índice de búsqueda sincronizado: {} libros nuevos ({} en total)", added, docCount);
+        }
+    }
+
+    /**
+     * Indexa los libros de una importación masiva.
+     */
+    @EventListener
+    public void onCatalogImported(CatalogImportedEvent event) {
+        sync();
+    }
+
+    /**
+     * Añade al índice un libro recién guardado.
+     */
+    @EventListener
+    public void onBookSaved(BookSavedEvent event) {
+        bookRepository.findSearchDocument(event.getBookId()).ifPresent(document -> {
+            lock.writeLock().lock();
+            try {
+                if (addDocument(document)) dirty = true;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    /**
+     * Busca libros por texto.
+     *
+     * @param query Texto de búsqueda.
+     * @param prefix Si el último término se busca también como prefijo.
+     * @param limit Número máximo de resultados (como mucho {@link #MAX_RESULTS}).
+     * @return IDs de los libros ordenados por relevancia, sus puntuaciones y número total de coincidencias.
+     */
+    public SearchResult search(String query, boolean prefix, int limit) {
+        // Un ISBN con guiones se buscaría como varios números sueltos: se normaliza como al indexarlo
+        List<String> queryTerms = looksLikeIsbn(query) ? List.of(normalizeIsbn(query)) : TextAnalyzer.tokenize(query);
+        if (queryTerms.isEmpty() || limit <= 0) return new SearchResult(new long[0], new double[0], 0);
+
+        lock.readLock().lock();
+        try {
+            if (docCount == 0) return new SearchResult(new long[0], new double[0], 0);
+            double averageLength = (double) totalLength / docCount;
+
+            // Puntuación acumulada por documento (posición interna)
+            Map<Integer, Double> scores = new HashMap<>();
+            for (int i = 0; i < queryTerms.size(); i++) {
+                String term = queryTerms.get(i);
+                boolean expand = prefix && i == queryTerms.size() - 1;
+
+                // Con prefijo, cada documento cuenta solo con su mejor expansión del término
+                Map<Integer, Double> termScores = new HashMap<>();
+                for (Postings postings : matchingPostings(term, expand)) {
+                    double idf = Math.log(1 + (docCount - postings.size + 0.5) / (postings.size + 0.5));
+                    for (int p = 0; p < postings.size; p++) {
+                        int doc = postings.docs[p];
+                        int frequency = postings.frequencies[p];
+                        double norm = K1 * (1 - B + B * docLengths[doc] / averageLength);
+                        double score = idf * frequency * (K1 + 1) / (frequency + norm);
+                        termScores.merge(doc, score, Math::max);
+                    }
+                }
+                termScores.forEach((doc, score) -> scores.merge(doc, score, Double::sum));
+            }
+
+            TopKHeap top = new TopKHeap(Math.min(limit, MAX_RESULTS));
+            scores.forEach((doc, score) -> top.offer(docBookIds[doc], score));
+            return new SearchResult(top.sortedIds(), top.sortedScores(), scores.size());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Guarda el índice en disco si ha cambiado desde el último guardado.
+     */
+    @Scheduled(initialDelayString = "${app.search-index.persist-interval-ms:300000}",
+            fixedDelayString = "${app.search-index.persist-interval-ms:300000}")
+    @PreDestroy
+    public void persist() {
+        if (!dirty) return;
+        dirty = false;
+        try {
+            save(Paths.get(indexFile));
+        } catch (IOException e) {
+            dirty = true;
+            logger.error("No se pudo guardar el índice de búsqueda en {}: {}", indexFile, e.getMessage());
+        }
+    }
+
+    /**
+     * Si el texto es un ISBN-10 o ISBN-13, con o sin guiones o espacios.
+     */
+    private static boolean looksLikeIsbn(String text) {
+        if (text == null || !text.matches("[0-9Xx\\s-]+")) return false;
+        int length = normalizeIsbn(text).length();
+        return length == 10 || length == 13;
+    }
+
+    /**
+     * ISBN sin guiones ni espacios y en minúsculas, como un único término.
+     */
+    private static String normalizeIsbn(String isbn) {
+        return isbn.replaceAll("[^0-9Xx]", "").toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Postings de un término exacto o, si se pide, de todos los términos que empiezan por él.
+     * Debe llamarse con el bloqueo de lectura.
+     */
+    private List<Postings> matchingPostings(String term, boolean expand) {
+        if (!expand) {
+            Postings postings = terms.get(term);
+            return postings != null ? List.of(postings) : List.of();
+        }
+        SortedMap<String, Postings> range = terms.subMap(term, term + Character.MAX_VALUE);
+        return range.values().stream().limit(MAX_PREFIX_EXPANSIONS).toList();
+    }
+
+    /**
+     * Añade un libro al índice. Debe llamarse con el bloqueo de escritura.
+     *
+     * @return false si el libro ya estaba indexado.
+     */
+    private boolean addDocument(BookRepository.SearchDocumentView document) {
+        if (docByBookId.containsKey(document.getBookId())) return false;
+
+        Map<String, Integer> frequencies = new HashMap<>();
+        int length = 0;
+        length += addTerms(frequencies, TextAnalyzer.tokenize(document.getTitle()), TITLE_WEIGHT);
+        length += addTerms(frequencies, TextAnalyzer.tokenize(document.getAuthors()), AUTHORS_WEIGHT);
+        length += addTerms(frequencies, TextAnalyzer.tokenize(BookDescriptionService.decompress(document.getDescriptionData())), DESCRIPTION_WEIGHT);
+        if (document.getIsbn() != null) {
+            // El ISBN se indexa también sin guiones, como un único término
+            String isbn = normalizeIsbn(document.getIsbn());
+            if (!isbn.isEmpty()) length += addTerms(frequencies, List.of(isbn), ISBN_WEIGHT);
+        }
+
+        int doc = docCount++;
+        if (doc == docBookIds.length) {
+            docBookIds = Arrays.copyOf(docBookIds, doc * 2);
+            docLengths = Arrays.copyOf(docLengths, doc * 2);
+        }
+        docBookIds[doc] = document.getBookId();
+        docLengths[doc] = length;
+        totalLength += length;
+        docByBookId.put(document.getBookId(), doc);
+
+        frequencies.forEach((term, frequency) ->
+                terms.computeIfAbsent(term, t -> new Postings()).add(doc, frequency));
+        return true;
+    }
+
+    private int addTerms(Map<String, Integer> frequencies, List<String> tokens, int weight) {
+        for (String token : tokens) {
+            frequencies.merge(token, weight, Integer::sum);
+        }
+        return tokens.size() * weight;
+    }
+
+    private void clear() {
+        lock.writeLock().lock();
+        try {
+            terms.clear();
+            docByBookId.clear();
+            docBookIds = new long[1024];
+            docLengths = new int[1024];
+            docCount = 0;
+            totalLength = 0;
+            syncedUpTo = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Escribe el índice comprimido en un temporal y lo renombra, para no dejar nunca un fichero a medias.
+     */
+    private void save(Path file) throws IOException {
+        Path tmp = Paths.get(file + ".tmp");
+        if (file.toAbsolutePath().getParent() != null) {
+            Files.createDirectories(file.toAbsolutePath().getParent());
+        }
+
+        lock.readLock().lock();
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                new GZIPOutputStream(Files.newOutputStream(tmp), 1 << 16), 1 << 16))) {
+            out.writeInt(FILE_MAGIC);
+            out.writeInt(FILE_VERSION);
+            out.writeLong(syncedUpTo);
+            out.writeInt(docCount);
+            for (int doc = 0; doc < docCount; doc++) {
+                out.writeLong(docBookIds[doc]);
+                out.writeInt(docLengths[doc]);
+            }
+            out.writeInt(terms.size());
+            for (Map.Entry<String, Postings> entry : terms.entrySet()) {
+                Postings postings = entry.getValue();
+                out.writeUTF(entry.getKey());
+                out.writeInt(postings.size);
+                for (int p = 0; p < postings.size; p++) {
+                    out.writeInt(postings.docs[p]);
+                    out.writeInt(postings.frequencies[p]);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        logger.info("Índice de búsqueda guardado en {} ({} libros)", file, docCount);
+    }
+
+    private void load(Path file) throws IOException {
+        lock.writeLock().lock();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new GZIPInputStream(Files.newInputStream(file), 1 << 16), 1 << 16))) {
+            if (in.readInt() != FILE_MAGIC || in.readInt() != FILE_VERSION) {
+                throw new IOException("formato de fichero no reconocido");
+            }
+            syncedUpTo = in.readLong();
+            docCount = in.readInt();
+            docBookIds = new long[Math.max(1024, docCount)];
+            docLengths = new int[Math.max(1024, docCount)];
+            totalLength = 0;
+            for (int doc = 0; doc < docCount; doc++) {
+                docBookIds[doc] = in.readLong();
+                docLengths[doc] = in.readInt();
+                totalLength += docLengths[doc];
+                docByBookId.put(docBookIds[doc], doc);
+            }
+            int termCount = in.readInt();
+            for (int t = 0; t < termCount; t++) {
+                String term = in.readUTF();
+                int size = in.readInt();
+                Postings postings = new Postings(size);
+                for (int p = 0; p < size; p++) {
+                    postings.add(in.readInt(), in.readInt());
+                }
+                terms.put(term, postings);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Resultado de una búsqueda: IDs ordenados por relevancia y total de libros que coinciden.
+     */
+    @Getter
+    public static final class SearchResult {
+        private final long[] bookIds;
+        /** Puntuación BM25 de cada libro (en el mismo orden que bookIds) */
+        private final double[] scores;
+        private final long totalHits;
+
+        SearchResult(long[] bookIds, double[] scores, long totalHits) {
+            this.bookIds = bookIds;
+            this.scores = scores;
+            this.totalHits = totalHits;
+        }
+    }
+
+    /**
+     * Lista de documentos de un término con su frecuencia ponderada, en arrays primitivos.
+     */
+    private static class Postings {
+        int[] docs;
+        int[] frequencies;
+        int size;
+
+        Postings() {
+            this(4);
+        }
+
+        Postings(int capacity) {
+            docs = new int[Math.max(1, capacity)];
+            frequencies = new int[Math.max(1, capacity)];
+        }
+
+        void add(int doc, int frequency) {
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+                frequencies = Arrays.copyOf(frequencies, size * 2);
+            }
+            docs[size] = doc;
+            frequencies[size] = frequency;
+            size++;
+        }
+    }
+}
@@ -2,17 +2,28 @@ package com.bookmatch.backend.service;
 
 import com.bookmatch.backend.dto.GoogleBooksResponse;
 import com.bookmatch.backend.entity.Book;
+import com.bookmatch.backend.event.BookSavedEvent;
 import com.bookmatch.backend.repository.BookRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
-import org.springframework.web.client.ResourceAccessException;
-import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.net.http.HttpTimeoutException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
 
 @Service
 public class BookService {
@@ -23,56 +34,95 @@ public class BookService {
     private BookRepository bookRepository;
 
     @Autowired
-    private RestTemplate restTemplate; // Inyectamos el "teléfono"
+    private GoogleBooksClient googleBooksClient;
 
-    // URL base de la API de Google
-    private final String GOOGLE_API_URL = "https://www.googleapis.com/books/v1/volumes?q=";
+    @Autowired
+    private GoogleSearchCache googleSearchCache;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private RandomSampler randomSampler;
+
+    @Autowired
+    private BookDescriptionService bookDescriptionService;
+
+    /** Transacciones independientes de la petición que llama (inserción y relectura de libros) */
+    private final TransactionTemplate newTransaction;
+
+    /** Descargas de Google en curso por googleBookId (single-flight) */
+    private final Map<String, CompletableFuture<Long>> inFlightFetches = new ConcurrentHashMap<>();
+
+    public BookService(PlatformTransactionManager transactionManager) {
+        this.newTransaction = new TransactionTemplate(transactionManager);
+        this.newTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
 
     /**
-     * Busca libros en Google Books con manejo de errores y timeouts.
+     * Busca libros en Google Books con manejo de errores y timeouts, sin bloquear el hilo
+     * que llama (el controlador devuelve directamente el future).
+     * El future nunca se completa con error: si falla la llamada devuelve una lista vacía.
+     *
+     * @param query Término de búsqueda
+     * @return Future con los libros encontrados
+     */
+    public CompletableFuture<List<Book>> searchBooksInGoogleAsync(String query) {
+        return searchBooksInGoogleOrFail(query).exceptionally(e -> new ArrayList<>());
+    }
+
+    /**
+     * Igual que {@link #searchBooksInGoogleAsync(String)}, pero si la llamada falla el future
+     * se completa con el error (ya registrado en el log), para que quien llama pueda
+     * distinguir un fallo de una búsqueda sin resultados.
+     *
      * @param query Término de búsqueda
-     * @return Lista de libros encontrados o lista vacía si hay error
+     * @return Future con los libros encontrados
      */
-    public List<Book> searchBooksInGoogle(String query) {
+    public CompletableFuture<List<Book>> searchBooksInGoogleOrFail(String query) {
         if (query == null || query.trim().isEmpty()) {
             logger.warn("Búsqueda realizada con query vacío");
-            return new ArrayList<>();
+            return CompletableFuture.completedFuture(new ArrayList<>());
         }
 
-        // 1. Construimos la URL (ej: ...volumes?q=harry+potter)
-        // Reemplazamos espacios por "+" porque las URLs no aceptan espacios
-        String url = GOOGLE_API_URL + query.replace(" ", "+");
-        logger.info("Buscando libros con URL: {}", url);
-
-        try {
-            // 2. Hacemos la llamada a Internet con timeout configurado
-            GoogleBooksResponse response = restTemplate.getForObject(url, GoogleBooksResponse.class);
+        // Las búsquedas repetidas se sirven desde la caché; solo los fallos de caché llegan a Google
+        return googleSearchCache.get(query, this::fetchSearchHits)
+                .thenApply(hits -> hits.stream()
+                        .map(GoogleSearchCache.SearchHit::toBook)
+                        .collect(Collectors.toList()))
+                .whenComplete((books, e) -> {
+                    if (e == null) return;
+                    Throwable cause = unwrap(e);
+                    if (cause instanceof TimeoutException || cause instanceof HttpTimeoutException) {
+                        logger.error("Timeout al buscar en Google Books: {}", cause.getMessage());
+                    } else {
+                        logger.error("Error al buscar en Google Books: {}", cause.getMessage(), cause);
+                    }
+                });
+    }
 
-            List<Book> resultBooks = new ArrayList<>();
+    /**
+     * Llama a Google Books y convierte los resultados en objetos compactos para la caché.
+     * Si la llamada falla, el future se completa con error y no se cachea nada.
+     */
+    private CompletableFuture<List<GoogleSearchCache.SearchHit>> fetchSearchHits(String query) {
+        logger.info("Buscando libros en Google Books: {}", query);
 
-            // 3. Convertimos los datos de Google (DTO) a nuestros Libros (Entity)
-            if (response != null && response.getItems() != null) {
-                logger.info("Se encontraron {} libros para la búsqueda: {}", response.getItems().size(), query);
-                for (GoogleBooksResponse.Item item : response.getItems()) {
-                    Book book = convertToBookEntity(item);
-                    resultBooks.add(book);
-                }
-            } else {
-                logger.info("No se encontraron libros para la búsqueda: {}", query);
-            }
+        return googleBooksClient.searchVolumes(query)
+                .thenApply(response -> {
+                    List<GoogleSearchCache.SearchHit> hits = new ArrayList<>();
 
-            return resultBooks;
-
-        } catch (ResourceAccessException e) {
-            logger.error("Timeout o error de conexión al buscar en Google Books: {}", e.getMessage());
-            return new ArrayList<>();
-        } catch (HttpClientErrorException e) {
-            logger.error("Error HTTP al buscar en Google Books: {} - {}", e.getStatusCode(), e.getMessage());
-            return new ArrayList<>();
-        } catch (Exception e) {
-            logger.error("Error inesperado al buscar en Google Books: {}", e.getMessage(), e);
-            return new ArrayList<>();
-        }
+                    // Convertimos los datos de Google (DTO) a nuestros Libros (Entity)
+                    if (response.getItems() != null) {
+                        logger.info("Se encontraron {} libros para la búsqueda: {}", response.getItems().size(), query);
+                        for (GoogleBooksResponse.Item item : response.getItems()) {
+                            hits.add(GoogleSearchCache.SearchHit.from(convertToBookEntity(item)));
+                        }
+                    } else {
+                        logger.info("No se encontraron libros para la búsqueda: {}", query);
+                    }
+                    return hits;
+                });
     }
 
     public Book getBookByGoogleId(String googleId) {
@@ -96,11 +146,11 @@ public class BookService {
      * @return Lista de libros aleatorios.
      */
     public List<Book> findRandomBooks(int limit) {
-        return bookRepository.findRandomBooks(limit);
+        return randomSampler.sampleBooks(limit);
     }
 
-    // Método auxiliar para convertir de DTO a Entidad
-    private Book convertToBookEntity(GoogleBooksResponse.Item item) {
+    // Método auxiliar para convertir de DTO a Entidad (también lo usa CatalogImporter)
+    Book convertToBookEntity(GoogleBooksResponse.Item item) {
         GoogleBooksResponse.VolumeInfo info = item.getVolumeInfo();
 
         // Manejo seguro de nulos (por si Google no manda autor o foto)
@@ -112,7 +162,8 @@ public class BookService {
                 .googleBookId(item.getId())
                 .title(info.getTitle())
                 .authors(authors)
-                .description(info.getDescription()) // A veces viene muy largo, cuidado
+                .description(info.getDescription()) // A veces viene muy largo: se guarda aparte y comprimida
+                .summary(BookDescriptionService.summarize(info.getDescription()))
                 .publishedDate(info.getPublishedDate())
                 .pageCount(info.getPageCount())
                 .averageRatingApi(info.getAverageRating())
@@ -120,45 +171,98 @@ public class BookService {
                 .build();
     }
 
-    // URL para buscar un solo libro por ID
-    private final String GOOGLE_API_SINGLE_URL = "https://www.googleapis.com/books/v1/volumes/";
-
     // Método PRINCIPAL: Busca en DB, si no está, va a Google y lo guarda
+    // Si varias peticiones piden a la vez el mismo libro que no está en MySQL, solo la primera
+    // llama a Google y lo inserta; las demás esperan a esa misma operación.
     public Book findOrSaveBookFromGoogle(String googleId) {
         // 1. ¿Lo tenemos ya en MySQL?
-        return bookRepository.findByGoogleBookId(googleId)
-                .orElseGet(() -> fetchAndSaveFromGoogle(googleId));
+        Optional<Book> existing = bookRepository.findByGoogleBookId(googleId);
+        if (existing.isPresent()) {
+            return existing.get();
+        }
+
+        // 2. Si ya hay una descarga en curso para este libro, nos unimos a ella
+        CompletableFuture<Long> created = new CompletableFuture<>();
+        CompletableFuture<Long> inFlight = inFlightFetches.putIfAbsent(googleId, created);
+        if (inFlight == null) {
+            inFlight = created;
+            try {
+                // Puede que otra descarga haya terminado justo entre la consulta y el registro
+                Long savedId = newTransaction.execute(status -> bookRepository.findByGoogleBookId(googleId)
+                        .map(Book::getBookId)
+                        .orElse(null));
+                created.complete(savedId != null ? savedId : fetchAndSaveFromGoogle(googleId));
+            } catch (RuntimeException e) {
+                created.completeExceptionally(e);
+            } finally {
+                inFlightFetches.remove(googleId, created);
+            }
+        }
+
+        // 3. Releemos el libro ya confirmado (cada petición con su propia entidad)
+        Long bookId = inFlight.join();
+        if (bookId == null) {
+            return null;
+        }
+        return newTransaction.execute(status -> bookRepository.findById(bookId).orElse(null));
     }
 
     /**
      * Obtiene un libro de la API de Google Books y lo guarda en base de datos.
      * Método auxiliar privado utilizado por findOrSaveBookFromGoogle.
+     * La inserción se confirma en su propia transacción, para que el libro sea visible
+     * para las peticiones que esperan antes de que termine la petición que lo ha descargado.
      *
      * @param googleId El ID del libro en Google Books.
-     * @return El libro guardado en base de datos o null si no se encuentra.
+     * @return El ID del libro guardado en base de datos o null si no se encuentra.
      */
-    private Book fetchAndSaveFromGoogle(String googleId) {
-        String url = GOOGLE_API_SINGLE_URL + googleId;
-
+    private Long fetchAndSaveFromGoogle(String googleId) {
         try {
             logger.info("Obteniendo libro de Google Books con ID: {}", googleId);
-            // Llamamos a Google pidiendo UN solo libro
-            GoogleBooksResponse.Item item = restTemplate.getForObject(url, GoogleBooksResponse.Item.class);
+            // Llamamos a Google pidiendo UN solo libro. Aquí sí se espera la respuesta: quienes
+            // llaman (guardar reseña, cambiar estantería) necesitan el libro para continuar
+            GoogleBooksResponse.Item item = googleBooksClient.getVolume(googleId).join();
 
             if (item != null) {
                 logger.info("Libro encontrado en Google Books: {}", googleId);
                 Book newBook = convertToBookEntity(item); // Reusamos tu método convertidor existente
-                return bookRepository.save(newBook); // ¡Aquí ocurre la magia de la persistencia!
+                Long savedId = newTransaction.execute(status -> {
+                    Book savedBook = bookRepository.save(newBook); // ¡Aquí ocurre la magia de la persistencia!
+                    bookDescriptionService.saveDescription(savedBook.getBookId(), newBook.getDescription());
+                    return savedBook.getBookId();
+                });
+                // Avisamos a los índices en memoria de que hay un libro nuevo, ya con la
+                // inserción confirmada: un fallo en un índice no deshace el libro guardado
+                try {
+                    eventPublisher.publishEvent(new BookSavedEvent(savedId));
+                } catch (RuntimeException e) {
+                    logger.warn("No se pudieron actualizar los índices con el libro {}: {}", savedId, e.getMessage());
+                }
+                return savedId;
             } else {
                 logger.warn("No se encontró libro en Google Books con ID: {}", googleId);
             }
-        } catch (ResourceAccessException e) {
-            logger.error("Timeout al obtener libro {} de Google Books: {}", googleId, e.getMessage());
-        } catch (HttpClientErrorException e) {
-            logger.error("Error HTTP {} al obtener libro {}: {}", e.getStatusCode(), googleId, e.getMessage());
-        } catch (Exception e) {
-            logger.error("Error inesperado al obtener libro {} de Google Books: {}", googleId, e.getMessage(), e);
+        } catch (DataIntegrityViolationException e) {
+            // Otra instancia lo insertó a la vez (UNIQUE en google_book_id): usamos el suyo
+            logger.info("El libro {} ya había sido insertado por otra petición", googleId);
+            return newTransaction.execute(status -> bookRepository.findByGoogleBookId(googleId)
+                    .map(Book::getBookId)
+                    .orElse(null));
+        } catch (RuntimeException e) {
+            Throwable cause = unwrap(e);
+            if (cause instanceof TimeoutException || cause instanceof HttpTimeoutException) {
+                logger.error("Timeout al obtener libro {} de Google Books: {}", googleId, cause.getMessage());
+            } else {
+                logger.error("Error al obtener libro {} de Google Books: {}", googleId, cause.getMessage(), cause);
+            }
         }
         return null; // O lanzar una excepción personalizada
     }
-}
\ No newline at end of file
+
+    /**
+     * Obtiene la causa real de un error de un CompletableFuture.
+     */
+    private Throwable unwrap(Throwable e) {
+        return (e instanceof CompletionException && e.getCause() != null) ? e.getCause() : e;
+    }
+}
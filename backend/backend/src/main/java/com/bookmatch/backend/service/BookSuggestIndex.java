@@ -0,0 +1,511 @@
+package com.bookmatch.backend.service;
+
+import com.bookmatch.backend.dto.BookSummaryResponse;
+import com.bookmatch.backend.entity.BookReviewStats;
+import com.bookmatch.backend.event.BookSavedEvent;
+import com.bookmatch.backend.event.CatalogImportedEvent;
+import com.bookmatch.backend.event.ReadingStatusChangedEvent;
+import com.bookmatch.backend.event.ReviewSavedEvent;
+import com.bookmatch.backend.repository.BookRepository;
+import com.bookmatch.backend.repository.BookReviewStatsRepository;
+import com.bookmatch.backend.repository.ReadingStatusRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Índice de autocompletado de títulos y autores del catálogo local.
+ * Las claves (el título completo, el título a partir de cada palabra significativa, cada autor y
+ * su apellido) se normalizan y se guardan ordenadas en un único array de caracteres con un array
+ * de posiciones, sin un objeto por clave. Como están ordenadas, todas las claves que empiezan por
+ * un prefijo son un rango contiguo (cada nodo del trie es un rango), que se localiza con búsqueda
+ * binaria. Para los prefijos cortos, que son los que abarcan más claves, los K libros más populares
+ * (por reseñas y por estanterías de usuarios) se calculan al construir el índice, así que la
+ * consulta es una búsqueda en un mapa.
+ * El índice solo guarda el bookId de cada libro (los datos de las sugerencias se piden con una
+ * consulta IN al responder), así que construirlo no carga el catálogo completo en DTOs.
+ * Los libros guardados después de la última construcción se recorren aparte hasta la siguiente
+ * y se mezclan con los del índice por popularidad.
+ */
+@Component
+public class BookSuggestIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(BookSuggestIndex.class);
+
+    /** Número máximo de sugerencias por prefijo */
+    static final int TOP_K = 10;
+
+    /** Longitud máxima de los prefijos con resultados precalculados */
+    private static final int PRECOMPUTED_DEPTH = 4;
+
+    /** Número máximo de claves por título (una por palabra significativa) */
+    private static final int MAX_TITLE_KEYS = 8;
+
+    /** Longitud máxima de una clave */
+    private static final int MAX_KEY_LENGTH = 60;
+
+    /** Peso de cada reseña frente a cada usuario que tiene el libro en su estantería */
+    private static final int REVIEW_WEIGHT = 2;
+
+    private static final int BATCH_SIZE = 5000;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private BookReviewStatsRepository bookReviewStatsRepository;
+
+    @Autowired
+    private ReadingStatusRepository readingStatusRepository;
+
+    @Autowired
+    private BookPageService bookPageService;
+
+    private volatile Snapshot snapshot = Snapshot.EMPTY;
+
+    /** Libros guardados después de la última construcción */
+    private volatile List<OverlayBook> overlay = List.of();
+
+    /** Protege las actualizaciones de overlay (sin esperar a una reconstrucción en curso) */
+    private final Object overlayLock = new Object();
+
+    /**
+     * Construcción inicial al arrancar la aplicación.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialize() {
+        rebuild();
+    }
+
+    /**
+     * Reconstrucción completa periódica (recoge libros nuevos y cambios de popularidad).
+     */
+    @Scheduled(initialDelayString = "${app.suggest.rebuild-interval-ms:600000}",
+            fixedDelayString = "${app.suggest.rebuild-interval-ms:600000}")
+    public synchronized void rebuild() {
+        long start = System.currentTimeMillis();
+
+        // Popularidad: reseñas (con más peso) y usuarios que lo tienen en la estantería
+        Map<Long, Double> popularity = new HashMap<>();
+        for (BookReviewStats stats : bookReviewStatsRepository.findAll()) {
+            if (stats.getReviewCount() == null) continue;
+            popularity.merge(stats.getBookId(), (double) REVIEW_WEIGHT * stats.getReviewCount(), Double::sum);
+        }
+        for (ReadingStatusRepository.BookCountView count : readingStatusRepository.countByBook()) {
+            popularity.merge(count.getBookId(), count.getTotal().doubleValue(), Double::sum);
+        }
+
+        // Solo se leen título y autores; los datos de la sugerencia se piden al responder
+        long[] bookIds = new long[1024];
+        int bookCount = 0;
+        List<KeyEntry> entries = new ArrayList<>();
+        long afterId = 0;
+        while (true) {
+            List<BookRepository.TitleView> page = bookRepository.findTitlesAfter(
+                    afterId, PageRequest.of(0, BATCH_SIZE));
+            if (page.isEmpty()) break;
+
+            for (BookRepository.TitleView view : page) {
+                if (bookCount == bookIds.length) bookIds = Arrays.copyOf(bookIds, bookCount * 2);
+                int doc = bookCount++;
+                bookIds[doc] = view.getBookId();
+                for (String key : keysFor(view.getTitle(), view.getAuthors())) {
+                    entries.add(new KeyEntry(key, doc));
+                }
+            }
+            afterId = page.get(page.size() - 1).getBookId();
+        }
+
+        bookIds = Arrays.copyOf(bookIds, bookCount);
+        double[] scores = new double[bookCount];
+        for (int doc = 0; doc < bookCount; doc++) {
+            scores[doc] = popularity.getOrDefault(bookIds[doc], 0.0);
+        }
+
+        Snapshot built = Snapshot.build(bookIds, scores, entries);
+        long lastBookId = afterId;
+        synchronized (overlayLock) {
+            snapshot = built;
+            // Se conservan los libros nuevos que no han entrado en esta construcción
+            overlay = overlay.stream()
+                    .filter(book -> book.bookId > lastBookId)
+                    .toList();
+        }
+
+        logger.info("Índice de autocompletado construido: {} libros, {} claves, {} prefijos precalculados en {} ms",
+                bookCount, built.keyCount(), built.precomputed.size(), System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Reconstruye las sugerencias tras una importación masiva.
+     */
+    @EventListener
+    public void onCatalogImported(CatalogImportedEvent event) {
+        rebuild();
+    }
+
+    /**
+     * Añade un libro recién guardado (hasta la siguiente reconstrucción se recorre aparte).
+     */
+    @EventListener
+    public void onBookSaved(BookSavedEvent event) {
+        bookRepository.findTitleById(event.getBookId()).ifPresent(view -> {
+            OverlayBook book = new OverlayBook(view.getBookId(), popularityOf(view.getBookId()),
+                    keysFor(view.getTitle(), view.getAuthors()));
+            synchronized (overlayLock) {
+                List<OverlayBook> updated = new ArrayList<>(overlay);
+                updated.removeIf(existing -> existing.bookId == book.bookId);
+                updated.add(book);
+                overlay = List.copyOf(updated);
+            }
+        });
+    }
+
+    /**
+     * Las reseñas y los cambios de estantería de los libros nuevos actualizan su popularidad,
+     * para que compitan con los del índice sin esperar a la siguiente reconstrucción.
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onReviewSaved(ReviewSavedEvent event) {
+        updateOverlayPopularity(event.getBookId());
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onReadingStatusChanged(ReadingStatusChangedEvent event) {
+        updateOverlayPopularity(event.getBookId());
+    }
+
+    private void updateOverlayPopularity(Long bookId) {
+        if (overlay.stream().noneMatch(book -> book.bookId == bookId)) return;
+
+        double popularity = popularityOf(bookId);
+        synchronized (overlayLock) {
+            overlay = overlay.stream()
+                    .map(book -> book.bookId == bookId ? new OverlayBook(book.bookId, popularity, book.keys) : book)
+                    .toList();
+        }
+    }
+
+    /**
+     * Popularidad de un libro, con la misma fórmula que en la construcción del índice.
+     */
+    private double popularityOf(Long bookId) {
+        double popularity = bookReviewStatsRepository.findById(bookId)
+                .map(stats -> stats.getReviewCount() != null ? (double) REVIEW_WEIGHT * stats.getReviewCount() : 0.0)
+                .orElse(0.0);
+        return popularity + readingStatusRepository.countByBookId(bookId);
+    }
+
+    /**
+     * Sugiere libros cuyo título o autor empieza por el texto dado.
+     *
+     * @param prefix Texto escrito por el usuario.
+     * @param limit Número máximo de sugerencias (como mucho {@link #TOP_K}).
+     * @return Libros ordenados por popularidad.
+     */
+    public List<BookSummaryResponse> suggest(String prefix, int limit) {
+        String key = TextAnalyzer.normalizePhrase(prefix);
+        if (key.isEmpty() || limit <= 0) return List.of();
+        if (key.length() > MAX_KEY_LENGTH) key = key.substring(0, MAX_KEY_LENGTH);
+        int k = Math.min(limit, TOP_K);
+
+        Snapshot current = snapshot;
+        List<OverlayBook> recent = overlay;
+
+        // Los libros nuevos se mezclan por popularidad con los del índice; a igual popularidad
+        // van detrás (son más recientes), igual que quedarían tras la siguiente reconstrucción
+        List<OverlayBook> matches = new ArrayList<>();
+        for (OverlayBook book : recent) {
+            if (book.matches(key)) matches.add(book);
+        }
+        matches.sort(Comparator.comparingDouble((OverlayBook book) -> -book.popularity)
+                .thenComparingLong(book -> book.bookId));
+
+        int[] docs = current.lookup(key);
+        List<Long> bookIds = new ArrayList<>(k);
+        int d = 0;
+        int o = 0;
+        while (bookIds.size() < k && (d < docs.length || o < matches.size())) {
+            long bookId;
+            if (o == matches.size() || (d < docs.length && current.popularity[docs[d]] >= matches.get(o).popularity)) {
+                bookId = current.bookIds[docs[d++]];
+            } else {
+                bookId = matches.get(o++).bookId;
+            }
+            if (!bookIds.contains(bookId)) bookIds.add(bookId);
+        }
+
+        return bookPageService.getSummaries(bookIds);
+    }
+
+    /**
+     * Claves de autocompletado de un libro: el título completo, el título desde cada palabra
+     * significativa (para encontrar "El nombre del viento" escribiendo "viento"), cada autor
+     * y su apellido.
+     */
+    private static Set<String> keysFor(String title, String authors) {
+        Set<String> keys = new LinkedHashSet<>();
+
+        String normalizedTitle = TextAnalyzer.normalizePhrase(title);
+        if (!normalizedTitle.isEmpty()) {
+            String[] words = normalizedTitle.split(" ");
+            int position = 0;
+            for (int w = 0; w < words.length && keys.size() < MAX_TITLE_KEYS; w++) {
+                if (w == 0 || !TextAnalyzer.isStopword(words[w])) {
+                    keys.add(truncate(normalizedTitle.substring(position)));
+                }
+                position += words[w].length() + 1;
+            }
+        }
+
+        if (authors != null) {
+            for (String author : authors.split(",")) {
+                String normalizedAuthor = TextAnalyzer.normalizePhrase(author);
+                if (normalizedAuthor.isEmpty() || normalizedAuthor.equals("autor desconocido")) continue;
+                keys.add(truncate(normalizedAuthor));
+                int space = normalizedAuthor.lastIndexOf(' ');
+                if (space > 0) keys.add(normalizedAuthor.substring(space + 1));
+            }
+        }
+        return keys;
+    }
+
+    private static String truncate(String key) {
+        return key.length() > MAX_KEY_LENGTH ? key.substring(0, MAX_KEY_LENGTH) : key;
+    }
+
+    /**
+     * Índice inmutable: claves ordenadas en arrays compactos y resultados precalculados.
+     */
+    private static final class Snapshot {
+        static final Snapshot EMPTY = build(new long[0], new double[0], new ArrayList<>());
+
+        /** Libros (posición interna -> bookId) y su popularidad */
+        final long[] bookIds;
+        final double[] popularity;
+
+        /** Claves ordenadas: los caracteres de todas seguidos y dónde empieza cada una */
+        final char[] keyChars;
+        final int[] keyStart;
+        final int[] keyDoc;
+
+        /** Prefijo corto -> libros más populares (posiciones internas, ya ordenadas) */
+        final Map<String, int[]> precomputed;
+
+        private Snapshot(long[] bookIds, double[] popularity,
+                         char[] keyChars, int[] keyStart, int[] keyDoc, Map<String, int[]> precomputed) {
+            this.bookIds = bookIds;
+            this.popularity = popularity;
+            this.keyChars = keyChars;
+            this.keyStart = keyStart;
+            this.keyDoc = keyDoc;
+            this.precomputed = precomputed;
+        }
+
+        static Snapshot build(long[] bookIds, double[] popularity, List<KeyEntry> entries) {
+            entries.sort(Comparator.comparing((KeyEntry e) -> e.key));
+
+            int totalChars = 0;
+            for (KeyEntry entry : entries) totalChars += entry.key.length();
+
+            char[] keyChars = new char[totalChars];
+            int[] keyStart = new int[entries.size() + 1];
+            int[] keyDoc = new int[entries.size()];
+            int offset = 0;
+            for (int i = 0; i < entries.size(); i++) {
+                String key = entries.get(i).key;
+                key.getChars(0, key.length(), keyChars, offset);
+                keyStart[i] = offset;
+                keyDoc[i] = entries.get(i).doc;
+                offset += key.length();
+            }
+            keyStart[entries.size()] = offset;
+
+            Snapshot snapshot = new Snapshot(bookIds, popularity, keyChars, keyStart, keyDoc, new HashMap<>());
+            snapshot.precompute();
+            return snapshot;
+        }
+
+        int keyCount() {
+            return keyDoc.length;
+        }
+
+        /**
+         * Libros más populares cuyas claves empiezan por el prefijo.
+         */
+        int[] lookup(String prefix) {
+            if (prefix.length() <= PRECOMPUTED_DEPTH) {
+                int[] docs = precomputed.get(prefix);
+                return docs != null ? docs : new int[0];
+            }
+            // Prefijo largo: el rango es pequeño, se recorre entero
+            TopDocs top = new TopDocs(TOP_K, popularity);
+            for (int i = lowerBound(prefix); i < keyDoc.length && startsWith(i, prefix); i++) {
+                top.offer(keyDoc[i]);
+            }
+            return top.toArray();
+        }
+
+        /**
+         * Calcula los resultados de todos los prefijos de hasta PRECOMPUTED_DEPTH caracteres.
+         * Para cada longitud, las claves con el mismo prefijo son consecutivas.
+         */
+        private void precompute() {
+            int n = keyDoc.length;
+            for (int depth = 1; depth <= PRECOMPUTED_DEPTH; depth++) {
+                int i = 0;
+                while (i < n) {
+                    if (keyLength(i) < depth) {
+                        i++;
+                        continue;
+                    }
+                    TopDocs top = new TopDocs(TOP_K, popularity);
+                    int j = i;
+                    while (j < n && keyLength(j) >= depth && samePrefix(i, j, depth)) {
+                        top.offer(keyDoc[j]);
+                        j++;
+                    }
+                    precomputed.put(new String(keyChars, keyStart[i], depth), top.toArray());
+                    i = j;
+                }
+            }
+        }
+
+        private int keyLength(int i) {
+            return keyStart[i + 1] - keyStart[i];
+        }
+
+        private boolean samePrefix(int a, int b, int length) {
+            for (int c = 0; c < length; c++) {
+                if (keyChars[keyStart[a] + c] != keyChars[keyStart[b] + c]) return false;
+            }
+            return true;
+        }
+
+        private boolean startsWith(int i, String prefix) {
+            if (keyLength(i) < prefix.length()) return false;
+            for (int c = 0; c < prefix.length(); c++) {
+                if (keyChars[keyStart[i] + c] != prefix.charAt(c)) return false;
+            }
+            return true;
+        }
+
+        /**
+         * Primera clave mayor o igual que el prefijo (búsqueda binaria).
+         */
+        private int lowerBound(String prefix) {
+            int lo = 0;
+            int hi = keyDoc.length;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (compare(mid, prefix) < 0) lo = mid + 1;
+                else hi = mid;
+            }
+            return lo;
+        }
+
+        /**
+         * Compara la clave i con un texto, con el mismo orden que String.compareTo.
+         */
+        private int compare(int i, String other) {
+            int length = keyLength(i);
+            int common = Math.min(length, other.length());
+            for (int c = 0; c < common; c++) {
+                char a = keyChars[keyStart[i] + c];
+                char b = other.charAt(c);
+                if (a != b) return a - b;
+            }
+            return length - other.length();
+        }
+    }
+
+    /**
+     * Los K libros más populares de un rango de claves, sin repetir libro
+     * (un libro puede tener varias claves con el mismo prefijo).
+     */
+    private static final class TopDocs {
+        private final int[] docs;
+        private final double[] popularity;
+        private int size;
+
+        TopDocs(int capacity, double[] popularity) {
+            this.docs = new int[capacity];
+            this.popularity = popularity;
+        }
+
+        void offer(int doc) {
+            // Caso habitual: no mejora al último conservado
+            if (size == docs.length && !better(doc, docs[size - 1])) return;
+            for (int i = 0; i < size; i++) {
+                if (docs[i] == doc) return;
+            }
+
+            int position = size < docs.length ? size++ : size - 1;
+            while (position > 0 && better(doc, docs[position - 1])) {
+                docs[position] = docs[position - 1];
+                position--;
+            }
+            docs[position] = doc;
+        }
+
+        /**
+         * Más popular es mejor; a igual popularidad, el libro más antiguo del catálogo.
+         */
+        private boolean better(int a, int b) {
+            if (popularity[a] != popularity[b]) return popularity[a] > popularity[b];
+            return a < b;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(docs, size);
+        }
+    }
+
+    private static final class KeyEntry {
+        final String key;
+        final int doc;
+
+        KeyEntry(String key, int doc) {
+            this.key = key;
+            this.doc = doc;
+        }
+    }
+
+    /**
+     * Libro guardado después de la última construcción, con su popularidad y sus claves.
+     */
+    private static final class OverlayBook {
+        final long bookId;
+        final double popularity;
+        final Set<String> keys;
+
+        OverlayBook(long bookId, double popularity, Set<String> keys) {
+            this.bookId = bookId;
+            this.popularity = popularity;
+            this.keys = keys;
+        }
+
+        boolean matches(String prefix) {
+            for (String key : keys) {
+                if (key.startsWith(prefix)) return true;
+            }
+            return false;
+        }
+    }
+}
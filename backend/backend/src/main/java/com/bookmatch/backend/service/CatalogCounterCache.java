@@ -0,0 +1,102 @@
+package com.bookmatch.backend.service;
+
+import com.bookmatch.backend.event.BookSavedEvent;
+import com.bookmatch.backend.event.CatalogImportedEvent;
+import com.bookmatch.backend.repository.GenreRepository;
+import com.bookmatch.backend.repository.TagRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Caché en memoria del número de libros de cada género y etiqueta.
+ * Los contadores se cargan con una consulta agrupada por tipo y se invalidan
+ * cada vez que se guarda un libro (que es cuando se vinculan géneros y etiquetas).
+ * Además se recargan periódicamente por si el catálogo cambia fuera de la aplicación.
+ */
+@Component
+public class CatalogCounterCache {
+
+    @Autowired
+    private GenreRepository genreRepository;
+
+    @Autowired
+    private TagRepository tagRepository;
+
+    /** Contadores actuales (null si están invalidados) */
+    private volatile Counters counters;
+
+    /**
+     * Obtiene los géneros con su número de libros, ordenados por ID.
+     */
+    public List<GenreRepository.GenreCountView> getGenreCounts() {
+        return current().genres;
+    }
+
+    /**
+     * Obtiene las etiquetas con su número de libros, ordenadas por ID.
+     */
+    public List<TagRepository.TagCountView> getTagCounts() {
+        return current().tags;
+    }
+
+    /**
+     * Invalida los contadores tras una importación masiva.
+     */
+    @EventListener
+    public void onCatalogImported(CatalogImportedEvent event) {
+        counters = null;
+    }
+
+    /**
+     * Invalida los contadores al guardar un libro nuevo.
+     */
+    @EventListener
+    public void onBookSaved(BookSavedEvent event) {
+        counters = null;
+    }
+
+    /**
+     * Recarga periódica de los contadores.
+     */
+    @Scheduled(fixedDelayString = "${app.catalog-counters.refresh-interval-ms:300000}")
+    public void refresh() {
+        counters = load();
+    }
+
+    private Counters current() {
+        Counters current = counters;
+        if (current == null) {
+            synchronized (this) {
+                current = counters;
+                if (current == null) {
+                    current = load();
+                    counters = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    private Counters load() {
+        return new Counters(
+                List.copyOf(genreRepository.findAllWithBookCount()),
+                List.copyOf(tagRepository.findAllWithBookCount()));
+    }
+
+    /**
+     * Contadores de géneros y etiquetas cargados en el mismo momento.
+     */
+    private static class Counters {
+        final List<GenreRepository.GenreCountView> genres;
+        final List<TagRepository.TagCountView> tags;
+
+        Counters(List<GenreRepository.GenreCountView> genres, List<TagRepository.TagCountView> tags) {
+            this.genres = genres;
+            this.tags = tags;
+        }
+    }
+}
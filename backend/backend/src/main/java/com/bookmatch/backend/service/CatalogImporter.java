@@ -0,0 +1,319 @@
+package com.bookmatch.backend.service;
+
+import com.bookmatch.backend.dto.GoogleBooksResponse;
+import com.bookmatch.backend.entity.Book;
+import com.bookmatch.backend.event.CatalogImportedEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import tools.jackson.core.JacksonException;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Importación masiva del catálogo desde un volcado de Google Books.
+ * Se activa arrancando la aplicación con {@code --app.import.file=volumes.jsonl[.gz]}
+ * (recomendable añadir {@code --spring.main.web-application-type=none}).
+ * El fichero tiene un GoogleBooksResponse.Item en JSON por línea y se procesa en streaming
+ * por etapas conectadas con colas acotadas (si una etapa va lenta, las anteriores esperan):
+ * lectura y parseo, conversión y eliminación de duplicados, e inserción por lotes con JDBC
+ * (las descripciones se insertan comprimidas en book_details, en la misma transacción que
+ * sus libros). Tras cada lote se guarda en un fichero de checkpoint la última línea confirmada, de modo
+ * que si se interrumpe se puede relanzar y continúa donde se quedó.
+ */
+@Component
+@ConditionalOnProperty(name = "app.import.file")
+public class CatalogImporter implements CommandLineRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(CatalogImporter.class);
+
+    private static final String INSERT_SQL = "INSERT IGNORE INTO books " +
+            "(google_book_id, title, authors, summary, published_date, page_count, cover_url, " +
+            "average_rating_api, created_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    /** La descripción va comprimida a book_details, buscando el book_id por google_book_id */
+    private static final String INSERT_DETAILS_SQL = "INSERT IGNORE INTO book_details " +
+            "(book_id, description_data, description_length) " +
+            "SELECT book_id, ?, ? FROM books WHERE google_book_id = ?";
+
+    @Autowired
+    private BookService bookService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private JsonMapper jsonMapper;
+
+    @Autowired
+    private ApplicationContext applicationContext;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Value("${app.import.file}")
+    private String importFile;
+
+    @Value("${app.import.batch-size:1000}")
+    private int batchSize;
+
+    @Value("${app.import.queue-capacity:10000}")
+    private int queueCapacity;
+
+    @Value("${app.import.exit-on-finish:true}")
+    private boolean exitOnFinish;
+
+    /** Se marca si la lectura del fichero termina con error */
+    private volatile boolean readFailed = false;
+
+    /** Transacción de cada lote: books y book_details se confirman juntos */
+    private final TransactionTemplate batchTransaction;
+
+    public CatalogImporter(PlatformTransactionManager transactionManager) {
+        this.batchTransaction = new TransactionTemplate(transactionManager);
+    }
+
+    @Override
+    public void run(String... args) throws Exception {
+        Path file = Paths.get(importFile);
+        Path checkpoint = Paths.get(importFile + ".checkpoint");
+        long resumeAfter = readCheckpoint(checkpoint);
+
+        logger.info("Importando catálogo desde {} (continuando tras la línea {})", file, resumeAfter);
+        long start = System.currentTimeMillis();
+
+        BlockingQueue<ParsedLine> parsed = new ArrayBlockingQueue<>(queueCapacity);
+        BlockingQueue<List<Row>> batches = new ArrayBlockingQueue<>(4);
+
+        Thread reader = new Thread(() -> readStage(file, resumeAfter, parsed), "import-reader");
+        Thread converter = new Thread(() -> convertStage(parsed, batches), "import-converter");
+        // Hilos daemon: si falla la inserción no deben impedir que termine el proceso
+        reader.setDaemon(true);
+        converter.setDaemon(true);
+        reader.start();
+        converter.start();
+
+        long inserted = 0;
+        long processed = 0;
+        while (true) {
+            List<Row> batch = batches.take();
+            if (batch.isEmpty()) break; // Fin del fichero
+
+            inserted += insertBatch(batch);
+            processed += batch.size();
+            writeCheckpoint(checkpoint, batch.get(batch.size() - 1).lineNumber);
+
+            long elapsed = Math.max(1, System.currentTimeMillis() - start);
+            logger.info("Importados {} libros nuevos de {} procesados ({} libros/min)",
+                    inserted, processed, processed * 60_000 / elapsed);
+        }
+
+        reader.join();
+        converter.join();
+
+        logger.info("Importación terminada: {} libros nuevos en {} s",
+                inserted, (System.currentTimeMillis() - start) / 1000);
+
+        // Los libros se insertan con JDBC sin pasar por BookSavedEvent: si la aplicación sigue
+        // en marcha, los índices y cachés en memoria se reconstruyen una vez al terminar
+        if (inserted > 0 && !exitOnFinish) {
+            eventPublisher.publishEvent(new CatalogImportedEvent(inserted));
+        }
+
+        if (exitOnFinish) {
+            int exitCode = readFailed ? 1 : 0;
+            System.exit(SpringApplication.exit(applicationContext, () -> exitCode));
+        }
+    }
+
+    /**
+     * Etapa 1: lee el fichero línea a línea (sin cargarlo en memoria) y parsea cada item.
+     */
+    private void readStage(Path file, long resumeAfter, BlockingQueue<ParsedLine> out) {
+        try (BufferedReader lines = new BufferedReader(new InputStreamReader(open(file), StandardCharsets.UTF_8))) {
+            long lineNumber = 0;
+            String line;
+            while ((line = lines.readLine()) != null) {
+                lineNumber++;
+                if (lineNumber <= resumeAfter || line.isBlank()) continue;
+
+                try {
+                    GoogleBooksResponse.Item item = jsonMapper.readValue(line, GoogleBooksResponse.Item.class);
+                    out.put(new ParsedLine(lineNumber, item));
+                } catch (JacksonException e) {
+                    logger.warn("Línea {} ignorada: JSON no válido ({})", lineNumber, e.getOriginalMessage());
+                }
+            }
+        } catch (IOException e) {
+            readFailed = true;
+            logger.error("Error leyendo el fichero de importación: {}", e.getMessage(), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            putQuietly(out, ParsedLine.END);
+        }
+    }
+
+    /**
+     * Etapa 2: convierte los items en libros, descarta duplicados y agrupa en lotes.
+     */
+    private void convertStage(BlockingQueue<ParsedLine> in, BlockingQueue<List<Row>> out) {
+        // Solo se descartan los repetidos dentro del lote; entre lotes los descarta el
+        // INSERT IGNORE (UNIQUE en google_book_id), sin guardar en memoria todos los IDs del fichero
+        Set<String> batchGoogleIds = new HashSet<>(batchSize * 2);
+        List<Row> batch = new ArrayList<>(batchSize);
+        try {
+            while (true) {
+                ParsedLine parsedLine = in.take();
+                if (parsedLine == ParsedLine.END) break;
+
+                GoogleBooksResponse.Item item = parsedLine.item;
+                if (item.getId() == null || item.getVolumeInfo() == null || item.getVolumeInfo().getTitle() == null) {
+                    continue;
+                }
+                if (!batchGoogleIds.add(item.getId())) continue;
+
+                batch.add(new Row(parsedLine.lineNumber, bookService.convertToBookEntity(item)));
+                if (batch.size() >= batchSize) {
+                    out.put(batch);
+                    batch = new ArrayList<>(batchSize);
+                    batchGoogleIds.clear();
+                }
+            }
+            if (!batch.isEmpty()) out.put(batch);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            putQuietly(out, List.of());
+        }
+    }
+
+    /**
+     * Etapa 3: inserta un lote con JDBC. INSERT IGNORE descarta los libros que ya existían
+     * (restricción UNIQUE en google_book_id). Los libros y sus descripciones van en una sola
+     * transacción: si el proceso se corta entre las dos inserciones, al relanzarlo desde el
+     * checkpoint los libros no quedan ya insertados sin su book_details.
+     *
+     * @return Número de filas insertadas.
+     */
+    private long insertBatch(List<Row> batch) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> args = new ArrayList<>(batch.size());
+        List<Object[]> details = new ArrayList<>(batch.size());
+        for (Row row : batch) {
+            Book book = row.book;
+            args.add(new Object[]{
+                    book.getGoogleBookId(), book.getTitle(), book.getAuthors(), book.getSummary(),
+                    book.getPublishedDate(), book.getPageCount(), book.getCoverUrl(),
+                    book.getAverageRatingApi(), now
+            });
+            String description = book.getDescription();
+            if (description != null && !description.isBlank()) {
+                details.add(new Object[]{
+                        BookDescriptionService.compress(description), description.length(), book.getGoogleBookId()
+                });
+            }
+        }
+
+        Long inserted = batchTransaction.execute(status -> {
+            long count = 0;
+            for (int rows : jdbcTemplate.batchUpdate(INSERT_SQL, args)) {
+                // Con rewriteBatchedStatements el driver puede devolver SUCCESS_NO_INFO (-2)
+                if (rows > 0) count += rows;
+            }
+            // Los libros que ya existían conservan su descripción (INSERT IGNORE por book_id)
+            if (!details.isEmpty()) jdbcTemplate.batchUpdate(INSERT_DETAILS_SQL, details);
+            return count;
+        });
+        return inserted != null ? inserted : 0;
+    }
+
+    private InputStream open(Path file) throws IOException {
+        InputStream in = new BufferedInputStream(Files.newInputStream(file), 1 << 16);
+        return file.toString().endsWith(".gz") ? new GZIPInputStream(in, 1 << 16) : in;
+    }
+
+    private long readCheckpoint(Path checkpoint) throws IOException {
+        if (!Files.exists(checkpoint)) return 0;
+        return Long.parseLong(Files.readString(checkpoint).trim());
+    }
+
+    /**
+     * Guarda la última línea confirmada (escribiendo a un temporal y renombrando).
+     */
+    private void writeCheckpoint(Path checkpoint, long lineNumber) {
+        try {
+            Path tmp = Paths.get(checkpoint + ".tmp");
+            Files.writeString(tmp, Long.toString(lineNumber));
+            Files.move(tmp, checkpoint, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private <T> void putQuietly(BlockingQueue<T> queue, T value) {
+        try {
+            queue.put(value);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Item parseado junto con su número de línea en el fichero.
+     */
+    private static class ParsedLine {
+        static final ParsedLine END = new ParsedLine(-1, null);
+
+        final long lineNumber;
+        final GoogleBooksResponse.Item item;
+
+        ParsedLine(long lineNumber, GoogleBooksResponse.Item item) {
+            this.lineNumber = lineNumber;
+            this.item = item;
+        }
+    }
+
+    /**
+     * Libro listo para insertar junto con su número de línea.
+     */
+    private static class Row {
+        final long lineNumber;
+        final Book book;
+
+        Row(long lineNumber, Book book) {
+            this.lineNumber = lineNumber;
+            this.book = book;
+        }
+    }
+}
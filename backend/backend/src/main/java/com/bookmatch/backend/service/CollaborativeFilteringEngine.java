@@ -0,0 +1,559 @@
+package com.bookmatch.backend.service;
+
+import com.bookmatch.backend.enums.ReadingStatusType;
+import com.bookmatch.backend.event.ReadingStatusChangedEvent;
+import com.bookmatch.backend.event.ReviewSavedEvent;
+import com.bookmatch.backend.repository.ReadingStatusRepository;
+import com.bookmatch.backend.repository.ReviewRepository;
+import lombok.Getter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Filtrado colaborativo libro-libro.
+ * A partir de las reseñas (calificación) y de los estados de lectura de todos los usuarios se
+ * construye la matriz usuario-libro dispersa en formato CSR (arrays de posiciones, columnas y
+ * pesos) y su traspuesta, y se calcula la similitud coseno entre libros que comparten lectores.
+ * De cada libro se guardan solo sus N vecinos más parecidos, así que recomendar a un usuario
+ * cuesta lo proporcional a su historial, no al tamaño del catálogo.
+ * La tabla de vecinos se recalcula en segundo plano: las reseñas y cambios de estado marcan al
+ * usuario y en cada pasada solo se vuelven a leer sus interacciones (el resto de la matriz se
+ * reutiliza) y se recalculan los libros que tenía o tiene y los que comparten lectores con ellos.
+ * Cada noche se hace un recálculo completo.
+ */
+@Component
+public class CollaborativeFilteringEngine {
+
+    private static final Logger logger = LoggerFactory.getLogger(CollaborativeFilteringEngine.class);
+
+    /** Vecinos que se guardan por libro */
+    private static final int NEIGHBORS = 50;
+
+    /** Los usuarios con más libros que esto no se usan para la similitud (coste cuadrático) */
+    private static final int MAX_USER_ITEMS = 500;
+
+    /** Penaliza las similitudes basadas en pocos lectores en común */
+    private static final double SHRINKAGE = 5.0;
+
+    @Autowired
+    private ReviewRepository reviewRepository;
+
+    @Autowired
+    private ReadingStatusRepository readingStatusRepository;
+
+    private volatile NeighborTable table = NeighborTable.EMPTY;
+
+    /** Matriz de la última pasada (la base de la siguiente pasada incremental) */
+    private volatile Matrix matrix;
+
+    /** Usuarios con interacciones nuevas o modificadas desde la última pasada */
+    private final Set<Long> dirtyUserIds = ConcurrentHashMap.newKeySet();
+
+    private volatile boolean fullRebuildPending = true;
+
+    /**
+     * Peso de una reseña: solo cuentan las de 3 estrellas o más (3 -> 0.33, 5 -> 1).
+     */
+    static float reviewWeight(Integer rating) {
+        if (rating == null || rating < 3) return 0f;
+        return (rating - 2) / 3f;
+    }
+
+    /**
+     * Peso de un estado de lectura (los libros abandonados no cuentan).
+     */
+    static float statusWeight(ReadingStatusType status) {
+        if (status == null) return 0f;
+        return switch (status) {
+            case READ -> 1.0f;
+            case READING -> 0.8f;
+            case WANT_TO_READ -> 0.5f;
+            case DROPPED -> 0f;
+        };
+    }
+
+    /**
+     * Cálculo completo al arrancar la aplicación.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialize() {
+        refresh();
+    }
+
+    /**
+     * Pasada incremental: vuelve a leer solo las interacciones de los usuarios modificados
+     * desde la anterior y recalcula los vecinos de los libros afectados.
+     */
+    @Scheduled(initialDelayString = "${app.cf.refresh-interval-ms:300000}",
+            fixedDelayString = "${app.cf.refresh-interval-ms:300000}")
+    public synchronized void refresh() {
+        Matrix previousMatrix = matrix;
+        boolean full = fullRebuildPending || previousMatrix == null;
+        if (!full && dirtyUserIds.isEmpty()) return;
+
+        Set<Long> dirty = new HashSet<>(dirtyUserIds);
+        dirtyUserIds.removeAll(dirty);
+        fullRebuildPending = false;
+
+        try {
+            long start = System.currentTimeMillis();
+            Matrix next;
+            BitSet affected = null;
+            if (full) {
+                next = loadMatrix();
+            } else {
+                BitSet changedItems = new BitSet();
+                next = updateMatrix(previousMatrix, dirty, changedItems);
+                affected = affectedItems(next, changedItems);
+            }
+            table = computeNeighbors(next, table, affected);
+            matrix = next;
+            logger.info("Vecinos de filtrado colaborativo {}: {} usuarios, {} libros, {} interacciones en {} ms",
+                    full ? "recalculados" : "actualizados (" + dirty.size() + " usuarios modificados, "
+                            + affected.cardinality() + " libros afectados)",
+                    next.userCount(), next.itemCount(), next.userItems.length,
+                    System.currentTimeMillis() - start);
+        } catch (RuntimeException e) {
+            // Se reintentará en la siguiente pasada
+            dirtyUserIds.addAll(dirty);
+            if (full) fullRebuildPending = true;
+            logger.error("Error recalculando el filtrado colaborativo: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Recálculo completo programado (por defecto cada noche).
+     */
+    @Scheduled(cron = "${app.cf.full-rebuild-cron:0 30 3 * * *}")
+    public void fullRebuild() {
+        fullRebuildPending = true;
+        refresh();
+    }
+
+    /**
+     * Las reseñas y los cambios de estado marcan al usuario para la siguiente pasada.
+     * Se atienden tras el commit: si la pasada leyera las interacciones antes, se quedaría
+     * con las anteriores al cambio y ya no volvería a leerlas.
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onReviewSaved(ReviewSavedEvent event) {
+        dirtyUserIds.add(event.getUserId());
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onReadingStatusChanged(ReadingStatusChangedEvent event) {
+        dirtyUserIds.add(event.getUserId());
+    }
+
+    /**
+     * Recomienda libros a partir del historial de un usuario: cada libro del historial aporta
+     * a sus vecinos su similitud multiplicada por el peso de la interacción.
+     *
+     * @param history Libros del usuario con su peso (bookId -> peso).
+     * @param excludedBookIds Libros que no se deben recomendar (los que ya tiene).
+     * @param limit Número máximo de recomendaciones.
+     * @return Recomendaciones ordenadas de mayor a menor puntuación.
+     */
+    public List<Recommendation> recommend(Map<Long, Float> history, Set<Long> excludedBookIds, int limit) {
+        NeighborTable current = table;
+        Map<Long, Recommendation> candidates = new HashMap<>();
+
+        for (Map.Entry<Long, Float> entry : history.entrySet()) {
+            int row = current.index.get(entry.getKey());
+            if (row < 0 || entry.getValue() <= 0) continue;
+
+            for (int p = current.offsets[row]; p < current.offsets[row + 1]; p++) {
+                long neighbor = current.neighborIds[p];
+                if (excludedBookIds.contains(neighbor) || history.containsKey(neighbor)) continue;
+
+                double contribution = entry.getValue() * current.neighborScores[p];
+                Recommendation candidate = candidates.computeIfAbsent(neighbor, Recommendation::new);
+                candidate.score += contribution;
+                if (contribution > candidate.bestContribution) {
+                    candidate.bestContribution = contribution;
+                    candidate.becauseOfBookId = entry.getKey();
+                }
+            }
+        }
+
+        TopKHeap top = new TopKHeap(limit);
+        candidates.values().forEach(c -> top.offer(c.bookId, c.score));
+        List<Recommendation> result = new ArrayList<>(top.size());
+        for (long bookId : top.sortedIds()) {
+            result.add(candidates.get(bookId));
+        }
+        return result;
+    }
+
+    /**
+     * Carga todas las interacciones y construye la matriz usuario-libro en CSR.
+     * Si un usuario tiene reseña y estado del mismo libro, se queda el mayor de los dos pesos.
+     */
+    private Matrix loadMatrix() {
+        LongIntMap users = new LongIntMap(1024);
+        LongIntMap items = new LongIntMap(1024);
+        List<Long> itemBookIds = new ArrayList<>();
+        Triples triples = new Triples();
+
+        addInteractions(triples, users, items, itemBookIds,
+                reviewRepository.findAllRatings(), readingStatusRepository.findAllStatuses());
+
+        return build(users, items, itemBookIds, triples, null, null);
+    }
+
+    /**
+     * Construye la matriz de la siguiente pasada a partir de la anterior: las filas de los
+     * usuarios que no han cambiado se copian y solo se leen de la base de datos las de los
+     * usuarios modificados. Los índices de usuarios y libros se conservan.
+     *
+     * @param previous Matriz de la pasada anterior.
+     * @param userIds Usuarios modificados.
+     * @param changedItems Se rellena con los libros que estaban o están en las filas de esos
+     *                     usuarios (los únicos cuya columna, y por tanto su norma, ha cambiado).
+     */
+    private Matrix updateMatrix(Matrix previous, Set<Long> userIds, BitSet changedItems) {
+        LongIntMap users = previous.userIndex.copy();
+        LongIntMap items = previous.itemIndex.copy();
+        List<Long> itemBookIds = new ArrayList<>(previous.itemCount());
+        for (long bookId : previous.bookIds) itemBookIds.add(bookId);
+
+        BitSet changedUsers = new BitSet();
+        for (Long userId : userIds) {
+            int user = users.get(userId);
+            if (user >= 0) changedUsers.set(user);
+        }
+
+        // Filas anteriores: las de los usuarios modificados se descartan, pero sus libros
+        // cuentan como afectados (así se recalculan también los que dejan de tener vecinos)
+        Triples triples = new Triples();
+        for (int u = 0; u < previous.userCount(); u++) {
+            boolean changed = changedUsers.get(u);
+            for (int p = previous.userOffsets[u]; p < previous.userOffsets[u + 1]; p++) {
+                if (changed) {
+                    changedItems.set(previous.userItems[p]);
+                } else {
+                    triples.add(u, previous.userItems[p], previous.userWeights[p]);
+                }
+            }
+        }
+
+        int firstNew = triples.size;
+        addInteractions(triples, users, items, itemBookIds,
+                reviewRepository.findRatingsByUserIds(userIds), readingStatusRepository.findStatusesByUserIds(userIds));
+        for (int t = firstNew; t < triples.size; t++) changedItems.set(triples.items[t]);
+
+        return build(users, items, itemBookIds, triples, previous.norms, changedItems);
+    }
+
+    private static void addInteractions(Triples triples, LongIntMap users, LongIntMap items, List<Long> itemBookIds,
+                                        List<ReviewRepository.RatingView> ratings,
+                                        List<ReadingStatusRepository.StatusView> statuses) {
+        for (ReviewRepository.RatingView rating : ratings) {
+            float weight = reviewWeight(rating.getRating());
+            if (weight <= 0) continue;
+            triples.add(users.getOrPut(rating.getUserId(), users.size()),
+                    itemIndex(items, itemBookIds, rating.getBookId()), weight);
+        }
+        for (ReadingStatusRepository.StatusView status : statuses) {
+            float weight = statusWeight(status.getStatus());
+            if (weight <= 0) continue;
+            triples.add(users.getOrPut(status.getUserId(), users.size()),
+                    itemIndex(items, itemBookIds, status.getBookId()), weight);
+        }
+    }
+
+    /**
+     * Ordena las interacciones en CSR (filas por usuario), fusiona los duplicados y construye
+     * la traspuesta (filas por libro) y las normas de los libros.
+     *
+     * @param previousNorms Normas de la pasada anterior (null para calcularlas todas).
+     * @param changedItems Libros cuya norma hay que recalcular (el resto se copia de previousNorms).
+     */
+    private static Matrix build(LongIntMap users, LongIntMap items, List<Long> itemBookIds, Triples triples,
+                                double[] previousNorms, BitSet changedItems) {
+        int userCount = users.size();
+        int itemCount = items.size();
+
+        // Filas por usuario: cada entrada empaqueta (libro << 32 | bits del peso) para ordenar por libro
+        int[] userOffsets = new int[userCount + 1];
+        for (int t = 0; t < triples.size; t++) userOffsets[triples.users[t] + 1]++;
+        for (int u = 0; u < userCount; u++) userOffsets[u + 1] += userOffsets[u];
+        long[] packed = new long[triples.size];
+        int[] cursor = Arrays.copyOf(userOffsets, userCount);
+        for (int t = 0; t < triples.size; t++) {
+            packed[cursor[triples.users[t]]++] =
+                    ((long) triples.items[t] << 32) | (Float.floatToIntBits(triples.weights[t]) & 0xFFFFFFFFL);
+        }
+
+        // Ordenar cada fila y fusionar duplicados (reseña + estado del mismo libro)
+        int[] compactOffsets = new int[userCount + 1];
+        int[] userItems = new int[triples.size];
+        float[] userWeights = new float[triples.size];
+        int nnz = 0;
+        for (int u = 0; u < userCount; u++) {
+            Arrays.sort(packed, userOffsets[u], userOffsets[u + 1]);
+            for (int p = userOffsets[u]; p < userOffsets[u + 1]; p++) {
+                int item = (int) (packed[p] >>> 32);
+                float weight = Float.intBitsToFloat((int) packed[p]);
+                if (nnz > compactOffsets[u] && userItems[nnz - 1] == item) {
+                    userWeights[nnz - 1] = Math.max(userWeights[nnz - 1], weight);
+                } else {
+                    userItems[nnz] = item;
+                    userWeights[nnz] = weight;
+                    nnz++;
+                }
+            }
+            compactOffsets[u + 1] = nnz;
+        }
+
+        // Traspuesta: filas por libro
+        int[] itemOffsets = new int[itemCount + 1];
+        for (int p = 0; p < nnz; p++) itemOffsets[userItems[p] + 1]++;
+        for (int i = 0; i < itemCount; i++) itemOffsets[i + 1] += itemOffsets[i];
+        int[] itemUsers = new int[nnz];
+        float[] itemWeights = new float[nnz];
+        int[] itemCursor = Arrays.copyOf(itemOffsets, itemCount);
+        for (int u = 0; u < userCount; u++) {
+            for (int p = compactOffsets[u]; p < compactOffsets[u + 1]; p++) {
+                int slot = itemCursor[userItems[p]]++;
+                itemUsers[slot] = u;
+                itemWeights[slot] = userWeights[p];
+            }
+        }
+
+        long[] bookIds = new long[itemCount];
+        for (int i = 0; i < itemCount; i++) bookIds[i] = itemBookIds.get(i);
+
+        // Norma de cada libro (para el coseno)
+        double[] norms = new double[itemCount];
+        for (int i = 0; i < itemCount; i++) {
+            if (previousNorms != null && i < previousNorms.length && !changedItems.get(i)) {
+                norms[i] = previousNorms[i];
+                continue;
+            }
+            double sum = 0;
+            for (int p = itemOffsets[i]; p < itemOffsets[i + 1]; p++) {
+                sum += (double) itemWeights[p] * itemWeights[p];
+            }
+            norms[i] = Math.sqrt(sum);
+        }
+
+        return new Matrix(bookIds, users, items, compactOffsets,
+                Arrays.copyOf(userItems, nnz), Arrays.copyOf(userWeights, nnz),
+                itemOffsets, itemUsers, itemWeights, norms);
+    }
+
+    private static int itemIndex(LongIntMap items, List<Long> itemBookIds, long bookId) {
+        int index = items.get(bookId);
+        if (index >= 0) return index;
+        index = items.size();
+        items.put(bookId, index);
+        itemBookIds.add(bookId);
+        return index;
+    }
+
+    /**
+     * Libros cuyos vecinos pueden haber cambiado: los modificados y los que comparten lectores
+     * con ellos. Los antiguos compañeros a través del usuario modificado ya están entre los
+     * modificados (su fila anterior cuenta), así que basta con recorrer la matriz nueva.
+     */
+    private static BitSet affectedItems(Matrix m, BitSet changedItems) {
+        BitSet affected = (BitSet) changedItems.clone();
+        for (int item = changedItems.nextSetBit(0); item >= 0; item = changedItems.nextSetBit(item + 1)) {
+            for (int p = m.itemOffsets[item]; p < m.itemOffsets[item + 1]; p++) {
+                int user = m.itemUsers[p];
+                for (int q = m.userOffsets[user]; q < m.userOffsets[user + 1]; q++) {
+                    affected.set(m.userItems[q]);
+                }
+            }
+        }
+        return affected;
+    }
+
+    /**
+     * Calcula la tabla de vecinos. Con affected = null se recalculan todos los libros; si no,
+     * solo los indicados y el resto se copia de la tabla anterior.
+     */
+    private NeighborTable computeNeighbors(Matrix m, NeighborTable previous, BitSet affected) {
+        int itemCount = m.itemCount();
+        double[] norms = m.norms;
+
+        long[][] rowIds = new long[itemCount][];
+        float[][] rowScores = new float[itemCount][];
+
+        // Acumuladores densos reutilizados entre libros (solo se limpian las posiciones tocadas)
+        double[] dots = new double[itemCount];
+        int[] common = new int[itemCount];
+        int[] touched = new int[itemCount];
+
+        for (int i = 0; i < itemCount; i++) {
+            if (affected != null && !affected.get(i)) {
+                int row = previous.index.get(m.bookIds[i]);
+                if (row >= 0) {
+                    rowIds[i] = Arrays.copyOfRange(previous.neighborIds, previous.offsets[row], previous.offsets[row + 1]);
+                    rowScores[i] = Arrays.copyOfRange(previous.neighborScores, previous.offsets[row], previous.offsets[row + 1]);
+                }
+                continue;
+            }
+
+            int touchedCount = 0;
+            for (int p = m.itemOffsets[i]; p < m.itemOffsets[i + 1]; p++) {
+                int user = m.itemUsers[p];
+                if (m.userOffsets[user + 1] - m.userOffsets[user] > MAX_USER_ITEMS) continue;
+                float weight = m.itemWeights[p];
+                for (int q = m.userOffsets[user]; q < m.userOffsets[user + 1]; q++) {
+                    int other = m.userItems[q];
+                    if (other == i) continue;
+                    if (common[other] == 0) touched[touchedCount++] = other;
+                    dots[other] += weight * m.userWeights[q];
+                    common[other]++;
+                }
+            }
+
+            TopKHeap top = new TopKHeap(NEIGHBORS);
+            for (int t = 0; t < touchedCount; t++) {
+                int other = touched[t];
+                double denominator = norms[i] * norms[other];
+                if (denominator > 0) {
+                    double similarity = dots[other] / denominator * common[other] / (common[other] + SHRINKAGE);
+                    top.offer(m.bookIds[other], similarity);
+                }
+                dots[other] = 0;
+                common[other] = 0;
+            }
+
+            rowIds[i] = top.sortedIds();
+            double[] scores = top.sortedScores();
+            rowScores[i] = new float[scores.length];
+            for (int s = 0; s < scores.length; s++) rowScores[i][s] = (float) scores[s];
+        }
+
+        return NeighborTable.from(m.bookIds, m.itemIndex, rowIds, rowScores);
+    }
+
+    /**
+     * Recomendación de un libro, con el libro del historial que más ha aportado.
+     */
+    @Getter
+    public static final class Recommendation {
+        private final long bookId;
+        private double score;
+        private long becauseOfBookId;
+        private double bestContribution;
+
+        Recommendation(long bookId) {
+            this.bookId = bookId;
+        }
+    }
+
+    /**
+     * Interacciones (usuario, libro, peso) en arrays que crecen.
+     */
+    private static final class Triples {
+        int[] users = new int[1024];
+        int[] items = new int[1024];
+        float[] weights = new float[1024];
+        int size;
+
+        void add(int user, int item, float weight) {
+            if (size == users.length) {
+                users = Arrays.copyOf(users, size * 2);
+                items = Arrays.copyOf(items, size * 2);
+                weights = Arrays.copyOf(weights, size * 2);
+            }
+            users[size] = user;
+            items[size] = item;
+            weights[size] = weight;
+            size++;
+        }
+    }
+
+    /**
+     * Matriz usuario-libro en CSR y su traspuesta.
+     */
+    private static final class Matrix {
+        final long[] bookIds;
+        final LongIntMap userIndex;
+        final LongIntMap itemIndex;
+        final int[] userOffsets;
+        final int[] userItems;
+        final float[] userWeights;
+        final int[] itemOffsets;
+        final int[] itemUsers;
+        final float[] itemWeights;
+        final double[] norms;
+
+        Matrix(long[] bookIds, LongIntMap userIndex, LongIntMap itemIndex, int[] userOffsets, int[] userItems,
+               float[] userWeights, int[] itemOffsets, int[] itemUsers, float[] itemWeights, double[] norms) {
+            this.bookIds = bookIds;
+            this.userIndex = userIndex;
+            this.itemIndex = itemIndex;
+            this.userOffsets = userOffsets;
+            this.userItems = userItems;
+            this.userWeights = userWeights;
+            this.itemOffsets = itemOffsets;
+            this.itemUsers = itemUsers;
+            this.itemWeights = itemWeights;
+            this.norms = norms;
+        }
+
+        int userCount() {
+            return userOffsets.length - 1;
+        }
+
+        int itemCount() {
+            return bookIds.length;
+        }
+    }
+
+    /**
+     * Tabla inmutable de vecinos en CSR: para cada libro, sus vecinos y similitudes.
+     */
+    private static final class NeighborTable {
+        static final NeighborTable EMPTY = from(new long[0], new LongIntMap(4), new long[0][], new float[0][]);
+
+        final LongIntMap index;
+        final int[] offsets;
+        final long[] neighborIds;
+        final float[] neighborScores;
+
+        private NeighborTable(LongIntMap index, int[] offsets, long[] neighborIds, float[] neighborScores) {
+            this.index = index;
+            this.offsets = offsets;
+            this.neighborIds = neighborIds;
+            this.neighborScores = neighborScores;
+        }
+
+        static NeighborTable from(long[] bookIds, LongIntMap index, long[][] rowIds, float[][] rowScores) {
+            int[] offsets = new int[bookIds.length + 1];
+            for (int i = 0; i < bookIds.length; i++) {
+                offsets[i + 1] = offsets[i] + (rowIds[i] != null ? rowIds[i].length : 0);
+            }
+            long[] neighborIds = new long[offsets[bookIds.length]];
+            float[] neighborScores = new float[offsets[bookIds.length]];
+            for (int i = 0; i < bookIds.length; i++) {
+                if (rowIds[i] == null) continue;
+                System.arraycopy(rowIds[i], 0, neighborIds, offsets[i], rowIds[i].length);
+                System.arraycopy(rowScores[i], 0, neighborScores, offsets[i], rowScores[i].length);
+            }
+            return new NeighborTable(index, offsets, neighborIds, neighborScores);
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.bookmatch.backend.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.json.JsonMapper;
+import tools.jackson.databind.node.ObjectNode;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Proyección de campos de las respuestas REST (parámetro ?fields=).
+ * Permite al cliente pedir solo los campos que va a pintar, p. ej.
+ * {@code /api/books/12?fields=bookId,title,coverUrl}. Se aplica a un objeto o a cada
+ * elemento de una lista; los campos desconocidos se ignoran.
+ */
+@Component
+public class FieldSelector {
+
+    @Autowired
+    private JsonMapper jsonMapper;
+
+    /**
+     * Deja en la respuesta solo los campos indicados.
+     *
+     * @param body Respuesta (DTO o lista de DTOs).
+     * @param fields Campos separados por comas (null o vacío para devolver la respuesta completa).
+     * @return La respuesta original o su proyección como árbol JSON.
+     */
+    public Object select(Object body, String fields) {
+        if (fields == null || fields.isBlank() || body == null) return body;
+
+        List<String> names = Arrays.stream(fields.split(","))
+                .map(String::trim)
+                .filter(name -> !name.isEmpty())
+                .toList();
+        if (names.isEmpty()) return body;
+
+        JsonNode tree = jsonMapper.valueToTree(body);
+        if (tree.isArray()) {
+            for (JsonNode element : tree) {
+                if (element instanceof ObjectNode object) object.retain(names);
+            }
+        } else if (tree instanceof ObjectNode object) {
+            object.retain(names);
+        }
+        return tree;
+    }
+}
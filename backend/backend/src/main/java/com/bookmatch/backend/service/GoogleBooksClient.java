@@ -0,0 +1,130 @@
+package com.bookmatch.backend.service;
+
+import com.bookmatch.backend.dto.GoogleBooksResponse;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Cliente HTTP para la API de Google Books.
+ * Usa un único HttpClient del JDK (HTTP/2 con reutilización de conexiones) y devuelve
+ * CompletableFuture, de modo que los hilos de petición no se quedan bloqueados esperando a Google.
+ * Las respuestas se decodifican directamente desde el stream de la respuesta, sin copiarlas
+ * antes a un String o a un buffer intermedio.
+ */
+@Component
+public class GoogleBooksClient {
+
+    // URLs base de la API de Google
+    private static final String SEARCH_URL = "https://www.googleapis.com/books/v1/volumes?q=";
+    private static final String VOLUME_URL = "https://www.googleapis.com/books/v1/volumes/";
+
+    @Autowired
+    private JsonMapper jsonMapper;
+
+    /** Timeout de lectura de cada llamada: hasta recibir y decodificar la respuesta */
+    private final Duration readTimeout;
+
+    /** Hilos del cliente: reciben las respuestas y decodifican el JSON */
+    private final ExecutorService executor;
+
+    private final HttpClient httpClient;
+
+    public GoogleBooksClient(@Value("${app.google-books.connect-timeout-ms:10000}") long connectTimeoutMs,
+                             @Value("${app.google-books.read-timeout-ms:30000}") long readTimeoutMs,
+                             @Value("${app.google-books.threads:8}") int threads) {
+        this.readTimeout = Duration.ofMillis(readTimeoutMs);
+
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "google-books-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        // El timeout de conexión del HttpClient del JDK se configura a nivel de cliente
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(Duration.ofMillis(connectTimeoutMs))
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .executor(executor)
+                .build();
+    }
+
+    /**
+     * Busca volúmenes en Google Books.
+     *
+     * @param query Término de búsqueda (título, autor, ISBN, etc.).
+     * @return Future con la respuesta de Google (nunca null).
+     */
+    public CompletableFuture<GoogleBooksResponse> searchVolumes(String query) {
+        URI uri = URI.create(SEARCH_URL + URLEncoder.encode(query, StandardCharsets.UTF_8));
+        return get(uri, GoogleBooksResponse.class)
+                .thenApply(response -> response != null ? response : new GoogleBooksResponse());
+    }
+
+    /**
+     * Obtiene un volumen concreto de Google Books.
+     *
+     * @param googleId ID del libro en Google Books.
+     * @return Future con el volumen, o con null si Google no lo encuentra.
+     */
+    public CompletableFuture<GoogleBooksResponse.Item> getVolume(String googleId) {
+        URI uri = URI.create(VOLUME_URL + URLEncoder.encode(googleId, StandardCharsets.UTF_8));
+        return get(uri, GoogleBooksResponse.Item.class);
+    }
+
+    /**
+     * Hace un GET y decodifica el cuerpo en streaming.
+     * Un 404 se devuelve como null; cualquier otro error HTTP completa el future con una excepción.
+     */
+    private <T> CompletableFuture<T> get(URI uri, Class<T> type) {
+        HttpRequest request = HttpRequest.newBuilder(uri)
+                .timeout(readTimeout)
+                .header("Accept", "application/json")
+                .GET()
+                .build();
+
+        return httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofInputStream())
+                .thenApplyAsync(response -> decode(response, type), executor)
+                .orTimeout(readTimeout.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    private <T> T decode(HttpResponse<InputStream> response, Class<T> type) {
+        try (InputStream body = response.body()) {
+            int status = response.statusCode();
+            if (status == 404) {
+                return null;
+            }
+            if (status < 200 || status >= 300) {
+                throw new RuntimeException("Error HTTP " + status + " de Google Books");
+            }
+            return jsonMapper.readValue(body, type);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
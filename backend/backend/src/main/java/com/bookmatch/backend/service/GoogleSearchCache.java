@@ -0,0 +1,245 @@
+package com.bookmatch.backend.service;
+
+import com.bookmatch.backend.entity.Book;
+import lombok.Getter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+/**
+ * Caché de resultados de búsqueda de Google Books.
+ * Las claves se normalizan (minúsculas, sin tildes y con los espacios colapsados) para que
+ * "Harry  Potter" y "harry potter" compartan entrada. La capacidad está acotada con expulsión
+ * LRU y cada entrada tiene un TTL: pasado el TTL se sigue sirviendo durante un margen
+ * (stale-while-revalidate) mientras se refresca en segundo plano.
+ * Se guardan objetos {@link SearchHit} compactos en lugar de entidades Book.
+ */
+@Component
+public class GoogleSearchCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(GoogleSearchCache.class);
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private final int maxEntries;
+    private final long ttlMs;
+    private final long staleMs;
+
+    /** Entradas en orden de acceso (la primera es la menos usada recientemente) */
+    private final LinkedHashMap<String, Entry> entries;
+
+    /** Búsquedas en curso por clave, para no lanzar dos veces la misma búsqueda */
+    private final Map<String, CompletableFuture<List<SearchHit>>> inFlight = new ConcurrentHashMap<>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong staleHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong refreshes = new AtomicLong();
+
+    public GoogleSearchCache(@Value("${app.search-cache.max-entries:1000}") int maxEntries,
+                             @Value("${app.search-cache.ttl-ms:600000}") long ttlMs,
+                             @Value("${app.search-cache.stale-ms:3600000}") long staleMs) {
+        this.maxEntries = maxEntries;
+        this.ttlMs = ttlMs;
+        this.staleMs = staleMs;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                if (size() > GoogleSearchCache.this.maxEntries) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Normaliza un término de búsqueda para usarlo como clave.
+     *
+     * @param query Término de búsqueda original.
+     * @return Clave normalizada.
+     */
+    static String normalize(String query) {
+        return WHITESPACE.matcher(TextAnalyzer.fold(query.trim())).replaceAll(" ");
+    }
+
+    /**
+     * Devuelve los resultados de una búsqueda desde la caché o, si no están, los carga.
+     * Si la entrada ha caducado pero sigue dentro del margen, se devuelve igualmente
+     * y se lanza un refresco en segundo plano.
+     *
+     * @param query Término de búsqueda original (es el que se envía a Google).
+     * @param loader Función que obtiene los resultados de Google. Si falla, no se cachea nada.
+     * @return Future con los resultados.
+     */
+    public CompletableFuture<List<SearchHit>> get(String query, Function<String, CompletableFuture<List<SearchHit>>> loader) {
+        String key = normalize(query);
+        long now = System.currentTimeMillis();
+
+        Entry entry;
+        synchronized (entries) {
+            entry = entries.get(key);
+        }
+
+        if (entry != null) {
+            long age = now - entry.fetchedAt;
+            if (age < ttlMs) {
+                hits.incrementAndGet();
+                return CompletableFuture.completedFuture(entry.hits);
+            }
+            if (age < ttlMs + staleMs) {
+                staleHits.incrementAndGet();
+                if (entry.refreshing.compareAndSet(false, true)) {
+                    refreshes.incrementAndGet();
+                    load(key, query, loader).whenComplete((result, error) -> {
+                        if (error != null) {
+                            entry.refreshing.set(false);
+                            logger.warn("No se pudo refrescar la búsqueda '{}': {}", key, error.getMessage());
+                        }
+                    });
+                }
+                return CompletableFuture.completedFuture(entry.hits);
+            }
+        }
+
+        misses.incrementAndGet();
+        return load(key, query, loader);
+    }
+
+    /**
+     * Lanza la carga de una clave (o se une a la que ya está en curso) y guarda el resultado.
+     */
+    private CompletableFuture<List<SearchHit>> load(String key, String query,
+                                                    Function<String, CompletableFuture<List<SearchHit>>> loader) {
+        CompletableFuture<List<SearchHit>> created = new CompletableFuture<>();
+        CompletableFuture<List<SearchHit>> existing = inFlight.putIfAbsent(key, created);
+        if (existing != null) {
+            return existing;
+        }
+
+        CompletableFuture<List<SearchHit>> pending;
+        try {
+            pending = loader.apply(query);
+        } catch (RuntimeException e) {
+            // El cargador ha fallado antes de devolver un future: liberamos la clave para no
+            // dejar a las siguientes peticiones esperando un future que nunca se completa
+            inFlight.remove(key, created);
+            created.completeExceptionally(e);
+            return created;
+        }
+
+        pending.whenComplete((result, error) -> {
+            inFlight.remove(key, created);
+            if (error != null) {
+                created.completeExceptionally(error);
+                return;
+            }
+            List<SearchHit> value = List.copyOf(result);
+            synchronized (entries) {
+                entries.put(key, new Entry(value, System.currentTimeMillis()));
+            }
+            created.complete(value);
+        });
+        return created;
+    }
+
+    /**
+     * Contadores de uso de la caché.
+     *
+     * @return Mapa con aciertos, aciertos caducados, fallos, expulsiones, refrescos y tamaño.
+     */
+    public Map<String, Long> getStats() {
+        long size;
+        synchronized (entries) {
+            size = entries.size();
+        }
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("hits", hits.get());
+        stats.put("staleHits", staleHits.get());
+        stats.put("misses", misses.get());
+        stats.put("evictions", evictions.get());
+        stats.put("refreshes", refreshes.get());
+        stats.put("size", size);
+        stats.put("maxEntries", (long) maxEntries);
+        return stats;
+    }
+
+    /**
+     * Entrada de la caché: resultados y momento en que se obtuvieron.
+     */
+    private static class Entry {
+        final List<SearchHit> hits;
+        final long fetchedAt;
+        final AtomicBoolean refreshing = new AtomicBoolean(false);
+
+        Entry(List<SearchHit> hits, long fetchedAt) {
+            this.hits = hits;
+            this.fetchedAt = fetchedAt;
+        }
+    }
+
+    /**
+     * Resultado de búsqueda compacto: solo los campos que se devuelven al cliente.
+     */
+    @Getter
+    public static final class SearchHit {
+        private final String googleBookId;
+        private final String title;
+        private final String authors;
+        private final String description;
+        private final String summary;
+        private final String publishedDate;
+        private final Integer pageCount;
+        private final Double averageRatingApi;
+        private final String coverUrl;
+
+        private SearchHit(Book book) {
+            this.googleBookId = book.getGoogleBookId();
+            this.title = book.getTitle();
+            this.authors = book.getAuthors();
+            this.description = book.getDescription();
+            this.summary = book.getSummary();
+            this.publishedDate = book.getPublishedDate();
+            this.pageCount = book.getPageCount();
+            this.averageRatingApi = book.getAverageRatingApi();
+            this.coverUrl = book.getCoverUrl();
+        }
+
+        /**
+         * Crea un resultado compacto a partir de un libro convertido desde Google.
+         */
+        public static SearchHit from(Book book) {
+            return new SearchHit(book);
+        }
+
+        /**
+         * Crea un libro nuevo (no persistido) con los datos del resultado.
+         */
+        public Book toBook() {
+            return Book.builder()
+                    .googleBookId(googleBookId)
+                    .title(title)
+                    .authors(authors)
+                    .description(description)
+                    .summary(summary)
+                    .publishedDate(publishedDate)
+                    .pageCount(pageCount)
+                    .averageRatingApi(averageRatingApi)
+                    .coverUrl(coverUrl)
+                    .build();
+        }
+    }
+}
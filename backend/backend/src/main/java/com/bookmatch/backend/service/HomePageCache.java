@@ -0,0 +1,85 @@
+package com.bookmatch.backend.service;
+
+import com.bookmatch.backend.dto.HomeResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.util.List;
+
+/**
+ * Caché de la página principal pública ya serializada.
+ * Guarda varias variantes de la respuesta (una por cada grupo de libros destacados del pool)
+ * serializadas a JSON una sola vez, cada una con su ETag. La variante servida rota cada
+ * cierto tiempo, de forma que todos los clientes ven la misma durante ese intervalo y las
+ * peticiones condicionales pueden responderse con 304.
+ */
+@Component
+public class HomePageCache {
+
+    @Autowired
+    private JsonMapper jsonMapper;
+
+    @Value("${app.home.rotation-interval-ms:30000}")
+    private long rotationIntervalMs;
+
+    /** Variantes publicadas actualmente (null hasta la primera construcción) */
+    private volatile Variant[] variants;
+
+    /**
+     * Devuelve la variante que toca servir en este momento.
+     *
+     * @return La variante actual, o null si todavía no se ha construido ninguna.
+     */
+    public Variant current() {
+        Variant[] current = variants;
+        if (current == null) return null;
+        int index = (int) ((System.currentTimeMillis() / Math.max(rotationIntervalMs, 1)) % current.length);
+        return current[index];
+    }
+
+    /**
+     * Serializa y publica un nuevo conjunto de variantes, sustituyendo al anterior.
+     *
+     * @param responses Respuestas de la página principal (al menos una).
+     */
+    void publish(List<HomeResponse> responses) {
+        Variant[] built = new Variant[responses.size()];
+        for (int i = 0; i < built.length; i++) {
+            HomeResponse response = responses.get(i);
+            byte[] body = jsonMapper.writeValueAsBytes(response);
+            String etag = "\"" + DigestUtils.md5DigestAsHex(body) + "\"";
+            built[i] = new Variant(response, body, etag);
+        }
+        variants = built;
+    }
+
+    /**
+     * Una variante de la página principal: el objeto, su JSON y su ETag.
+     */
+    public static class Variant {
+        private final HomeResponse response;
+        private final byte[] body;
+        private final String etag;
+
+        Variant(HomeResponse response, byte[] body, String etag) {
+            this.response = response;
+            this.body = body;
+            this.etag = etag;
+        }
+
+        public HomeResponse getResponse() {
+            return response;
+        }
+
+        public byte[] getBody() {
+            return body;
+        }
+
+        public String getEtag() {
+            return etag;
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package com.bookmatch.backend.service;
+
+import com.bookmatch.backend.dto.RecommendationResponse;
+import com.bookmatch.backend.event.ReadingStatusChangedEvent;
+import com.bookmatch.backend.event.ReviewSavedEvent;
+import com.bookmatch.backend.event.UserProfileUpdatedEvent;
+import com.bookmatch.backend.repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Recomendaciones precalculadas para la página principal de los usuarios autenticados.
+ * Solo se guardan las de los usuarios activos (los que han entrado o han tenido actividad
+ * dentro de la ventana configurada). Un proceso en segundo plano las recalcula periódicamente
+ * y, con más frecuencia, las de los usuarios que han escrito una reseña, cambiado su estantería
+ * o actualizado su perfil, así que la página principal se monta con una sola lectura del mapa.
+ * Los usuarios inactivos salen del almacén y se recalculan la primera vez que vuelven a entrar.
+ */
+@Component
+public class HomeRecommendationStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(HomeRecommendationStore.class);
+
+    @Autowired
+    private RecommendationService recommendationService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Value("${app.home-recommendations.size:10}")
+    private int size;
+
+    @Value("${app.home-recommendations.active-window-ms:604800000}")
+    private long activeWindowMs;
+
+    private final Map<Long, Entry> entries = new ConcurrentHashMap<>();
+
+    /** Usuarios activos con actividad nueva desde la última pasada */
+    private final Set<Long> dirtyUserIds = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Devuelve las recomendaciones de la página principal de un usuario.
+     * Si el usuario estaba inactivo se calculan en el momento y pasa a estar activo.
+     *
+     * @param userId ID del usuario.
+     * @return Recomendaciones, o null si el usuario no existe.
+     */
+    public List<RecommendationResponse> getRecommendations(Long userId) {
+        Entry entry = entries.get(userId);
+        if (entry != null) {
+            entry.lastSeen = System.currentTimeMillis();
+            return entry.recommendations;
+        }
+
+        if (!userRepository.existsById(userId)) return null;
+        return materialize(userId, System.currentTimeMillis()).recommendations;
+    }
+
+    /**
+     * Recalcula las recomendaciones de los usuarios con actividad reciente.
+     */
+    @Scheduled(initialDelayString = "${app.home-recommendations.dirty-interval-ms:15000}",
+            fixedDelayString = "${app.home-recommendations.dirty-interval-ms:15000}")
+    public void refreshDirtyUsers() {
+        if (dirtyUserIds.isEmpty()) return;
+
+        Set<Long> dirty = new HashSet<>(dirtyUserIds);
+        dirtyUserIds.removeAll(dirty);
+        for (Long userId : dirty) {
+            Entry entry = entries.get(userId);
+            if (entry != null) refresh(userId, entry.lastSeen);
+        }
+    }
+
+    /**
+     * Recalcula las recomendaciones de todos los usuarios activos y saca del almacén
+     * a los que llevan más de la ventana configurada sin entrar.
+     */
+    @Scheduled(initialDelayString = "${app.home-recommendations.refresh-interval-ms:600000}",
+            fixedDelayString = "${app.home-recommendations.refresh-interval-ms:600000}")
+    public void refreshActiveUsers() {
+        long start = System.currentTimeMillis();
+        int refreshed = 0;
+        int evicted = 0;
+
+        for (Map.Entry<Long, Entry> item : new ArrayList<>(entries.entrySet())) {
+            long lastSeen = item.getValue().lastSeen;
+            if (start - lastSeen > activeWindowMs) {
+                entries.remove(item.getKey(), item.getValue());
+                evicted++;
+            } else if (refresh(item.getKey(), lastSeen)) {
+                refreshed++;
+            }
+        }
+
+        logger.info("Recomendaciones de la página principal recalculadas: {} usuarios activos, {} inactivos descartados en {} ms",
+                refreshed, evicted, System.currentTimeMillis() - start);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onReviewSaved(ReviewSavedEvent event) {
+        markDirty(event.getUserId());
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onReadingStatusChanged(ReadingStatusChangedEvent event) {
+        markDirty(event.getUserId());
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onUserProfileUpdated(UserProfileUpdatedEvent event) {
+        markDirty(event.getUserId());
+    }
+
+    /**
+     * Solo se recalculan en segundo plano los usuarios que están en el almacén;
+     * los inactivos se calcularán cuando vuelvan a entrar.
+     */
+    private void markDirty(Long userId) {
+        Entry entry = entries.get(userId);
+        if (entry != null) {
+            entry.lastSeen = System.currentTimeMillis();
+            dirtyUserIds.add(userId);
+        }
+    }
+
+    private boolean refresh(Long userId, long lastSeen) {
+        try {
+            materialize(userId, lastSeen);
+            return true;
+        } catch (RuntimeException e) {
+            // Usuario borrado u otro error: se descarta y se calculará al volver a entrar
+            entries.remove(userId);
+            logger.warn("No se pudieron recalcular las recomendaciones del usuario {}: {}", userId, e.getMessage());
+            return false;
+        }
+    }
+
+    private Entry materialize(Long userId, long lastSeen) {
+        List<RecommendationResponse> recommendations = recommendationService.computeCollaborativeRecommendations(userId);
+        Entry entry = new Entry(List.copyOf(recommendations.subList(0, Math.min(size, recommendations.size()))));
+        Entry previous = entries.get(userId);
+        entry.lastSeen = previous != null ? Math.max(previous.lastSeen, lastSeen) : lastSeen;
+        entries.put(userId, entry);
+        return entry;
+    }
+
+    /**
+     * Recomendaciones precalculadas de un usuario y la última vez que tuvo actividad.
+     */
+    private static class Entry {
+        final List<RecommendationResponse> recommendations;
+        volatile long lastSeen;
+
+        Entry(List<RecommendationResponse> recommendations) {
+            this.recommendations = recommendations;
+        }
+    }
+}
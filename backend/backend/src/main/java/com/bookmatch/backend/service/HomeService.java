@@ -1,19 +1,19 @@
 package com.bookmatch.backend.service;
 
+import com.bookmatch.backend.dto.BookResponse;
+import com.bookmatch.backend.dto.BookSearchResponse;
+import com.bookmatch.backend.dto.BookSummaryResponse;
 import com.bookmatch.backend.dto.HomeResponse;
-import com.bookmatch.backend.entity.Book;
-import com.bookmatch.backend.entity.Genre;
-import com.bookmatch.backend.entity.Tag;
-import com.bookmatch.backend.entity.User;
+import com.bookmatch.backend.dto.RecommendationResponse;
 import com.bookmatch.backend.repository.BookRepository;
-import com.bookmatch.backend.repository.GenreRepository;
-import com.bookmatch.backend.repository.TagRepository;
-import com.bookmatch.backend.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Optional;
 import java.util.stream.Collectors;
 
 /**
@@ -27,92 +27,138 @@ public class HomeService {
     private BookRepository bookRepository;
 
     @Autowired
-    private GenreRepository genreRepository;
+    private HomeRecommendationStore homeRecommendationStore;
 
     @Autowired
-    private TagRepository tagRepository;
+    private CatalogCounterCache catalogCounterCache;
 
     @Autowired
-    private UserRepository userRepository;
+    private HomePageCache homePageCache;
 
     @Autowired
-    private RecommendationService recommendationService;
+    private RandomSampler randomSampler;
+
+    @Autowired
+    private BookSearchIndex bookSearchIndex;
+
+    @Autowired
+    private BookPageService bookPageService;
+
+    @Autowired
+    private BookResponseAssembler bookResponseAssembler;
+
+    @Value("${app.home.featured-pool-size:60}")
+    private int featuredPoolSize;
+
+    @Value("${app.home.featured-size:6}")
+    private int featuredSize;
 
     /**
      * Obtiene datos para la página principal sin usuario autenticado.
      * Devuelve libros destacados, géneros y tags principales.
+     * Se sirve la variante precalculada actual; solo se calcula en el momento si
+     * todavía no se ha construido ninguna. La variante es compartida y sus DTOs son
+     * mutables, así que se devuelve una copia.
      *
      * @return HomeResponse con datos de la página principal pública
      */
     public HomeResponse getHomePagePublic() {
-        List<HomeResponse.GenreDTO> genres = genreRepository.findAll().stream()
-                .limit(10)
-                .map(g -> HomeResponse.GenreDTO.builder()
-                        .genreId(g.getGenreId())
-                        .name(g.getName())
-                        .bookCount((long) g.getBooks().size())
-                        .build())
-                .collect(Collectors.toList());
-
-        List<HomeResponse.TagDTO> tags = tagRepository.findAll().stream()
-                .limit(10)
-                .map(t -> HomeResponse.TagDTO.builder()
-                        .tagId(t.getTagId())
-                        .name(t.getName())
-                        .bookCount((long) t.getBooks().size())
-                        .build())
-                .collect(Collectors.toList());
+        HomePageCache.Variant variant = homePageCache.current();
+        if (variant != null) {
+            return copyOf(variant.getResponse());
+        }
 
-        List<Book> featuredBooks = bookRepository.findRandomBooks(6);
+        List<BookResponse> featuredBooks = bookResponseAssembler.toResponses(randomSampler.sampleBooks(featuredSize));
 
-        return HomeResponse.builder()
-                .featuredBooks(featuredBooks.stream()
-                        .map(this::convertToBookResponse)
-                        .collect(Collectors.toList()))
-                .personalRecommendations(null)
-                .mainGenres(genres)
-                .mainTags(tags)
-                .build();
+        return buildPublicHomePage(featuredBooks, getMainGenres(), getMainTags());
     }
 
     /**
      * Obtiene datos para la página principal de un usuario autenticado.
      * Incluye recomendaciones personalizadas además de libros destacados.
+     * Las recomendaciones salen ya calculadas de HomeRecommendationStore y el resto de la
+     * página es la variante pública actual, así que no se consulta la base de datos
+     * (salvo la primera vez que entra un usuario inactivo).
      *
      * @param userId ID del usuario autenticado
      * @return HomeResponse con datos personalizados
      */
     public HomeResponse getHomePageForUser(Long userId) {
-        Optional<User> user = userRepository.findById(userId);
+        List<RecommendationResponse> recommendations = homeRecommendationStore.getRecommendations(userId);
 
-        if (user.isEmpty()) {
+        if (recommendations == null) {
             return getHomePagePublic();
         }
 
-        List<HomeResponse.GenreDTO> genres = genreRepository.findAll().stream()
-                .limit(10)
-                .map(g -> HomeResponse.GenreDTO.builder()
-                        .genreId(g.getGenreId())
-                        .name(g.getName())
-                        .bookCount((long) g.getBooks().size())
-                        .build())
-                .collect(Collectors.toList());
+        // Los destacados, géneros y tags son los mismos que los de la página pública (ya copiados)
+        HomeResponse publicPage = getHomePagePublic();
 
-        List<HomeResponse.TagDTO> tags = tagRepository.findAll().stream()
-                .limit(10)
-                .map(t -> HomeResponse.TagDTO.builder()
-                        .tagId(t.getTagId())
-                        .name(t.getName())
-                        .bookCount((long) t.getBooks().size())
-                        .build())
-                .collect(Collectors.toList());
+        return HomeResponse.builder()
+                .featuredBooks(publicPage.getFeaturedBooks())
+                .personalRecommendations(new ArrayList<>(recommendations))
+                .mainGenres(publicPage.getMainGenres())
+                .mainTags(publicPage.getMainTags())
+                .build();
+    }
+
+    /**
+     * Reconstruye periódicamente la página principal pública.
+     * Se toma un pool de libros aleatorios, se reparte en grupos del tamaño de la sección
+     * de destacados y cada grupo se publica como una variante ya serializada.
+     */
+    @Scheduled(fixedDelayString = "${app.home.refresh-interval-ms:300000}")
+    @Transactional(readOnly = true)
+    public void refreshPublicHomePage() {
+        List<BookResponse> pool = bookResponseAssembler.toResponses(randomSampler.sampleBooks(featuredPoolSize));
+
+        List<HomeResponse.GenreDTO> genres = getMainGenres();
+        List<HomeResponse.TagDTO> tags = getMainTags();
+
+        // Solo grupos completos, salvo que el catálogo no llegue a uno
+        int slices = Math.max(1, pool.size() / featuredSize);
+        List<HomeResponse> variants = new ArrayList<>(slices);
+        for (int i = 0; i < slices; i++) {
+            int from = Math.min(i * featuredSize, pool.size());
+            int to = Math.min(from + featuredSize, pool.size());
+            variants.add(buildPublicHomePage(List.copyOf(pool.subList(from, to)), genres, tags));
+        }
+
+        homePageCache.publish(variants);
+    }
 
-        List<Book> featuredBooks = bookRepository.findRandomBooks(6);
+    /**
+     * Copia de una página principal cacheada, con sus listas y los DTOs que contienen.
+     */
+    private static HomeResponse copyOf(HomeResponse response) {
+        List<BookResponse> featuredBooks = null;
+        if (response.getFeaturedBooks() != null) {
+            featuredBooks = new ArrayList<>(response.getFeaturedBooks().size());
+            for (BookResponse book : response.getFeaturedBooks()) {
+                featuredBooks.add(book.toBuilder()
+                        .genres(book.getGenres() != null ? new ArrayList<>(book.getGenres()) : null)
+                        .tags(book.getTags() != null ? new ArrayList<>(book.getTags()) : null)
+                        .build());
+            }
+        }
+        return response.toBuilder()
+                .featuredBooks(featuredBooks)
+                .mainGenres(response.getMainGenres() != null
+                        ? response.getMainGenres().stream().map(g -> g.toBuilder().build()).collect(Collectors.toList())
+                        : null)
+                .mainTags(response.getMainTags() != null
+                        ? response.getMainTags().stream().map(t -> t.toBuilder().build()).collect(Collectors.toList())
+                        : null)
+                .build();
+    }
 
+    /**
+     * Construye la respuesta de la página principal pública.
+     */
+    private HomeResponse buildPublicHomePage(List<BookResponse> featuredBooks,
+                                             List<HomeResponse.GenreDTO> genres,
+                                             List<HomeResponse.TagDTO> tags) {
         return HomeResponse.builder()
-                .featuredBooks(featuredBooks.stream()
-                        .map(this::convertToBookResponse)
-                        .collect(Collectors.toList()))
+                .featuredBooks(featuredBooks)
                 .personalRecommendations(null)
                 .mainGenres(genres)
                 .mainTags(tags)
@@ -120,68 +166,69 @@ public class HomeService {
     }
 
     /**
-     * Busca libros por término de búsqueda.
-     * Busca en título, autores y descripción.
-     *
-     * @param query Término de búsqueda
-     * @return Lista de libros que coinciden con la búsqueda
+     * Obtiene los 10 primeros géneros con su número de libros desde la caché de contadores.
      */
-    public List<Book> searchBooks(String query) {
-        // Nota: Se recomienda implementar una query personalizada en BookRepository
-        // Por ahora se devuelve todos los libros como placeholder
-        return bookRepository.findAll();
+    private List<HomeResponse.GenreDTO> getMainGenres() {
+        return catalogCounterCache.getGenreCounts().stream()
+                .limit(10)
+                .map(g -> HomeResponse.GenreDTO.builder()
+                        .genreId(g.getId())
+                        .name(g.getName())
+                        .bookCount(g.getBookCount())
+                        .build())
+                .collect(Collectors.toList());
     }
 
     /**
-     * Obtiene libros por un género específico.
-     *
-     * @param genreId ID del género
-     * @return Lista de libros del género
+     * Obtiene las 10 primeras etiquetas con su número de libros desde la caché de contadores.
      */
-    public List<Book> getBooksByGenre(Long genreId) {
-        return genreRepository.findById(genreId)
-                .map(g -> g.getBooks().stream()
-                        .collect(Collectors.toList()))
-                .orElse(List.of());
+    private List<HomeResponse.TagDTO> getMainTags() {
+        return catalogCounterCache.getTagCounts().stream()
+                .limit(10)
+                .map(t -> HomeResponse.TagDTO.builder()
+                        .tagId(t.getId())
+                        .name(t.getName())
+                        .bookCount(t.getBookCount())
+                        .build())
+                .collect(Collectors.toList());
     }
 
     /**
-     * Obtiene libros por una etiqueta específica.
+     * Busca libros en el catálogo local por término de búsqueda.
+     * Busca en título, autores, descripción e ISBN usando el índice de texto completo,
+     * con los resultados ordenados por relevancia.
      *
-     * @param tagId ID de la etiqueta
-     * @return Lista de libros con la etiqueta
+     * @param query Término de búsqueda
+     * @param prefix Si la última palabra se completa como prefijo (autocompletado)
+     * @param page Número de página (empezando en 0)
+     * @param size Tamaño de la página
+     * @return Página de libros que coinciden con la búsqueda
      */
-    public List<Book> getBooksByTag(Long tagId) {
-        return tagRepository.findById(tagId)
-                .map(t -> t.getBooks().stream()
-                        .collect(Collectors.toList()))
-                .orElse(List.of());
-    }
+    public BookSearchResponse searchBooks(String query, boolean prefix, int page, int size) {
+        int pageSize = Math.max(1, Math.min(size, 100));
+        int pageNumber = Math.max(0, page);
+        // En long para que un número de página muy grande no desborde y dé un desplazamiento negativo
+        long offset = (long) pageNumber * pageSize;
+
+        List<BookSummaryResponse> books = new ArrayList<>();
+        long totalHits = 0;
+        if (query != null && offset < BookSearchIndex.MAX_RESULTS) {
+            int from = (int) offset;
+            BookSearchIndex.SearchResult result = bookSearchIndex.search(query, prefix, from + pageSize);
+            long[] ids = result.getBookIds();
+            List<Long> pageIds = new ArrayList<>();
+            for (int i = from; i < ids.length; i++) {
+                pageIds.add(ids[i]);
+            }
+            books = bookPageService.getSummaries(pageIds);
+            totalHits = result.getTotalHits();
+        }
 
-    /**
-     * Convierte una entidad Book a DTO BookResponse.
-     *
-     * @param book Entidad Book a convertir
-     * @return BookResponse con los datos del libro
-     */
-    private com.bookmatch.backend.dto.BookResponse convertToBookResponse(Book book) {
-        return com.bookmatch.backend.dto.BookResponse.builder()
-                .bookId(book.getBookId())
-                .googleBookId(book.getGoogleBookId())
-                .title(book.getTitle())
-                .authors(book.getAuthors())
-                .description(book.getDescription())
-                .isbn(book.getIsbn())
-                .pageCount(book.getPageCount())
-                .publishedDate(book.getPublishedDate())
-                .coverUrl(book.getCoverUrl())
-                .averageRatingApi(book.getAverageRatingApi())
-                .genres(book.getGenres().stream()
-                        .map(Genre::getName)
-                        .collect(Collectors.toList()))
-                .tags(book.getTags().stream()
-                        .map(Tag::getName)
-                        .collect(Collectors.toList()))
+        return BookSearchResponse.builder()
+                .books(books)
+                .totalHits(totalHits)
+                .page(pageNumber)
+                .size(pageSize)
                 .build();
     }
 }
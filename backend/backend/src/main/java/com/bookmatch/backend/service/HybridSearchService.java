@@ -0,0 +1,301 @@
+package com.bookmatch.backend.service;
+
+import com.bookmatch.backend.dto.BookResponse;
+import com.bookmatch.backend.dto.HybridSearchResponse;
+import com.bookmatch.backend.entity.Book;
+import com.bookmatch.backend.repository.BookRepository;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Búsqueda combinada: consulta a la vez el índice local y Google Books y mezcla los resultados
+ * por googleBookId. La puntuación de cada libro combina la relevancia del texto (BM25 en el índice
+ * local, posición en la lista de Google) con su popularidad en BookMatch (reseñas).
+ * Google tiene un presupuesto de tiempo fijo: si no responde a tiempo se devuelven solo los
+ * resultados locales, marcados como incompletos; si falla, además se marca el fallo.
+ * La mezcla consulta la base de datos, así que se ejecuta en un pool propio y no en el
+ * ForkJoinPool común ni en los hilos del cliente de Google.
+ */
+@Service
+public class HybridSearchService {
+
+    /** Origen de cada resultado */
+    public static final String SOURCE_LOCAL = "local";
+    public static final String SOURCE_GOOGLE = "google";
+    public static final String SOURCE_BOTH = "both";
+
+    /** Resultados que se piden al índice local */
+    private static final int LOCAL_LIMIT = 20;
+
+    /** Peso de la relevancia del texto frente a la popularidad */
+    private static final double TEXT_WEIGHT = 0.7;
+    private static final double POPULARITY_WEIGHT = 0.3;
+
+    @Autowired
+    private BookSearchIndex bookSearchIndex;
+
+    @Autowired
+    private BookService bookService;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private BookResponseAssembler bookResponseAssembler;
+
+    @Value("${app.hybrid-search.google-budget-ms:800}")
+    private long googleBudgetMs;
+
+    /** Hilos que mezclan los resultados cuando responde Google */
+    private final ExecutorService mergeExecutor;
+
+    public HybridSearchService(@Value("${app.hybrid-search.merge-threads:4}") int mergeThreads) {
+        AtomicInteger counter = new AtomicInteger();
+        this.mergeExecutor = Executors.newFixedThreadPool(mergeThreads, runnable -> {
+            Thread thread = new Thread(runnable, "hybrid-merge-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Búsqueda combinada completa: espera a Google como mucho el presupuesto configurado.
+     *
+     * @param query Término de búsqueda.
+     * @return Future con los resultados mezclados (nunca se completa con error).
+     */
+    public CompletableFuture<HybridSearchResponse> search(String query) {
+        // Google se lanza primero para que corra mientras se consulta el índice local
+        CompletableFuture<GoogleHits> google = searchGoogle(query);
+        LocalHits local = searchLocal(query);
+        return mergeWhenReady(local, google);
+    }
+
+    /**
+     * Mezcla los resultados locales con los de Google cuando estos lleguen (o venza el
+     * presupuesto), en el pool de mezcla.
+     *
+     * @param local Resultados locales.
+     * @param google Future devuelto por {@link #searchGoogle(String)}.
+     * @return Future con los resultados mezclados.
+     */
+    public CompletableFuture<HybridSearchResponse> mergeWhenReady(LocalHits local, CompletableFuture<GoogleHits> google) {
+        // La mezcla consulta la base de datos: no se hace en el hilo del temporizador del presupuesto
+        return google.thenApplyAsync(hits -> merge(local, hits), mergeExecutor);
+    }
+
+    /**
+     * Busca en el índice local (en memoria; es la parte rápida de la búsqueda).
+     *
+     * @param query Término de búsqueda.
+     * @return Resultados locales con su puntuación de texto.
+     */
+    public LocalHits searchLocal(String query) {
+        BookSearchIndex.SearchResult result = bookSearchIndex.search(query, true, LOCAL_LIMIT);
+        long[] ids = result.getBookIds();
+        double[] scores = result.getScores();
+
+        Map<Long, Double> scoreById = new LinkedHashMap<>();
+        for (int i = 0; i < ids.length; i++) {
+            scoreById.put(ids[i], scores[i]);
+        }
+
+        List<BookRepository.BookSummaryView> views = scoreById.isEmpty()
+                ? List.of()
+                : bookRepository.findSummariesByIds(scoreById.keySet());
+        return new LocalHits(scoreById, views);
+    }
+
+    /**
+     * Lanza la búsqueda en Google Books con el presupuesto de tiempo.
+     *
+     * @param query Término de búsqueda.
+     * @return Future con los libros de Google ({@link GoogleHits#PENDING} si no han llegado a
+     *         tiempo, {@link GoogleHits#FAILED} si la llamada ha fallado). Nunca se completa con error.
+     */
+    public CompletableFuture<GoogleHits> searchGoogle(String query) {
+        return bookService.searchBooksInGoogleOrFail(query)
+                .thenApply(GoogleHits::new)
+                .exceptionally(e -> GoogleHits.FAILED)
+                .completeOnTimeout(GoogleHits.PENDING, googleBudgetMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Mezcla los resultados locales con los de Google y los ordena.
+     *
+     * @param local Resultados locales.
+     * @param hits Resultado de Google ({@link GoogleHits#PENDING} si todavía no ha llegado).
+     * @return Respuesta con los resultados ordenados.
+     */
+    public HybridSearchResponse merge(LocalHits local, GoogleHits hits) {
+        List<Book> google = hits.books;
+        Map<String, Candidate> byGoogleId = new LinkedHashMap<>();
+
+        // Relevancia local: BM25 normalizado respecto al mejor resultado
+        double maxScore = local.scoreById.values().stream().mapToDouble(Double::doubleValue).max().orElse(0);
+        for (BookRepository.BookSummaryView view : local.views) {
+            Candidate candidate = new Candidate(SOURCE_LOCAL);
+            candidate.view = view;
+            candidate.text = maxScore > 0 ? local.scoreById.get(view.getBookId()) / maxScore : 0;
+            byGoogleId.put(view.getGoogleBookId(), candidate);
+        }
+
+        if (google != null && !google.isEmpty()) {
+            // Relevancia de Google: su propia ordenación, de 1 (primero) hacia 0
+            List<String> unknownIds = new ArrayList<>();
+            for (int i = 0; i < google.size(); i++) {
+                Book book = google.get(i);
+                double relevance = 1.0 - (double) i / google.size();
+                Candidate candidate = byGoogleId.get(book.getGoogleBookId());
+                if (candidate != null) {
+                    candidate.source = SOURCE_BOTH;
+                    candidate.text = Math.max(candidate.text, relevance);
+                } else {
+                    candidate = new Candidate(SOURCE_GOOGLE);
+                    candidate.remote = book;
+                    candidate.text = relevance;
+                    byGoogleId.put(book.getGoogleBookId(), candidate);
+                    unknownIds.add(book.getGoogleBookId());
+                }
+            }
+
+            // Libros de Google que ya están en el catálogo aunque el índice local no los haya devuelto
+            if (!unknownIds.isEmpty()) {
+                for (BookRepository.BookSummaryView view : bookRepository.findSummariesByGoogleBookIds(unknownIds)) {
+                    Candidate candidate = byGoogleId.get(view.getGoogleBookId());
+                    if (candidate != null) {
+                        candidate.view = view;
+                        candidate.source = SOURCE_BOTH;
+                    }
+                }
+            }
+        }
+
+        return rank(byGoogleId.values(), google != null, hits.failed);
+    }
+
+    /**
+     * Completa los datos locales (géneros, etiquetas y reseñas) con consultas IN y ordena
+     * por la puntuación combinada.
+     */
+    private HybridSearchResponse rank(Collection<Candidate> candidates, boolean googleComplete, boolean googleFailed) {
+        List<BookRepository.BookSummaryView> views = candidates.stream()
+                .filter(c -> c.view != null)
+                .map(c -> c.view)
+                .toList();
+        Map<Long, BookResponse> localBooks = new HashMap<>();
+        for (BookResponse book : bookResponseAssembler.fromSummaries(views)) {
+            localBooks.put(book.getBookId(), book);
+        }
+
+        // Popularidad: log(1 + reseñas) ponderado por la valoración media, normalizado al máximo
+        double maxPopularity = 0;
+        for (Candidate candidate : candidates) {
+            BookResponse local = candidate.view != null ? localBooks.get(candidate.view.getBookId()) : null;
+            if (local != null && local.getCommunityRating() != null) {
+                candidate.popularity = Math.log1p(local.getTotalReviews()) * local.getCommunityRating() / 5.0;
+                maxPopularity = Math.max(maxPopularity, candidate.popularity);
+            }
+        }
+
+        List<HybridSearchResponse.HitDTO> results = new ArrayList<>(candidates.size());
+        for (Candidate candidate : candidates) {
+            double popularity = maxPopularity > 0 ? candidate.popularity / maxPopularity : 0;
+            double score = TEXT_WEIGHT * candidate.text + POPULARITY_WEIGHT * popularity;
+
+            BookResponse book;
+            if (candidate.view != null) {
+                book = localBooks.get(candidate.view.getBookId());
+            } else {
+                book = bookResponseAssembler.fromRemote(candidate.remote);
+            }
+
+            results.add(HybridSearchResponse.HitDTO.builder()
+                    .book(book)
+                    .source(candidate.source)
+                    .score(score)
+                    .build());
+        }
+        results.sort(Comparator.comparingDouble(HybridSearchResponse.HitDTO::getScore).reversed());
+
+        return HybridSearchResponse.builder()
+                .results(results)
+                .googleComplete(googleComplete)
+                .googleFailed(googleFailed)
+                .build();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        mergeExecutor.shutdownNow();
+    }
+
+    /**
+     * Resultado de la parte de Google: los libros encontrados, o null si no han llegado
+     * (todavía o dentro del presupuesto) o si la llamada ha fallado.
+     */
+    public static final class GoogleHits {
+        /** Google todavía no ha respondido o no lo hizo dentro del presupuesto */
+        public static final GoogleHits PENDING = new GoogleHits(null, false);
+
+        /** La llamada a Google ha fallado */
+        public static final GoogleHits FAILED = new GoogleHits(null, true);
+
+        private final List<Book> books;
+        private final boolean failed;
+
+        private GoogleHits(List<Book> books) {
+            this(books, false);
+        }
+
+        private GoogleHits(List<Book> books, boolean failed) {
+            this.books = books;
+            this.failed = failed;
+        }
+    }
+
+    /**
+     * Resultados del índice local: puntuación BM25 por bookId y datos de listado.
+     */
+    public static final class LocalHits {
+        private final Map<Long, Double> scoreById;
+        private final List<BookRepository.BookSummaryView> views;
+
+        private LocalHits(Map<Long, Double> scoreById, List<BookRepository.BookSummaryView> views) {
+            this.scoreById = scoreById;
+            this.views = views;
+        }
+    }
+
+    /**
+     * Resultado candidato durante la mezcla.
+     */
+    private static final class Candidate {
+        String source;
+        /** Datos locales (null si el libro no está en el catálogo) */
+        BookRepository.BookSummaryView view;
+        /** Datos de Google (solo si el libro no está en el catálogo) */
+        Book remote;
+        double text;
+        double popularity;
+
+        Candidate(String source) {
+            this.source = source;
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package com.bookmatch.backend.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import tools.jackson.core.JsonGenerator;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+
+/**
+ * Exportación de la biblioteca completa de un usuario: estados de lectura, listas
+ * personalizadas con sus libros y reseñas.
+ * Las filas se leen con un cursor JDBC de solo avance (streaming del driver de MySQL)
+ * y se escriben directamente en el OutputStream de la respuesta, sin cargar entidades
+ * ni acumular el resultado en memoria. El orden es estable, así que una exportación
+ * interrumpida se puede retomar indicando cuántas filas se recibieron (offset).
+ */
+@Service
+public class LibraryExportService {
+
+    /** Formatos de exportación soportados */
+    public static final String FORMAT_NDJSON = "ndjson";
+    public static final String FORMAT_CSV = "csv";
+
+    private static final String[] COLUMNS = {
+            "type", "entryId", "listName", "googleBookId", "title", "authors",
+            "status", "rating", "comment", "date"
+    };
+
+    /**
+     * Una fila por entrada, en un orden fijo: estados, listas (una fila por libro) y reseñas.
+     * El LIMIT con el máximo de MySQL permite aplicar solo el offset.
+     */
+    private static final String EXPORT_SQL =
+            "SELECT * FROM (" +
+            " SELECT 1 AS section, 'reading_status' AS type, rs.status_id AS entry_id, NULL AS list_name," +
+            "  b.book_id, b.google_book_id, b.title, b.authors, rs.status, NULL AS rating, NULL AS comment," +
+            "  rs.updated_at AS entry_date" +
+            " FROM reading_status rs JOIN books b ON b.book_id = rs.book_id WHERE rs.user_id = ?" +
+            " UNION ALL" +
+            " SELECT 2, 'custom_list', cl.list_id, cl.name," +
+            "  b.book_id, b.google_book_id, b.title, b.authors, NULL, NULL, NULL, cl.created_at" +
+            " FROM custom_lists cl" +
+            " LEFT JOIN custom_list_books clb ON clb.list_id = cl.list_id" +
+            " LEFT JOIN books b ON b.book_id = clb.book_id" +
+            " WHERE cl.user_id = ?" +
+            " UNION ALL" +
+            " SELECT 3, 'review', r.review_id, NULL," +
+            "  b.book_id, b.google_book_id, b.title, b.authors, NULL, r.rating, r.comment, r.created_at" +
+            " FROM reviews r JOIN books b ON b.book_id = r.book_id WHERE r.user_id = ?" +
+            ") entries ORDER BY section, entry_id, book_id LIMIT ?, 18446744073709551615";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private JsonMapper jsonMapper;
+
+    /**
+     * Indica si el formato pedido está soportado.
+     */
+    public boolean isSupportedFormat(String format) {
+        return FORMAT_NDJSON.equals(format) || FORMAT_CSV.equals(format);
+    }
+
+    /**
+     * Escribe la biblioteca del usuario en el formato indicado.
+     *
+     * @param userId ID del usuario.
+     * @param format {@link #FORMAT_NDJSON} o {@link #FORMAT_CSV}.
+     * @param offset Número de filas a saltar (para retomar una exportación).
+     * @param out Stream de salida (normalmente el de la respuesta HTTP).
+     */
+    public void export(Long userId, String format, long offset, OutputStream out) {
+        if (FORMAT_CSV.equals(format)) {
+            exportCsv(userId, offset, out);
+        } else {
+            exportNdjson(userId, offset, out);
+        }
+    }
+
+    private void exportNdjson(Long userId, long offset, OutputStream out) {
+        try (JsonGenerator generator = jsonMapper.writer()
+                .withRootValueSeparator("\n")
+                .createGenerator(out)) {
+            streamRows(userId, offset, rs -> {
+                generator.writeStartObject();
+                generator.writeStringProperty("type", rs.getString("type"));
+                writeLong(generator, "entryId", rs, "entry_id");
+                generator.writeStringProperty("listName", rs.getString("list_name"));
+                generator.writeStringProperty("googleBookId", rs.getString("google_book_id"));
+                generator.writeStringProperty("title", rs.getString("title"));
+                generator.writeStringProperty("authors", rs.getString("authors"));
+                generator.writeStringProperty("status", rs.getString("status"));
+                writeLong(generator, "rating", rs, "rating");
+                generator.writeStringProperty("comment", rs.getString("comment"));
+                generator.writeStringProperty("date", formatDate(rs.getTimestamp("entry_date")));
+                generator.writeEndObject();
+            });
+            generator.writeRaw('\n');
+        }
+    }
+
+    private void exportCsv(Long userId, long offset, OutputStream out) {
+        try {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+            writer.write(String.join(",", COLUMNS));
+            writer.write('\n');
+            streamRows(userId, offset, rs -> {
+                try {
+                    writer.write(csv(rs.getString("type")));
+                    writer.write(',');
+                    writer.write(csv(rs.getString("entry_id")));
+                    writer.write(',');
+                    writer.write(csv(rs.getString("list_name")));
+                    writer.write(',');
+                    writer.write(csv(rs.getString("google_book_id")));
+                    writer.write(',');
+                    writer.write(csv(rs.getString("title")));
+                    writer.write(',');
+                    writer.write(csv(rs.getString("authors")));
+                    writer.write(',');
+                    writer.write(csv(rs.getString("status")));
+                    writer.write(',');
+                    writer.write(csv(rs.getString("rating")));
+                    writer.write(',');
+                    writer.write(csv(rs.getString("comment")));
+                    writer.write(',');
+                    writer.write(csv(formatDate(rs.getTimestamp("entry_date"))));
+                    writer.write('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            writer.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Recorre las filas con un cursor de solo avance. Con fetchSize = Integer.MIN_VALUE
+     * el driver de MySQL entrega las filas una a una en lugar de cargar todo el resultado.
+     */
+    private void streamRows(Long userId, long offset, RowCallbackHandler rowHandler) {
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(EXPORT_SQL,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            statement.setFetchSize(Integer.MIN_VALUE);
+            statement.setLong(1, userId);
+            statement.setLong(2, userId);
+            statement.setLong(3, userId);
+            statement.setLong(4, Math.max(0, offset));
+            return statement;
+        }, rowHandler);
+    }
+
+    private void writeLong(JsonGenerator generator, String name, ResultSet rs, String column) throws SQLException {
+        long value = rs.getLong(column);
+        if (rs.wasNull()) {
+            generator.writeNullProperty(name);
+        } else {
+            generator.writeNumberProperty(name, value);
+        }
+    }
+
+    private String formatDate(Timestamp timestamp) {
+        return timestamp != null ? timestamp.toLocalDateTime().toString() : null;
+    }
+
+    /**
+     * Escapa un valor para CSV (RFC 4180): entre comillas si contiene comas, comillas o saltos de línea.
+     */
+    private String csv(String value) {
+        if (value == null) return "";
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return "\"" + value.replace("\"", "\"\"") + "\"";
+    }
+}
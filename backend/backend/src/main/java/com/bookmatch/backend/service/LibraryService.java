@@ -1,14 +1,26 @@
 package com.bookmatch.backend.service;
 
+import com.bookmatch.backend.dto.BookResponse;
 import com.bookmatch.backend.dto.BookStatusRequest;
+import com.bookmatch.backend.dto.CustomListResponse;
 import com.bookmatch.backend.entity.Book;
+import com.bookmatch.backend.entity.CustomList;
 import com.bookmatch.backend.entity.ReadingStatus;
 import com.bookmatch.backend.entity.User;
+import com.bookmatch.backend.event.ReadingStatusChangedEvent;
+import com.bookmatch.backend.repository.BookRepository;
+import com.bookmatch.backend.repository.CustomListRepository;
 import com.bookmatch.backend.repository.ReadingStatusRepository;
 import com.bookmatch.backend.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 /**
@@ -27,6 +39,15 @@ public class LibraryService {
     @Autowired
     private BookService bookService;
 
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private CustomListRepository customListRepository;
+
+    @Autowired
+    private BookRepository bookRepository;
+
     /**
      * Actualiza el estado de lectura de un libro para el usuario.
      * Si el libro no existe en base de datos, lo obtiene de Google Books.
@@ -65,6 +86,83 @@ public class LibraryService {
                     .build();
         }
 
-        return readingStatusRepository.save(statusToSave);
+        ReadingStatus saved = readingStatusRepository.save(statusToSave);
+
+        // 4. Avisar a los componentes que dependen de las estanterías (filtrado colaborativo)
+        eventPublisher.publishEvent(new ReadingStatusChangedEvent(user.getUserId(), book.getBookId()));
+
+        return saved;
+    }
+
+    /**
+     * Obtiene las listas personalizadas de un usuario con sus libros.
+     * Las listas y los libros de todas ellas se leen con dos consultas de proyección.
+     *
+     * @param userId ID del usuario.
+     * @return Listas del usuario en orden de creación.
+     */
+    public List<CustomListResponse> getCustomLists(Long userId) {
+        Map<Long, List<BookResponse>> booksByList = new HashMap<>();
+        for (CustomListRepository.ListBookView view : customListRepository.findBookViewsByUserId(userId)) {
+            booksByList.computeIfAbsent(view.getListId(), id -> new ArrayList<>()).add(BookResponse.builder()
+                    .bookId(view.getBookId())
+                    .googleBookId(view.getGoogleBookId())
+                    .title(view.getTitle())
+                    .authors(view.getAuthors())
+                    .coverUrl(view.getCoverUrl())
+                    .build());
+        }
+
+        return customListRepository.findViewsByUserId(userId).stream()
+                .map(view -> {
+                    List<BookResponse> books = booksByList.getOrDefault(view.getListId(), List.of());
+                    return CustomListResponse.builder()
+                            .listId(view.getListId())
+                            .name(view.getName())
+                            .description(view.getDescription())
+                            .isPublic(view.getIsPublic())
+                            .bookCount(books.size())
+                            .books(books)
+                            .build();
+                })
+                .toList();
+    }
+
+    /**
+     * Añade un libro a una lista personalizada.
+     *
+     * @param listId ID de la lista.
+     * @param bookId ID del libro.
+     * @throws RuntimeException Si la lista o el libro no existen.
+     */
+    @Transactional
+    public void addBookToList(Long listId, Long bookId) {
+        CustomList list = customListRepository.findById(listId)
+                .orElseThrow(() -> new RuntimeException("Lista no encontrada"));
+
+        Book book = bookRepository.findById(bookId)
+                .orElseThrow(() -> new RuntimeException("Libro no encontrado"));
+
+        list.getBooks().add(book);
+        customListRepository.save(list);
+    }
+
+    /**
+     * Elimina un libro de una lista personalizada.
+     *
+     * @param listId ID de la lista.
+     * @param bookId ID del libro.
+     * @throws RuntimeException Si la lista o el libro no existen.
+     */
+    @Transactional
+    public void removeBookFromList(Long listId, Long bookId) {
+        CustomList list = customListRepository.findById(listId)
+                .orElseThrow(() -> new RuntimeException("Lista no encontrada"));
+
+        Book book = bookRepository.findById(bookId)
+                .orElseThrow(() -> new RuntimeException("Libro no encontrado"));
+
+        list.getBooks().remove(book);
+        customListRepository.save(list);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,95 @@
+package com.bookmatch.backend.service;
+
+import java.util.Arrays;
+
+/**
+ * Mapa long -> int con direccionamiento abierto (sondeo lineal) sobre arrays primitivos.
+ * Se usa para traducir IDs de la base de datos (userId, bookId) a posiciones densas
+ * sin crear un Long y una entrada de HashMap por cada clave.
+ * No admite borrados; no es seguro para varios hilos escribiendo a la vez.
+ */
+final class LongIntMap {
+
+    private static final long EMPTY = Long.MIN_VALUE;
+
+    private long[] keys;
+    private int[] values;
+    private int size;
+
+    /**
+     * @param expectedSize Número de claves previsto (para no redimensionar).
+     */
+    LongIntMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(4, expectedSize * 2 - 1)) << 1;
+        keys = new long[capacity];
+        values = new int[capacity];
+        Arrays.fill(keys, EMPTY);
+    }
+
+    /**
+     * @return El valor de la clave, o -1 si no está.
+     */
+    int get(long key) {
+        int mask = keys.length - 1;
+        int slot = mix(key) & mask;
+        while (keys[slot] != EMPTY) {
+            if (keys[slot] == key) return values[slot];
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * Devuelve el valor de la clave; si no está, la añade con el valor indicado.
+     */
+    int getOrPut(long key, int value) {
+        int existing = get(key);
+        if (existing >= 0) return existing;
+        put(key, value);
+        return value;
+    }
+
+    void put(long key, int value) {
+        if ((size + 1) * 2 > keys.length) resize();
+        int mask = keys.length - 1;
+        int slot = mix(key) & mask;
+        while (keys[slot] != EMPTY && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        if (keys[slot] == EMPTY) size++;
+        keys[slot] = key;
+        values[slot] = value;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return Copia independiente del mapa.
+     */
+    LongIntMap copy() {
+        LongIntMap copy = new LongIntMap(4);
+        copy.keys = keys.clone();
+        copy.values = values.clone();
+        copy.size = size;
+        return copy;
+    }
+
+    private void resize() {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new long[oldKeys.length * 2];
+        values = new int[oldValues.length * 2];
+        Arrays.fill(keys, EMPTY);
+        size = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) put(oldKeys[i], oldValues[i]);
+        }
+    }
+
+    private static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
@@ -0,0 +1,262 @@
+package com.bookmatch.backend.service;
+
+import com.bookmatch.backend.repository.BookRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Buscador de libros para el cuestionario de "Siguiente Lectura".
+ * Primero pide a la base de datos una preselección de candidatos (género o emoción
+ * elegidos y número de páginas) y solo la puntúa en Java. La preselección solo se da por
+ * buena si ningún libro que se haya quedado fuera (por no coincidir o por el límite de
+ * tamaño) puede superar al K-ésimo; si no, o si es demasiado pequeña, recorre el catálogo
+ * completo por páginas (paginación por clave sobre bookId), así que el resultado es siempre
+ * el mismo que el del recorrido completo. En ambos casos se usa el mismo scorer de tipos
+ * primitivos y se conservan únicamente los K mejores en un montículo acotado.
+ */
+@Component
+public class QuizMatcher {
+
+    /** Número de libros que se devuelven como recomendación de relleno si ninguno puntúa */
+    private static final int FALLBACK_SIZE = 5;
+
+    /** Puntuación asignada a los libros de relleno */
+    private static final double FALLBACK_SCORE = 50.0;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Value("${app.quiz.scan-page-size:1000}")
+    private int pageSize;
+
+    @Value("${app.quiz.shortlist-size:500}")
+    private int shortlistSize;
+
+    @Value("${app.quiz.shortlist-min-size:4}")
+    private int shortlistMinSize;
+
+    /**
+     * Devuelve los K libros con mejor puntuación para las respuestas del cuestionario.
+     * Usa la preselección de la base de datos y, si no es suficiente, el recorrido completo.
+     *
+     * @param analysis Preferencias extraídas de las respuestas del cuestionario.
+     * @param k Número de libros a devolver.
+     * @return Resultado con los IDs y puntuaciones ordenados de mayor a menor.
+     * @throws RuntimeException Si no hay libros en el catálogo.
+     */
+    MatchResult findBestMatches(QuizService.QuizAnalysis analysis, int k) {
+        if (analysis.preferredGenre != null || analysis.preferredEmotion != null) {
+            List<BookRepository.QuizCandidateView> shortlist = bookRepository.findQuizShortlist(
+                    analysis.preferredGenre, analysis.preferredEmotion, analysis.maxPageCount,
+                    PageRequest.of(0, shortlistSize));
+
+            if (shortlist.size() >= Math.max(k, shortlistMinSize)) {
+                double outsideBound = outsideShortlistBound(shortlist, analysis);
+
+                // Se puntúa en orden de bookId para que los empates se resuelvan igual que en el recorrido
+                List<BookRepository.QuizCandidateView> byId = new ArrayList<>(shortlist);
+                byId.sort(Comparator.comparing(BookRepository.QuizCandidateView::getBookId));
+
+                TopKHeap heap = new TopKHeap(k);
+                scorePage(byId, analysis, heap, null);
+                if (heap.size() >= k && heap.minScore() > outsideBound) {
+                    return new MatchResult(heap.sortedIds(), heap.sortedScores());
+                }
+            }
+        }
+
+        // Preselección insuficiente: recorremos todo el catálogo
+        return scanCatalog(analysis, k);
+    }
+
+    /**
+     * Puntuación máxima que puede tener un libro que no está en la preselección.
+     * Los que no tienen el género ni la emoción elegidos pueden, como mucho, encajar en páginas
+     * a la perfección y tener un 5. Los que pasan del límite de páginas no suman por duración,
+     * pero pueden tener el género, la emoción y un 5. Si la preselección se ha cortado por
+     * tamaño, los que faltan sí coinciden, pero su valoración no supera la del último
+     * preseleccionado (o no tienen).
+     */
+    private double outsideShortlistBound(List<BookRepository.QuizCandidateView> shortlist,
+                                         QuizService.QuizAnalysis analysis) {
+        int bestPageCount = Math.max(1, (int) Math.round(analysis.maxPageCount / 2.0));
+        double bound = score(bestPageCount, 5.0, true, false, false, analysis);
+        if (analysis.maxPageCount < Integer.MAX_VALUE) {
+            bound = Math.max(bound, score(analysis.maxPageCount + 1, 5.0, true, true, true, analysis));
+        }
+
+        if (shortlist.size() >= shortlistSize) {
+            Double lastRating = shortlist.get(shortlist.size() - 1).getAverageRatingApi();
+            bound = Math.max(bound, score(bestPageCount, 0.0, true, true, true, analysis));
+            if (lastRating != null) {
+                bound = Math.max(bound, score(bestPageCount, lastRating, true, true, true, analysis));
+            }
+        }
+        return bound;
+    }
+
+    /**
+     * Recorre todo el catálogo por páginas y devuelve los K libros con mejor puntuación.
+     *
+     * @param analysis Preferencias extraídas de las respuestas del cuestionario.
+     * @param k Número de libros a devolver.
+     * @return Resultado con los IDs y puntuaciones ordenados de mayor a menor.
+     * @throws RuntimeException Si no hay libros en el catálogo.
+     */
+    MatchResult scanCatalog(QuizService.QuizAnalysis analysis, int k) {
+        TopKHeap heap = new TopKHeap(k);
+        TopKHeap fallback = new TopKHeap(FALLBACK_SIZE);
+        long lastId = 0L;
+
+        while (true) {
+            List<BookRepository.QuizCandidateView> page =
+                    bookRepository.findQuizCandidatesAfter(lastId, PageRequest.of(0, pageSize));
+            if (page.isEmpty()) break;
+
+            scorePage(page, analysis, heap, fallback);
+
+            lastId = page.get(page.size() - 1).getBookId();
+            if (page.size() < pageSize) break;
+        }
+
+        if (heap.isEmpty() && fallback.isEmpty()) {
+            throw new RuntimeException("No hay libros disponibles en la base de datos");
+        }
+
+        // Fallback: si ningún libro tiene coincidencias, devolvemos los primeros del catálogo
+        TopKHeap selected = heap.isEmpty() ? fallback : heap;
+        return new MatchResult(selected.sortedIds(), selected.sortedScores());
+    }
+
+    /**
+     * Puntúa una página de candidatos (o la preselección). Los géneros y etiquetas
+     * se cargan con dos consultas IN en lugar de inicializar las colecciones de cada entidad.
+     */
+    void scorePage(List<BookRepository.QuizCandidateView> page, QuizService.QuizAnalysis analysis,
+                   TopKHeap heap, TopKHeap fallback) {
+        int n = page.size();
+        Map<Long, Integer> positions = new HashMap<>(n * 2);
+        for (int i = 0; i < n; i++) {
+            positions.put(page.get(i).getBookId(), i);
+        }
+
+        boolean[] hasGenres = new boolean[n];
+        boolean[] genreMatch = new boolean[n];
+        boolean[] tagMatch = new boolean[n];
+
+        for (BookRepository.BookLinkView link : bookRepository.findGenreLinksByBookIds(positions.keySet())) {
+            int i = positions.get(link.getBookId());
+            hasGenres[i] = true;
+            if (analysis.preferredGenre != null && link.getName().equalsIgnoreCase(analysis.preferredGenre)) {
+                genreMatch[i] = true;
+            }
+        }
+        if (analysis.preferredEmotion != null) {
+            for (BookRepository.BookLinkView link : bookRepository.findTagLinksByBookIds(positions.keySet())) {
+                if (link.getName().equalsIgnoreCase(analysis.preferredEmotion)) {
+                    tagMatch[positions.get(link.getBookId())] = true;
+                }
+            }
+        }
+
+        for (int i = 0; i < n; i++) {
+            BookRepository.QuizCandidateView candidate = page.get(i);
+            int pageCount = candidate.getPageCount() != null ? candidate.getPageCount() : 0;
+            double rating = candidate.getAverageRatingApi() != null ? candidate.getAverageRatingApi() : 0.0;
+
+            double score = score(pageCount, rating, hasGenres[i], genreMatch[i], tagMatch[i], analysis);
+            if (score > 0) { // Solo libros con alguna coincidencia
+                heap.offer(candidate.getBookId(), score);
+            }
+            if (fallback != null) {
+                fallback.offer(candidate.getBookId(), FALLBACK_SCORE);
+            }
+        }
+    }
+
+    /**
+     * Calcula una puntuación (0-100) para un libro basado en el análisis del quiz.
+     * Considera múltiples factores: género, duración, emociones, rating, etc.
+     *
+     * @param pageCount Número de páginas (0 si se desconoce).
+     * @param rating Valoración media de Google Books (0 si no tiene).
+     * @param hasGenres Si el libro tiene algún género asignado.
+     * @param genreMatch Si el libro tiene el género preferido.
+     * @param tagMatch Si el libro tiene la etiqueta de la emoción preferida.
+     * @param analysis Preferencias del usuario.
+     * @return Puntuación normalizada de 0 a 100.
+     */
+    static double score(int pageCount, double rating, boolean hasGenres, boolean genreMatch,
+                        boolean tagMatch, QuizService.QuizAnalysis analysis) {
+        double score = 0.0;
+        double maxScore = 0.0;
+
+        // 1. Matching de género (peso: 40%)
+        maxScore += 40;
+        if (analysis.preferredGenre != null) {
+            if (genreMatch) {
+                score += 40;
+            } else if (hasGenres) {
+                // Dar puntos parciales si el libro tiene al menos un género (diversidad)
+                score += 15;
+            }
+        } else {
+            score += 20; // Si no especificó género, dar puntos por tener géneros
+        }
+
+        // 2. Duración del libro (peso: 30%)
+        maxScore += 30;
+        if (pageCount > 0) {
+            if (pageCount <= analysis.maxPageCount) {
+                // Mejor puntuación para libros más cercanos al máximo deseado
+                double half = analysis.maxPageCount / 2.0;
+                score += 30 * (1.0 - Math.abs(pageCount - half) / half);
+                score = Math.max(score, 20); // Mínimo 20 si está dentro del rango
+            }
+        } else {
+            score += 15; // Si no sabemos las páginas, dar crédito
+        }
+
+        // 3. Valoración promedio del libro (peso: 20%)
+        maxScore += 20;
+        if (rating > 0) {
+            // Normalizar el rating (0-5) a puntos (0-20)
+            score += (rating / 5.0) * 20;
+        } else {
+            score += 10; // Si no tiene rating, dar puntos por defecto
+        }
+
+        // 4. Emociones/Tags (peso: 10%)
+        maxScore += 10;
+        if (analysis.preferredEmotion != null) {
+            score += tagMatch ? 10 : 3; // Puntos parciales si no coincide
+        } else {
+            score += 5;
+        }
+
+        // Normalizar score a 0-100
+        double finalScore = (score / Math.max(maxScore, 1.0)) * 100;
+        return Math.min(finalScore, 100.0);
+    }
+
+    /**
+     * Resultado del matching: IDs de libros y sus puntuaciones, de mayor a menor.
+     */
+    static class MatchResult {
+        final long[] bookIds;
+        final double[] scores;
+
+        MatchResult(long[] bookIds, double[] scores) {
+            this.bookIds = bookIds;
+            this.scores = scores;
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package com.bookmatch.backend.service;
+
+import com.bookmatch.backend.dto.BookResponse;
+import com.bookmatch.backend.dto.QuizResponse;
+import com.bookmatch.backend.event.BookSavedEvent;
+import com.bookmatch.backend.event.CatalogImportedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Caché de resultados precalculados del cuestionario de "Siguiente Lectura".
+ * El espacio de respuestas es pequeño y fijo (5 géneros × 5 emociones × 4 duraciones
+ * × 4 finales = 400 combinaciones), así que se guarda la respuesta de cada combinación
+ * y las peticiones se resuelven con una búsqueda en un array.
+ * La pregunta del final no influye en el scoring, por lo que las 4 opciones comparten
+ * entrada y la tabla solo tiene 100 posiciones.
+ * La tabla se reconstruye entera en segundo plano y se publica de golpe con un número
+ * de versión, de modo que los lectores nunca ven una tabla a medio construir.
+ */
+@Component
+public class QuizResultCache {
+
+    static final int GENRE_OPTIONS = 5;
+    static final int EMOTION_OPTIONS = 5;
+    static final int LENGTH_OPTIONS = 4;
+    static final int ENDING_OPTIONS = 4;
+
+    /** Número de entradas de la tabla (el final no forma parte de la clave) */
+    static final int TABLE_SIZE = GENRE_OPTIONS * EMOTION_OPTIONS * LENGTH_OPTIONS;
+
+    /** Tabla publicada actualmente (null hasta la primera construcción) */
+    private volatile ResultTable table;
+
+    /** Indica que el catálogo ha cambiado desde la última construcción */
+    private final AtomicBoolean dirty = new AtomicBoolean(true);
+
+    /**
+     * Calcula la posición en la tabla para una combinación de respuestas.
+     *
+     * @return Posición en la tabla, o -1 si falta alguna respuesta o está fuera de rango.
+     */
+    static int keyFor(Integer genre, Integer emotion, Integer length, Integer ending) {
+        if (genre == null || emotion == null || length == null || ending == null) return -1;
+        if (genre < 0 || genre >= GENRE_OPTIONS) return -1;
+        if (emotion < 0 || emotion >= EMOTION_OPTIONS) return -1;
+        if (length < 0 || length >= LENGTH_OPTIONS) return -1;
+        if (ending < 0 || ending >= ENDING_OPTIONS) return -1;
+        return (genre * EMOTION_OPTIONS + emotion) * LENGTH_OPTIONS + length;
+    }
+
+    /**
+     * Busca la respuesta precalculada para una posición de la tabla.
+     * Devuelve una copia: los DTOs son mutables y la misma entrada se sirve a todas las
+     * peticiones, así que un cambio hecho por quien la recibe no debe llegar a la tabla.
+     *
+     * @param key Posición calculada con {@link #keyFor}.
+     * @return La respuesta, o null si no hay tabla publicada o la combinación no tiene resultado.
+     */
+    QuizResponse lookup(int key) {
+        ResultTable current = table;
+        if (current == null || key < 0) return null;
+        QuizResponse response = current.responses[key];
+        return response != null ? copyOf(response) : null;
+    }
+
+    private static QuizResponse copyOf(QuizResponse response) {
+        List<BookResponse> alternatives = null;
+        if (response.getAlternativeBooks() != null) {
+            alternatives = new ArrayList<>(response.getAlternativeBooks().size());
+            for (BookResponse book : response.getAlternativeBooks()) {
+                alternatives.add(copyOf(book));
+            }
+        }
+        return response.toBuilder()
+                .recommendedBook(copyOf(response.getRecommendedBook()))
+                .alternativeBooks(alternatives)
+                .build();
+    }
+
+    private static BookResponse copyOf(BookResponse book) {
+        if (book == null) return null;
+        return book.toBuilder()
+                .genres(book.getGenres() != null ? new ArrayList<>(book.getGenres()) : null)
+                .tags(book.getTags() != null ? new ArrayList<>(book.getTags()) : null)
+                .build();
+    }
+
+    /**
+     * Publica una tabla completamente construida, sustituyendo a la anterior.
+     *
+     * @param responses Respuestas indexadas por {@link #keyFor}.
+     */
+    void publish(QuizResponse[] responses) {
+        ResultTable current = table;
+        long nextVersion = current != null ? current.version + 1 : 1;
+        table = new ResultTable(nextVersion, responses);
+    }
+
+    /**
+     * Indica si hay que reconstruir la tabla y limpia la marca.
+     *
+     * @return true si el catálogo ha cambiado desde la última construcción.
+     */
+    boolean claimRebuild() {
+        return dirty.getAndSet(false);
+    }
+
+    /**
+     * Marca la tabla como desactualizada (p. ej. si falla una reconstrucción).
+     */
+    void markDirty() {
+        dirty.set(true);
+    }
+
+    /**
+     * Versión de la tabla publicada (0 si todavía no se ha construido).
+     */
+    public long getVersion() {
+        ResultTable current = table;
+        return current != null ? current.version : 0;
+    }
+
+    /**
+     * Tras una importación masiva la tabla se recalcula en la siguiente pasada.
+     */
+    @EventListener
+    public void onCatalogImported(CatalogImportedEvent event) {
+        markDirty();
+    }
+
+    /**
+     * Un libro nuevo puede cambiar el resultado de cualquier combinación.
+     */
+    @EventListener
+    public void onBookSaved(BookSavedEvent event) {
+        markDirty();
+    }
+
+    /**
+     * Tabla inmutable de respuestas con su versión.
+     */
+    private static class ResultTable {
+        final long version;
+        final QuizResponse[] responses;
+
+        ResultTable(long version, QuizResponse[] responses) {
+            this.version = version;
+            this.responses = responses;
+        }
+    }
+}
@@ -3,7 +3,6 @@ package com.bookmatch.backend.service;
 import com.bookmatch.backend.dto.BookResponse;
 import com.bookmatch.backend.dto.QuizRequest;
 import com.bookmatch.backend.dto.QuizResponse;
-import com.bookmatch.backend.entity.Book;
 import com.bookmatch.backend.entity.Genre;
 import com.bookmatch.backend.entity.Tag;
 import com.bookmatch.backend.repository.BookRepository;
@@ -12,13 +11,16 @@ import com.bookmatch.backend.repository.TagRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.ArrayList;
-import java.util.Comparator;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.stream.Collectors;
 
 /**
@@ -39,6 +41,15 @@ public class QuizService {
     @Autowired
     private TagRepository tagRepository;
 
+    @Autowired
+    private QuizMatcher quizMatcher;
+
+    @Autowired
+    private QuizResultCache quizResultCache;
+
+    @Autowired
+    private BookResponseAssembler bookResponseAssembler;
+
     /**
      * Procesa las respuestas del cuestionario y retorna un libro recomendado con matching.
      * Analiza todas las respuestas y busca un libro que se alinee con los criterios del usuario.
@@ -53,51 +64,97 @@ public class QuizService {
             throw new RuntimeException("Se requieren respuestas al cuestionario");
         }
 
+        Map<Integer, Integer> questionAnswers = new HashMap<>();
+        for (QuizRequest.QuizAnswer answer : request.getAnswers()) {
+            questionAnswers.put(answer.getQuestionId(), answer.getSelectedOptionId());
+        }
+
+        // Si todas las respuestas son válidas, el resultado ya está precalculado
+        int key = QuizResultCache.keyFor(questionAnswers.get(1), questionAnswers.get(2),
+                questionAnswers.get(3), questionAnswers.get(4));
+        QuizResponse cached = quizResultCache.lookup(key);
+        if (cached != null) {
+            return cached;
+        }
+
         // Extraer información de las respuestas
-        QuizAnalysis analysis = analyzeAnswers(request.getAnswers());
+        QuizAnalysis analysis = analyzeAnswers(questionAnswers);
         logger.info("Análisis del quiz - Género: {}, Emociones: {}, Duración: {}",
             analysis.preferredGenre, analysis.preferredEmotion, analysis.maxPageCount);
 
-        // Obtener todos los libros disponibles
-        List<Book> allBooks = bookRepository.findAll();
+        return buildResponse(analysis);
+    }
+
+    /**
+     * Recalcula en segundo plano la tabla de resultados precalculados si el catálogo
+     * ha cambiado. La tabla nueva se construye aparte y se publica de una vez.
+     */
+    @Scheduled(initialDelayString = "${app.quiz.result-cache.initial-delay-ms:5000}",
+            fixedDelayString = "${app.quiz.result-cache.refresh-interval-ms:60000}")
+    @Transactional(readOnly = true)
+    public void refreshResultCache() {
+        if (!quizResultCache.claimRebuild()) {
+            return;
+        }
 
-        if (allBooks.isEmpty()) {
-            throw new RuntimeException("No hay libros disponibles en la base de datos");
+        long start = System.currentTimeMillis();
+        QuizResponse[] responses = new QuizResponse[QuizResultCache.TABLE_SIZE];
+        try {
+            for (int genre = 0; genre < QuizResultCache.GENRE_OPTIONS; genre++) {
+                for (int emotion = 0; emotion < QuizResultCache.EMOTION_OPTIONS; emotion++) {
+                    for (int length = 0; length < QuizResultCache.LENGTH_OPTIONS; length++) {
+                        // La respuesta del final no afecta al resultado: usamos la opción 0
+                        Map<Integer, Integer> questionAnswers = Map.of(1, genre, 2, emotion, 3, length, 4, 0);
+                        responses[QuizResultCache.keyFor(genre, emotion, length, 0)] =
+                                buildResponse(analyzeAnswers(questionAnswers));
+                    }
+                }
+            }
+        } catch (RuntimeException e) {
+            // Catálogo vacío o error de base de datos: se reintenta en la siguiente ejecución
+            quizResultCache.markDirty();
+            logger.warn("No se pudo precalcular los resultados del cuestionario: {}", e.getMessage());
+            return;
         }
 
-        // Calcular score para cada libro basado en el análisis
-        List<BookScore> scoredBooks = allBooks.stream()
-                .map(book -> calculateBookScore(book, analysis))
-                .filter(bs -> bs.score > 0) // Solo libros con alguna coincidencia
-                .sorted(Comparator.comparingDouble(BookScore::getScore).reversed())
-                .collect(Collectors.toList());
+        quizResultCache.publish(responses);
+        logger.info("Resultados del cuestionario precalculados (versión {}) en {} ms",
+                quizResultCache.getVersion(), System.currentTimeMillis() - start);
+    }
 
-        if (scoredBooks.isEmpty()) {
-            // Fallback: retornar libros al azar si no hay coincidencias exactas
-            scoredBooks = allBooks.stream()
-                    .map(book -> new BookScore(book, 50.0))
-                    .limit(5)
-                    .collect(Collectors.toList());
+    /**
+     * Busca los libros que mejor encajan con el análisis y construye la respuesta.
+     */
+    private QuizResponse buildResponse(QuizAnalysis analysis) {
+        // Recorrer el catálogo por páginas quedándonos solo con los 4 mejores
+        // (recomendación principal + 3 alternativas)
+        QuizMatcher.MatchResult matches = quizMatcher.findBestMatches(analysis, 4);
+
+        // Los géneros y etiquetas de los 4 libros se cargan con consultas IN (sin colecciones lazy)
+        List<Long> matchedIds = Arrays.stream(matches.bookIds).boxed().toList();
+        Map<Long, BookResponse> booksById = new HashMap<>();
+        for (BookResponse book : bookResponseAssembler.toResponses(bookRepository.findAllById(matchedIds))) {
+            booksById.put(book.getBookId(), book);
         }
 
         // El libro con mayor score es la recomendación principal
-        BookScore mainRecommendation = scoredBooks.get(0);
-        Book recommendedBook = mainRecommendation.book;
+        BookResponse recommendedBook = booksById.get(matchedIds.get(0));
+        double mainScore = matches.scores[0];
 
         // Obtener alternativas (siguientes 3 libros con mejor score)
-        List<BookResponse> alternativeBooks = scoredBooks.stream()
+        List<BookResponse> alternativeBooks = matchedIds.stream()
                 .skip(1)
-                .limit(3)
-                .map(bs -> convertToBookResponse(bs.book))
+                .map(booksById::get)
+                .filter(Objects::nonNull)
                 .collect(Collectors.toList());
 
         // Generar explicación personalizada
         String explanation = generateExplanation(recommendedBook, analysis);
 
         return QuizResponse.builder()
-                .recommendedBook(convertToBookResponse(recommendedBook))
+                .recommendedBook(recommendedBook)
                 .explanation(explanation)
-                .matchPercentage(mainRecommendation.score)
+                .matchPercentage(mainScore)
                 .alternativeBooks(alternativeBooks)
                 .build();
     }
@@ -105,14 +162,9 @@ public class QuizService {
     /**
      * Analiza las respuestas del cuestionario para extraer preferencias del usuario.
      */
-    private QuizAnalysis analyzeAnswers(List<QuizRequest.QuizAnswer> answers) {
+    private QuizAnalysis analyzeAnswers(Map<Integer, Integer> questionAnswers) {
         QuizAnalysis analysis = new QuizAnalysis();
 
-        Map<Integer, Integer> questionAnswers = new HashMap<>();
-        for (QuizRequest.QuizAnswer answer : answers) {
-            questionAnswers.put(answer.getQuestionId(), answer.getSelectedOptionId());
-        }
-
         // Pregunta 1: ¿Cuál es tu género favorito?
         // Opciones: 0=Fantasía, 1=Romance, 2=Misterio, 3=Ciencia Ficción, 4=Drama
         Integer genreAnswer = questionAnswers.get(1);
@@ -161,81 +213,15 @@ public class QuizService {
         return analysis;
     }
 
-    /**
-     * Calcula una puntuación (0-100) para un libro basado en el análisis del quiz.
-     * Considera múltiples factores: género, duración, emociones, rating, etc.
-     */
-    private BookScore calculateBookScore(Book book, QuizAnalysis analysis) {
-        double score = 0.0;
-        double maxScore = 0.0;
-
-        // 1. Matching de género (peso: 40%)
-        maxScore += 40;
-        if (analysis.preferredGenre != null) {
-            boolean genreMatch = book.getGenres().stream()
-                    .anyMatch(g -> g.getName().equalsIgnoreCase(analysis.preferredGenre));
-            if (genreMatch) {
-                score += 40;
-            } else {
-                // Dar puntos parciales si el libro tiene al menos un género (diversidad)
-                if (!book.getGenres().isEmpty()) {
-                    score += 15;
-                }
-            }
-        } else {
-            score += 20; // Si no especificó género, dar puntos por tener géneros
-        }
-
-        // 2. Duración del libro (peso: 30%)
-        maxScore += 30;
-        if (book.getPageCount() != null && book.getPageCount() > 0) {
-            int pageCount = book.getPageCount();
-            if (pageCount <= analysis.maxPageCount) {
-                // Mejor puntuación para libros más cercanos al máximo deseado
-                score += 30 * (1.0 - Math.abs(pageCount - (analysis.maxPageCount / 2.0)) / (analysis.maxPageCount / 2.0));
-                score = Math.max(score, 20); // Mínimo 20 si está dentro del rango
-            }
-        } else {
-            score += 15; // Si no sabemos las páginas, dar crédito
-        }
-
-        // 3. Valoración promedio del libro (peso: 20%)
-        maxScore += 20;
-        if (book.getAverageRatingApi() != null && book.getAverageRatingApi() > 0) {
-            // Normalizar el rating (0-5) a puntos (0-20)
-            score += (book.getAverageRatingApi() / 5.0) * 20;
-        } else {
-            score += 10; // Si no tiene rating, dar puntos por defecto
-        }
-
-        // 4. Emociones/Tags (peso: 10%)
-        maxScore += 10;
-        if (analysis.preferredEmotion != null) {
-            boolean emotionMatch = book.getTags().stream()
-                    .anyMatch(t -> t.getName().equalsIgnoreCase(analysis.preferredEmotion));
-            if (emotionMatch) {
-                score += 10;
-            } else {
-                score += 3; // Puntos parciales
-            }
-        } else {
-            score += 5;
-        }
-
-        // Normalizar score a 0-100
-        double finalScore = (score / Math.max(maxScore, 1.0)) * 100;
-        return new BookScore(book, Math.min(finalScore, 100.0));
-    }
-
     /**
      * Genera una explicación personalizada de por qué se recomienda este libro.
      */
-    private String generateExplanation(Book book, QuizAnalysis analysis) {
+    private String generateExplanation(BookResponse book, QuizAnalysis analysis) {
         List<String> reasons = new ArrayList<>();
 
         if (analysis.preferredGenre != null) {
             boolean hasGenre = book.getGenres().stream()
-                    .anyMatch(g -> g.getName().equalsIgnoreCase(analysis.preferredGenre));
+                    .anyMatch(g -> g.equalsIgnoreCase(analysis.preferredGenre));
             if (hasGenre) {
                 reasons.add("coincide con tu género preferido " + analysis.preferredGenre);
             }
@@ -251,7 +237,7 @@ public class QuizService {
 
         if (analysis.preferredEmotion != null) {
             boolean hasTag = book.getTags().stream()
-                    .anyMatch(t -> t.getName().equalsIgnoreCase(analysis.preferredEmotion));
+                    .anyMatch(t -> t.equalsIgnoreCase(analysis.preferredEmotion));
             if (hasTag) {
                 reasons.add("es " + analysis.preferredEmotion.toLowerCase());
             }
@@ -264,47 +250,13 @@ public class QuizService {
         return "Te recomendamos este libro porque " + String.join(", ", reasons) + ".";
     }
 
-    /**
-     * Convierte una entidad Book a BookResponse DTO.
-     */
-    private BookResponse convertToBookResponse(Book book) {
-        return BookResponse.builder()
-                .bookId(book.getBookId())
-                .googleBookId(book.getGoogleBookId())
-                .title(book.getTitle())
-                .authors(book.getAuthors())
-                .description(book.getDescription())
-                .publishedDate(book.getPublishedDate())
-                .pageCount(book.getPageCount())
-                .coverUrl(book.getCoverUrl())
-                .averageRatingApi(book.getAverageRatingApi())
-                .build();
-    }
-
     /**
      * Clase interna para almacenar análisis de respuestas del quiz.
      */
-    private static class QuizAnalysis {
+    static class QuizAnalysis {
         String preferredGenre;
         String preferredEmotion;
         int maxPageCount = 600; // Por defecto
         boolean prefersUnexpectedEnding = false;
     }
-
-    /**
-     * Clase interna para asociar libro con su score.
-     */
-    private static class BookScore {
-        Book book;
-        Double score;
-
-        BookScore(Book book, Double score) {
-            this.book = book;
-            this.score = score;
-        }
-
-        public Double getScore() {
-            return score;
-        }
-    }
 }
@@ -0,0 +1,96 @@
+package com.bookmatch.backend.service;
+
+import com.bookmatch.backend.repository.BookQuoteRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Índice en memoria de citas por etiqueta y por género.
+ * Cada etiqueta (o género) apunta a un array compacto con los IDs de las citas de sus libros,
+ * así que elegir una cita al azar es una posición aleatoria del array y una búsqueda por
+ * clave primaria, sin recorrer los libros de la etiqueta.
+ * Los índices son inmutables: cada reconstrucción publica un mapa nuevo.
+ * La aplicación no crea citas (se cargan directamente en la base de datos), así que un libro
+ * recién guardado nunca tiene citas todavía: las nuevas aparecen en la siguiente reconstrucción.
+ */
+@Component
+public class QuoteIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(QuoteIndex.class);
+
+    @Autowired
+    private BookQuoteRepository bookQuoteRepository;
+
+    /** tagId -> IDs de citas */
+    private volatile Map<Long, long[]> quotesByTag = Map.of();
+
+    /** genreId -> IDs de citas */
+    private volatile Map<Long, long[]> quotesByGenre = Map.of();
+
+    /**
+     * Construcción inicial al arrancar la aplicación.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialize() {
+        rebuild();
+    }
+
+    /**
+     * Reconstrucción completa periódica, para recoger las citas añadidas fuera de la aplicación.
+     */
+    @Scheduled(initialDelayString = "${app.quote-index.rebuild-interval-ms:300000}",
+            fixedDelayString = "${app.quote-index.rebuild-interval-ms:300000}")
+    public synchronized void rebuild() {
+        quotesByTag = group(bookQuoteRepository.findAllTagQuoteLinks());
+        quotesByGenre = group(bookQuoteRepository.findAllGenreQuoteLinks());
+        logger.info("Índice de citas construido: {} etiquetas, {} géneros", quotesByTag.size(), quotesByGenre.size());
+    }
+
+    /**
+     * Elige al azar una cita de los libros de una etiqueta.
+     *
+     * @param tagId ID de la etiqueta.
+     * @return ID de la cita, o null si la etiqueta no tiene citas.
+     */
+    public Long randomQuoteIdForTag(Long tagId) {
+        return pick(quotesByTag.get(tagId));
+    }
+
+    /**
+     * Elige al azar una cita de los libros de un género.
+     *
+     * @param genreId ID del género.
+     * @return ID de la cita, o null si el género no tiene citas.
+     */
+    public Long randomQuoteIdForGenre(Long genreId) {
+        return pick(quotesByGenre.get(genreId));
+    }
+
+    private Long pick(long[] quoteIds) {
+        if (quoteIds == null || quoteIds.length == 0) return null;
+        return quoteIds[ThreadLocalRandom.current().nextInt(quoteIds.length)];
+    }
+
+    private Map<Long, long[]> group(List<BookQuoteRepository.QuoteLinkView> links) {
+        Map<Long, List<Long>> grouped = new HashMap<>();
+        for (BookQuoteRepository.QuoteLinkView link : links) {
+            grouped.computeIfAbsent(link.getGroupId(), k -> new ArrayList<>()).add(link.getQuoteId());
+        }
+
+        Map<Long, long[]> index = new HashMap<>(grouped.size() * 2);
+        grouped.forEach((groupId, quoteIds) ->
+                index.put(groupId, quoteIds.stream().mapToLong(Long::longValue).toArray()));
+        return index;
+    }
+}
@@ -0,0 +1,256 @@
+package com.bookmatch.backend.service;
+
+import com.bookmatch.backend.entity.Book;
+import com.bookmatch.backend.entity.BookQuote;
+import com.bookmatch.backend.event.BookSavedEvent;
+import com.bookmatch.backend.event.CatalogImportedEvent;
+import com.bookmatch.backend.repository.BookQuoteRepository;
+import com.bookmatch.backend.repository.BookRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Muestreo aleatorio de libros y citas sin ORDER BY RAND().
+ * Mantiene en memoria un array denso con los IDs de libros y otro con los de citas.
+ * Se elige al azar con ThreadLocalRandom y después se cargan los elegidos con una
+ * sola consulta por clave primaria.
+ * Los arrays se actualizan al guardar libros nuevos y se recargan periódicamente
+ * para recoger cambios hechos fuera de la aplicación (p. ej. citas cargadas por SQL).
+ */
+@Component
+public class RandomSampler {
+
+    private static final Logger logger = LoggerFactory.getLogger(RandomSampler.class);
+
+    /** Reintentos cuando la cita elegida ya no existe en la base de datos */
+    private static final int QUOTE_ATTEMPTS = 3;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private BookQuoteRepository bookQuoteRepository;
+
+    private volatile IdPool books = new IdPool(List.of());
+    private volatile IdPool quotes = new IdPool(List.of());
+
+    /**
+     * Carga inicial de los IDs al arrancar la aplicación.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialize() {
+        reload();
+    }
+
+    /**
+     * Recarga completa periódica de los IDs de libros y citas.
+     */
+    @Scheduled(initialDelayString = "${app.random-sampler.reload-interval-ms:600000}",
+            fixedDelayString = "${app.random-sampler.reload-interval-ms:600000}")
+    public void reload() {
+        books = new IdPool(bookRepository.findAllBookIds());
+        quotes = new IdPool(bookQuoteRepository.findAllQuoteIds());
+        logger.info("Muestreo aleatorio cargado: {} libros, {} citas", books.size(), quotes.size());
+    }
+
+    /**
+     * Recarga el muestreo tras una importación masiva.
+     */
+    @EventListener
+    public void onCatalogImported(CatalogImportedEvent event) {
+        reload();
+    }
+
+    /**
+     * Añade al muestreo los libros nuevos.
+     */
+    @EventListener
+    public void onBookSaved(BookSavedEvent event) {
+        books.add(event.getBookId());
+    }
+
+    /**
+     * Elige IDs de libros al azar, sin repetidos.
+     *
+     * @param count Número de IDs a elegir.
+     * @param excludedBookIds IDs que no deben elegirse (p. ej. libros de la estantería del usuario).
+     * @return Hasta {@code count} IDs en orden aleatorio.
+     */
+    public List<Long> sampleBookIds(int count, Set<Long> excludedBookIds) {
+        return books.sample(count, excludedBookIds);
+    }
+
+    /**
+     * Obtiene libros aleatorios.
+     *
+     * @param count Número de libros a obtener.
+     * @return Hasta {@code count} libros en orden aleatorio.
+     */
+    public List<Book> sampleBooks(int count) {
+        return sampleBooks(count, Set.of());
+    }
+
+    /**
+     * Obtiene libros aleatorios excluyendo los indicados.
+     *
+     * @param count Número de libros a obtener.
+     * @param excludedBookIds IDs que no deben elegirse.
+     * @return Hasta {@code count} libros en orden aleatorio.
+     */
+    public List<Book> sampleBooks(int count, Set<Long> excludedBookIds) {
+        List<Long> ids = books.sample(count, excludedBookIds);
+        if (ids.isEmpty()) return new ArrayList<>();
+
+        Map<Long, Book> byId = new HashMap<>(ids.size() * 2);
+        for (Book book : bookRepository.findAllById(ids)) {
+            byId.put(book.getBookId(), book);
+        }
+
+        // Mantener el orden aleatorio y descartar los IDs que ya no existen
+        List<Book> result = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            Book book = byId.get(id);
+            if (book != null) {
+                result.add(book);
+            } else {
+                books.remove(id);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Obtiene una cita aleatoria.
+     *
+     * @return Una cita aleatoria, o null si no hay ninguna.
+     */
+    public BookQuote sampleQuote() {
+        for (int attempt = 0; attempt < QUOTE_ATTEMPTS; attempt++) {
+            List<Long> ids = quotes.sample(1, Set.of());
+            if (ids.isEmpty()) return null;
+
+            Optional<BookQuote> quote = bookQuoteRepository.findById(ids.get(0));
+            if (quote.isPresent()) return quote.get();
+            quotes.remove(ids.get(0));
+        }
+        return null;
+    }
+
+    /**
+     * Array denso de IDs con borrado en O(1) (se mueve el último a la posición del borrado).
+     */
+    private static class IdPool {
+        private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+        private long[] ids;
+        private int size;
+        private final Map<Long, Integer> positions;
+
+        IdPool(Collection<Long> initial) {
+            ids = new long[Math.max(16, initial.size())];
+            positions = new HashMap<>(initial.size() * 2);
+            for (Long id : initial) {
+                if (positions.putIfAbsent(id, size) == null) {
+                    ids[size++] = id;
+                }
+            }
+        }
+
+        int size() {
+            lock.readLock().lock();
+            try {
+                return size;
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        void add(long id) {
+            lock.writeLock().lock();
+            try {
+                if (positions.containsKey(id)) return;
+                if (size == ids.length) {
+                    ids = Arrays.copyOf(ids, size * 2);
+                }
+                positions.put(id, size);
+                ids[size++] = id;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        void remove(long id) {
+            lock.writeLock().lock();
+            try {
+                Integer position = positions.remove(id);
+                if (position == null) return;
+                long last = ids[--size];
+                if (position < size) {
+                    ids[position] = last;
+                    positions.put(last, position);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        List<Long> sample(int count, Set<Long> excluded) {
+            lock.readLock().lock();
+            try {
+                int n = Math.min(count, size);
+                if (n <= 0) return new ArrayList<>();
+
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+
+                // Si las exclusiones son una parte grande del pool, el rechazo sería lento:
+                // se filtran los elegibles y se barajan parcialmente (Fisher-Yates)
+                if (excluded.size() + n > size / 2) {
+                    long[] eligible = new long[size];
+                    int eligibleSize = 0;
+                    for (int i = 0; i < size; i++) {
+                        if (!excluded.contains(ids[i])) eligible[eligibleSize++] = ids[i];
+                    }
+                    int picks = Math.min(n, eligibleSize);
+                    List<Long> result = new ArrayList<>(picks);
+                    for (int i = 0; i < picks; i++) {
+                        int j = i + random.nextInt(eligibleSize - i);
+                        long chosen = eligible[j];
+                        eligible[j] = eligible[i];
+                        eligible[i] = chosen;
+                        result.add(chosen);
+                    }
+                    return result;
+                }
+
+                // Caso habitual: elegir posiciones al azar descartando repetidos y excluidos
+                Set<Long> picked = new HashSet<>(n * 2);
+                List<Long> result = new ArrayList<>(n);
+                while (result.size() < n) {
+                    long id = ids[random.nextInt(size)];
+                    if (!excluded.contains(id) && picked.add(id)) {
+                        result.add(id);
+                    }
+                }
+                return result;
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+    }
+}
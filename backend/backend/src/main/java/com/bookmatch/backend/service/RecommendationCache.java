@@ -0,0 +1,237 @@
+package com.bookmatch.backend.service;
+
+import com.bookmatch.backend.dto.RecommendationResponse;
+import jakarta.annotation.PreDestroy;
+import lombok.Getter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caché por usuario de las recomendaciones personalizadas con puntuación.
+ * Cada entrada guarda las recomendaciones ya calculadas y la huella de los datos de entrada
+ * con los que se calcularon (géneros preferidos, libros valorados con 4 o más estrellas y
+ * libros de la estantería), así que una visita repetida solo cuesta buscar en el mapa.
+ * Cuando cambia alguno de esos datos la entrada se invalida y se recalcula en segundo plano;
+ * mientras tanto se siguen sirviendo las recomendaciones anteriores. Si al recalcular la huella
+ * no ha cambiado (p. ej. una reseña de 2 estrellas) no se vuelve a puntuar el catálogo.
+ * Además, cada entrada caduca pasado un tiempo para recoger los cambios del catálogo.
+ */
+@Component
+public class RecommendationCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(RecommendationCache.class);
+
+    private final int maxEntries;
+    private final long maxAgeMs;
+
+    /** Entradas en orden de acceso (la primera es la menos usada recientemente) */
+    private final LinkedHashMap<Long, Entry> entries;
+
+    /** Secuencia que ordena cálculos e invalidaciones */
+    private final AtomicLong clock = new AtomicLong();
+
+    private final ExecutorService refresher;
+
+    public RecommendationCache(@Value("${app.recommendation-cache.max-entries:10000}") int maxEntries,
+                               @Value("${app.recommendation-cache.max-age-ms:900000}") long maxAgeMs) {
+        this.maxEntries = maxEntries;
+        this.maxAgeMs = maxAgeMs;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Entry> eldest) {
+                return size() > RecommendationCache.this.maxEntries;
+            }
+        };
+        this.refresher = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "recommendation-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Calcula la huella de los datos de entrada de las recomendaciones de un usuario.
+     * No depende del orden de los IDs.
+     *
+     * @return Huella de 64 bits.
+     */
+    static long fingerprint(Collection<Long> genreIds, Collection<Long> likedBookIds, Collection<Long> shelvedBookIds) {
+        long hash = 0x2545F4914F6CDD1DL;
+        hash = hash * 31 + sectionHash(genreIds);
+        hash = hash * 31 + sectionHash(likedBookIds);
+        hash = hash * 31 + sectionHash(shelvedBookIds);
+        return hash;
+    }
+
+    private static long sectionHash(Collection<Long> ids) {
+        // Suma de los IDs mezclados (no depende del orden) más el número de IDs
+        long sum = ids.size();
+        for (Long id : ids) {
+            long h = id * 0x9E3779B97F4A7C15L;
+            sum += h ^ (h >>> 29);
+        }
+        return sum;
+    }
+
+    /**
+     * Devuelve las recomendaciones de un usuario. Si están en la caché se devuelven tal cual
+     * (y si están invalidadas o caducadas se recalculan en segundo plano); si no, se calculan
+     * en el momento.
+     *
+     * @param userId ID del usuario.
+     * @param loader Cálculo de las recomendaciones.
+     * @return Recomendaciones del usuario.
+     */
+    public List<RecommendationResponse> get(Long userId, Loader loader) {
+        Entry entry;
+        synchronized (entries) {
+            entry = entries.get(userId);
+        }
+
+        if (entry != null && entry.results != null) {
+            if (entry.isInvalidated() || isExpired(entry)) {
+                scheduleRefresh(userId, entry, loader);
+            }
+            return entry.results;
+        }
+
+        return load(userId, loader, entry).results;
+    }
+
+    /**
+     * Invalida las recomendaciones de un usuario porque han cambiado sus datos de entrada
+     * y, si estaban en la caché, lanza su recálculo en segundo plano.
+     *
+     * @param userId ID del usuario.
+     * @param loader Cálculo de las recomendaciones.
+     */
+    public void invalidate(Long userId, Loader loader) {
+        long sequence = clock.incrementAndGet();
+        Entry entry;
+        synchronized (entries) {
+            entry = entries.get(userId);
+            if (entry == null) {
+                // Marca vacía: si hay un cálculo en curso para este usuario, no se dará por válido
+                entry = new Entry(null, 0, 0, 0);
+                entries.put(userId, entry);
+            }
+            entry.invalidatedAt = sequence;
+        }
+        if (entry.results != null) {
+            scheduleRefresh(userId, entry, loader);
+        }
+    }
+
+    private boolean isExpired(Entry entry) {
+        return System.currentTimeMillis() - entry.computedAt > maxAgeMs;
+    }
+
+    private void scheduleRefresh(Long userId, Entry entry, Loader loader) {
+        if (!entry.refreshing.compareAndSet(false, true)) return;
+
+        refresher.execute(() -> {
+            try {
+                Entry refreshed = load(userId, loader, entry);
+                // Si ha llegado otra invalidación durante el cálculo, se vuelve a calcular
+                if (refreshed.isInvalidated()) {
+                    scheduleRefresh(userId, refreshed, loader);
+                }
+            } catch (RuntimeException e) {
+                logger.warn("No se pudieron recalcular las recomendaciones del usuario {}: {}", userId, e.getMessage());
+            } finally {
+                entry.refreshing.set(false);
+            }
+        });
+    }
+
+    /**
+     * Calcula las recomendaciones y las guarda. Si la entrada anterior solo estaba invalidada
+     * (no caducada), se pasa su huella para que el cálculo pueda reutilizar los resultados.
+     */
+    private Entry load(Long userId, Loader loader, Entry previous) {
+        long basedOn = clock.get();
+        boolean reusable = previous != null && previous.results != null && !isExpired(previous);
+
+        Result result = loader.load(userId, reusable ? previous.fingerprint : null);
+        List<RecommendationResponse> results = result.getResults() != null
+                ? List.copyOf(result.getResults())
+                : previous.results;
+        long computedAt = result.getResults() != null || previous == null ? System.currentTimeMillis() : previous.computedAt;
+
+        Entry created = new Entry(results, result.getFingerprint(), computedAt, basedOn);
+        synchronized (entries) {
+            Entry current = entries.get(userId);
+            created.invalidatedAt = current != null ? current.invalidatedAt : 0;
+            entries.put(userId, created);
+        }
+        return created;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        refresher.shutdownNow();
+    }
+
+    /**
+     * Cálculo de las recomendaciones de un usuario.
+     */
+    @FunctionalInterface
+    public interface Loader {
+        /**
+         * @param userId ID del usuario.
+         * @param previousFingerprint Huella del cálculo anterior que se puede reutilizar (o null).
+         * @return Resultado del cálculo.
+         */
+        Result load(Long userId, Long previousFingerprint);
+    }
+
+    /**
+     * Resultado de un cálculo: la huella de los datos de entrada y las recomendaciones
+     * (null si la huella coincide con la anterior y no hacía falta volver a puntuar).
+     */
+    @Getter
+    public static final class Result {
+        private final long fingerprint;
+        private final List<RecommendationResponse> results;
+
+        public Result(long fingerprint, List<RecommendationResponse> results) {
+            this.fingerprint = fingerprint;
+            this.results = results;
+        }
+    }
+
+    /**
+     * Entrada de la caché. Está invalidada si la última invalidación es posterior al
+     * inicio del cálculo que la produjo.
+     */
+    private static class Entry {
+        final List<RecommendationResponse> results;
+        final long fingerprint;
+        final long computedAt;
+        final long basedOn;
+        volatile long invalidatedAt;
+        final AtomicBoolean refreshing = new AtomicBoolean(false);
+
+        Entry(List<RecommendationResponse> results, long fingerprint, long computedAt, long basedOn) {
+            this.results = results;
+            this.fingerprint = fingerprint;
+            this.computedAt = computedAt;
+            this.basedOn = basedOn;
+        }
+
+        boolean isInvalidated() {
+            return invalidatedAt > basedOn;
+        }
+    }
+}
@@ -0,0 +1,407 @@
+package com.bookmatch.backend.service;
+
+import com.bookmatch.backend.entity.BookReviewStats;
+import com.bookmatch.backend.entity.Genre;
+import com.bookmatch.backend.event.BookSavedEvent;
+import com.bookmatch.backend.event.CatalogImportedEvent;
+import com.bookmatch.backend.event.ReviewSavedEvent;
+import com.bookmatch.backend.repository.BookRepository;
+import com.bookmatch.backend.repository.BookReviewStatsRepository;
+import com.bookmatch.backend.repository.GenreRepository;
+import lombok.Getter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Motor de scoring de recomendaciones en memoria.
+ * Mantiene una instantánea compacta del catálogo (IDs en arrays, géneros como bitsets
+ * indexados por genreId y estadísticas de reseñas en arrays paralelos) para puntuar
+ * candidatos sin inicializar colecciones de Hibernate en cada petición.
+ * La instantánea se reconstruye periódicamente y se actualiza de forma incremental
+ * cuando se guardan libros o reseñas. Los libros actualizados mientras se reconstruye
+ * se vuelven a aplicar sobre la instantánea nueva, para no perder el cambio si se
+ * escribió en la anterior.
+ */
+@Component
+public class RecommendationScoringEngine {
+
+    private static final Logger logger = LoggerFactory.getLogger(RecommendationScoringEngine.class);
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private GenreRepository genreRepository;
+
+    @Autowired
+    private BookReviewStatsRepository bookReviewStatsRepository;
+
+    /** Instantánea actual del catálogo; se sustituye entera en cada reconstrucción */
+    private volatile CatalogSnapshot snapshot = new CatalogSnapshot(16);
+
+    /** Libros guardados desde la última reconstrucción, para reaplicarlos tras el cambio de instantánea */
+    private final Set<Long> pendingBookIds = ConcurrentHashMap.newKeySet();
+
+    /** Libros con reseñas nuevas desde la última reconstrucción */
+    private final Set<Long> pendingStatsBookIds = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Construye la instantánea al arrancar la aplicación.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialize() {
+        rebuild();
+    }
+
+    /**
+     * Reconstruye la instantánea completa desde la base de datos.
+     * Corrige cualquier cambio hecho fuera de la aplicación (p. ej. géneros asignados a mano).
+     */
+    @Scheduled(fixedDelayString = "${app.scoring-engine.rebuild-interval-ms:900000}",
+            initialDelayString = "${app.scoring-engine.rebuild-interval-ms:900000}")
+    public synchronized void rebuild() {
+        long start = System.currentTimeMillis();
+
+        List<Long> bookIds = bookRepository.findAllBookIds();
+        CatalogSnapshot next = new CatalogSnapshot(Math.max(16, bookIds.size()));
+        for (Long bookId : bookIds) {
+            next.addBook(bookId);
+        }
+
+        for (BookRepository.BookLinkView link : bookRepository.findAllGenreLinks()) {
+            next.linkGenre(link.getBookId(), link.getLinkId());
+        }
+        for (BookReviewStats stats : bookReviewStatsRepository.findAll()) {
+            next.updateStats(stats);
+        }
+        for (Genre genre : genreRepository.findAll()) {
+            next.genreNames.put(genre.getGenreId(), genre.getName());
+        }
+
+        snapshot = next;
+
+        // Un evento que leyó la instantánea anterior pudo escribir en ella después de que
+        // se cargaran los datos de la nueva: se vuelven a aplicar sobre la nueva
+        List<Long> books = new ArrayList<>(pendingBookIds);
+        pendingBookIds.removeAll(books);
+        if (!books.isEmpty()) applyBooks(next, books);
+
+        List<Long> stats = new ArrayList<>(pendingStatsBookIds);
+        pendingStatsBookIds.removeAll(stats);
+        if (!stats.isEmpty()) applyStats(next, stats);
+
+        logger.info("Instantánea de scoring reconstruida: {} libros en {} ms",
+                next.size, System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Reconstruye la instantánea tras una importación masiva.
+     */
+    @EventListener
+    public void onCatalogImported(CatalogImportedEvent event) {
+        rebuild();
+    }
+
+    /**
+     * Añade a la instantánea un libro recién guardado, con sus géneros.
+     * El ID se anota antes de leer la instantánea para que una reconstrucción en curso lo reaplique.
+     */
+    @EventListener
+    public void onBookSaved(BookSavedEvent event) {
+        pendingBookIds.add(event.getBookId());
+        applyBooks(snapshot, List.of(event.getBookId()));
+    }
+
+    /**
+     * Refresca las estadísticas de reseñas del libro afectado por una reseña nueva o editada.
+     */
+    @EventListener
+    public void onReviewSaved(ReviewSavedEvent event) {
+        pendingStatsBookIds.add(event.getBookId());
+        applyStats(snapshot, List.of(event.getBookId()));
+    }
+
+    /**
+     * Añade unos libros a una instantánea, con sus géneros.
+     */
+    private void applyBooks(CatalogSnapshot target, List<Long> bookIds) {
+        List<BookRepository.BookLinkView> genres = bookRepository.findGenreLinksByBookIds(bookIds);
+
+        target.lock.writeLock().lock();
+        try {
+            bookIds.forEach(target::addBook);
+            genres.forEach(link -> {
+                target.linkGenre(link.getBookId(), link.getLinkId());
+                target.genreNames.putIfAbsent(link.getLinkId(), link.getName());
+            });
+        } finally {
+            target.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Refresca en una instantánea las estadísticas de reseñas de unos libros.
+     */
+    private void applyStats(CatalogSnapshot target, List<Long> bookIds) {
+        List<BookReviewStats> stats = bookReviewStatsRepository.findAllById(bookIds);
+
+        target.lock.writeLock().lock();
+        try {
+            stats.forEach(target::updateStats);
+        } finally {
+            target.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Calcula el conjunto de géneros objetivo de un usuario: los de su perfil más
+     * los de los libros que ha valorado con 4 o 5 estrellas.
+     *
+     * @param preferredGenreIds IDs de géneros del perfil.
+     * @param likedBookIds IDs de libros bien valorados por el usuario.
+     * @return Bitset de genreIds.
+     */
+    public BitSet resolveTargetGenres(Collection<Long> preferredGenreIds, Collection<Long> likedBookIds) {
+        BitSet target = new BitSet();
+        for (Long genreId : preferredGenreIds) {
+            target.set(Math.toIntExact(genreId));
+        }
+
+        CatalogSnapshot current = snapshot;
+        current.lock.readLock().lock();
+        try {
+            for (Long bookId : likedBookIds) {
+                Integer index = current.indexByBookId.get(bookId);
+                if (index != null) target.or(current.genreBits[index]);
+            }
+        } finally {
+            current.lock.readLock().unlock();
+        }
+        return target;
+    }
+
+    /**
+     * Puntúa los libros del catálogo para un usuario y devuelve los mejores.
+     * Candidatos: libros con algún género objetivo que no estén en la estantería del usuario.
+     * Si hay menos de {@code minCandidates}, se añaden {@code fillerCount} libros aleatorios.
+     *
+     * @param targetGenres Géneros objetivo del usuario.
+     * @param excludedBookIds Libros que el usuario ya tiene en su estantería.
+     * @param limit Número máximo de resultados.
+     * @param minCandidates Umbral por debajo del cual se rellenan candidatos aleatorios.
+     * @param fillerCount Número de libros aleatorios de relleno.
+     * @return Libros puntuados, de mayor a menor puntuación.
+     */
+    public List<ScoredBook> scoreTopBooks(BitSet targetGenres, Set<Long> excludedBookIds,
+                                          int limit, int minCandidates, int fillerCount) {
+        CatalogSnapshot current = snapshot;
+        current.lock.readLock().lock();
+        try {
+            int targetSize = targetGenres.cardinality();
+            long nowEpoch = LocalDateTime.now().toEpochSecond(ZoneOffset.UTC);
+            long windowStart = nowEpoch - BookReviewStatsService.RECENT_WINDOW_DAYS * 86_400L;
+
+            TopKHeap heap = new TopKHeap(limit);
+            BitSet scored = new BitSet(current.size);
+            int candidates = 0;
+
+            for (int i = 0; i < current.size; i++) {
+                if (!current.genreBits[i].intersects(targetGenres)) continue;
+                if (excludedBookIds.contains(current.bookIds[i])) continue;
+                heap.offer(i, current.score(i, targetGenres, targetSize, windowStart));
+                scored.set(i);
+                candidates++;
+            }
+
+            // Si hay muy pocos candidatos, rellenamos con libros aleatorios
+            if (candidates < minCandidates && current.size > 0) {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                int attempts = fillerCount * 4;
+                for (int added = 0; added < fillerCount && attempts-- > 0; ) {
+                    int i = random.nextInt(current.size);
+                    if (scored.get(i) || excludedBookIds.contains(current.bookIds[i])) continue;
+                    heap.offer(i, current.score(i, targetGenres, targetSize, windowStart));
+                    scored.set(i);
+                    added++;
+                }
+            }
+
+            long[] indexes = heap.sortedIds();
+            List<ScoredBook> result = new ArrayList<>(indexes.length);
+            for (long index : indexes) {
+                result.add(current.describe((int) index, targetGenres, targetSize, windowStart));
+            }
+            return result;
+        } finally {
+            current.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Resultado del scoring de un libro, con el desglose y los datos
+     * necesarios para explicar la recomendación.
+     */
+    @Getter
+    public static class ScoredBook {
+        private final long bookId;
+        private final double score;
+        private final double genreScore;
+        private final double ratingScore;
+        private final double trendingScore;
+        private final double popularityScore;
+        private final List<String> matchingGenres;
+        private final double averageRating;
+        private final int reviewCount;
+
+        ScoredBook(long bookId, double score, double genreScore, double ratingScore, double trendingScore,
+                   double popularityScore, List<String> matchingGenres, double averageRating, int reviewCount) {
+            this.bookId = bookId;
+            this.score = score;
+            this.genreScore = genreScore;
+            this.ratingScore = ratingScore;
+            this.trendingScore = trendingScore;
+            this.popularityScore = popularityScore;
+            this.matchingGenres = matchingGenres;
+            this.averageRating = averageRating;
+            this.reviewCount = reviewCount;
+        }
+    }
+
+    /**
+     * Instantánea del catálogo en arrays paralelos indexados por posición.
+     * Las lecturas usan el read lock; las actualizaciones incrementales, el write lock.
+     */
+    private static class CatalogSnapshot {
+        final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+        final Map<Long, Integer> indexByBookId = new HashMap<>();
+        final Map<Long, String> genreNames = new HashMap<>();
+
+        int size;
+        long[] bookIds;
+        BitSet[] genreBits;
+        double[] averageRating;
+        int[] reviewCount;
+        int[] recentReviewCount;
+        long[] lastReviewEpoch;
+
+        CatalogSnapshot(int capacity) {
+            bookIds = new long[capacity];
+            genreBits = new BitSet[capacity];
+            averageRating = new double[capacity];
+            reviewCount = new int[capacity];
+            recentReviewCount = new int[capacity];
+            lastReviewEpoch = new long[capacity];
+        }
+
+        int addBook(long bookId) {
+            Integer existing = indexByBookId.get(bookId);
+            if (existing != null) return existing;
+
+            if (size == bookIds.length) grow();
+            int index = size++;
+            bookIds[index] = bookId;
+            genreBits[index] = new BitSet();
+            indexByBookId.put(bookId, index);
+            return index;
+        }
+
+        void linkGenre(long bookId, long genreId) {
+            Integer index = indexByBookId.get(bookId);
+            if (index != null) genreBits[index].set(Math.toIntExact(genreId));
+        }
+
+        void updateStats(BookReviewStats stats) {
+            Integer index = indexByBookId.get(stats.getBookId());
+            if (index == null) return;
+            reviewCount[index] = stats.getReviewCount().intValue();
+            averageRating[index] = stats.getAverageRating();
+            recentReviewCount[index] = stats.getRecentReviewCount().intValue();
+            lastReviewEpoch[index] = stats.getLastReviewAt() != null
+                    ? stats.getLastReviewAt().toEpochSecond(ZoneOffset.UTC) : 0L;
+        }
+
+        private void grow() {
+            int capacity = bookIds.length * 2;
+            bookIds = Arrays.copyOf(bookIds, capacity);
+            genreBits = Arrays.copyOf(genreBits, capacity);
+            averageRating = Arrays.copyOf(averageRating, capacity);
+            reviewCount = Arrays.copyOf(reviewCount, capacity);
+            recentReviewCount = Arrays.copyOf(recentReviewCount, capacity);
+            lastReviewEpoch = Arrays.copyOf(lastReviewEpoch, capacity);
+        }
+
+        /**
+         * Puntuación (0-100): géneros (40%), reseñas altas (30%), tendencias (20%), popularidad (10%).
+         */
+        double score(int i, BitSet targetGenres, int targetSize, long windowStart) {
+            double total = genreScore(i, targetGenres, targetSize) * 0.4
+                    + ratingScore(i) * 0.3
+                    + trendingScore(i, windowStart) * 0.2
+                    + popularityScore(i) * 0.1;
+            return Math.min(100.0, total);
+        }
+
+        ScoredBook describe(int i, BitSet targetGenres, int targetSize, long windowStart) {
+            BitSet matching = (BitSet) genreBits[i].clone();
+            matching.and(targetGenres);
+            List<String> names = new ArrayList<>(matching.cardinality());
+            for (int g = matching.nextSetBit(0); g >= 0; g = matching.nextSetBit(g + 1)) {
+                String name = genreNames.get((long) g);
+                if (name != null) names.add(name);
+            }
+
+            return new ScoredBook(bookIds[i], score(i, targetGenres, targetSize, windowStart),
+                    genreScore(i, targetGenres, targetSize), ratingScore(i),
+                    trendingScore(i, windowStart), popularityScore(i),
+                    names, averageRating[i], reviewCount[i]);
+        }
+
+        /** Coincidencia de géneros (0-100), intersección de bitsets */
+        private double genreScore(int i, BitSet targetGenres, int targetSize) {
+            if (targetSize == 0) return 0.0;
+            BitSet bookGenres = genreBits[i];
+            long matches = 0;
+            for (int g = targetGenres.nextSetBit(0); g >= 0; g = targetGenres.nextSetBit(g + 1)) {
+                if (bookGenres.get(g)) matches++;
+            }
+            return (double) (matches * 100 / targetSize);
+        }
+
+        /** Reseñas altas (0-100); neutral si no hay reseñas */
+        private double ratingScore(int i) {
+            if (reviewCount[i] == 0) return 50.0;
+            return (averageRating[i] / 5.0) * 100.0;
+        }
+
+        /** Tendencias (0-100) según las reseñas de los últimos 30 días */
+        private double trendingScore(int i, long windowStart) {
+            if (reviewCount[i] == 0) return 20.0;
+            long recent = lastReviewEpoch[i] > windowStart ? recentReviewCount[i] : 0;
+            return Math.min(100.0, recent * 10.0);
+        }
+
+        /** Popularidad general (0-100): 100+ reseñas = 100 puntos */
+        private double popularityScore(int i) {
+            return Math.min(100.0, reviewCount[i] * 100.0 / 100.0);
+        }
+    }
+}
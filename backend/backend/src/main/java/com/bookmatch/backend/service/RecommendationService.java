@@ -1,25 +1,36 @@
 package com.bookmatch.backend.service;
 
 import com.bookmatch.backend.dto.BlindDateResponse;
+import com.bookmatch.backend.dto.BookResponse;
 import com.bookmatch.backend.dto.RecommendationResponse;
 import com.bookmatch.backend.entity.Book;
 import com.bookmatch.backend.entity.BookQuote;
-import com.bookmatch.backend.entity.Genre;
 import com.bookmatch.backend.entity.Review;
-import com.bookmatch.backend.entity.Tag;
 import com.bookmatch.backend.entity.User;
+import com.bookmatch.backend.event.ReadingStatusChangedEvent;
+import com.bookmatch.backend.event.ReviewSavedEvent;
+import com.bookmatch.backend.event.UserProfileUpdatedEvent;
 import com.bookmatch.backend.repository.BookQuoteRepository;
 import com.bookmatch.backend.repository.BookRepository;
+import com.bookmatch.backend.repository.GenreRepository;
+import com.bookmatch.backend.repository.ReadingStatusRepository;
 import com.bookmatch.backend.repository.ReviewRepository;
 import com.bookmatch.backend.repository.TagRepository;
+import com.bookmatch.backend.repository.UserGenrePreferenceRepository;
 import com.bookmatch.backend.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
 
 import java.util.ArrayList;
-import java.util.Comparator;
+import java.util.BitSet;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.Collections;
 import java.util.stream.Collectors;
@@ -42,57 +53,101 @@ public class RecommendationService {
     @Autowired
     private TagRepository tagRepository;
 
+    @Autowired
+    private ReadingStatusRepository readingStatusRepository;
+
+    @Autowired
+    private UserGenrePreferenceRepository userGenrePreferenceRepository;
+
+    @Autowired
+    private RecommendationScoringEngine scoringEngine;
+
+    @Autowired
+    private RandomSampler randomSampler;
+
+    @Autowired
+    private QuoteIndex quoteIndex;
+
+    @Autowired
+    private GenreRepository genreRepository;
+
+    @Autowired
+    private CollaborativeFilteringEngine collaborativeFilteringEngine;
+
+    @Autowired
+    private RecommendationCache recommendationCache;
+
+    @Autowired
+    private BookResponseAssembler bookResponseAssembler;
+
     /**
      * LÓGICA DE CITA A CIEGAS
      * Obtiene una cita aleatoria de un libro
      */
+    @Transactional(readOnly = true)
     public BlindDateResponse getBlindDate() {
-        BookQuote quote = bookQuoteRepository.findRandomQuote();
+        BookQuote quote = randomSampler.sampleQuote();
 
         if (quote == null) {
             throw new RuntimeException("No hay citas disponibles. ¡Añade algunas frases a la base de datos!");
         }
 
-        Book book = quote.getBook();
+        return buildBlindDate(quote, "Misterio");
+    }
 
-        // Intentamos obtener el nombre del género, si existe
-        String genreName = "Misterio";
-        if (!book.getGenres().isEmpty()) {
-            genreName = book.getGenres().iterator().next().getName();
+    /**
+     * Obtiene una "Cita a Ciegas" filtrada por una etiqueta específica
+     * Devuelve solo una frase del libro, ocultando el resto de la información.
+     * La cita se elige en el índice de citas por etiqueta; si la etiqueta no tiene
+     * citas se devuelve una cita aleatoria de todo el catálogo.
+     */
+    @Transactional(readOnly = true)
+    public BlindDateResponse getBlindDateByTag(Long tagId) {
+        Long quoteId = quoteIndex.randomQuoteIdForTag(tagId);
+        if (quoteId == null && !tagRepository.existsById(tagId)) {
+            throw new RuntimeException("Etiqueta no encontrada");
         }
 
-        return BlindDateResponse.builder()
-                .quoteId(quote.getQuoteId())
-                .quoteText(quote.getQuoteText())
-                .googleBookId(book.getGoogleBookId())
-                .genre(genreName)
-                .build();
+        return buildBlindDate(findQuoteOrRandom(quoteId, "No hay citas disponibles para esta etiqueta"), "Varios");
     }
 
     /**
-     * Obtiene una "Cita a Ciegas" filtrada por una etiqueta específica
-     * Devuelve solo una frase del libro, ocultando el resto de la información
+     * Obtiene una "Cita a Ciegas" filtrada por un género específico.
+     * Funciona igual que la de etiquetas, usando el índice de citas por género.
      */
-    public BlindDateResponse getBlindDateByTag(Long tagId) {
-        Tag tag = tagRepository.findById(tagId)
-                .orElseThrow(() -> new RuntimeException("Etiqueta no encontrada"));
-
-        // Obtener libros asociados a esta etiqueta que tengan citas
-        List<BookQuote> quotes = new ArrayList<>();
-        for (Book book : tag.getBooks()) {
-            List<BookQuote> bookQuotes = bookQuoteRepository.findByBook(book);
-            quotes.addAll(bookQuotes);
+    @Transactional(readOnly = true)
+    public BlindDateResponse getBlindDateByGenre(Long genreId) {
+        Long quoteId = quoteIndex.randomQuoteIdForGenre(genreId);
+        if (quoteId == null && !genreRepository.existsById(genreId)) {
+            throw new RuntimeException("Género no encontrado");
         }
 
-        if (quotes.isEmpty()) {
-            throw new RuntimeException("No hay citas disponibles para esta etiqueta");
+        return buildBlindDate(findQuoteOrRandom(quoteId, "No hay citas disponibles para este género"), "Varios");
+    }
+
+    /**
+     * Carga la cita elegida en el índice. Si no hay ninguna (o ya no existe),
+     * se usa una cita aleatoria global en lugar de recorrer libros.
+     */
+    private BookQuote findQuoteOrRandom(Long quoteId, String emptyMessage) {
+        BookQuote quote = quoteId != null ? bookQuoteRepository.findById(quoteId).orElse(null) : null;
+        if (quote == null) {
+            quote = randomSampler.sampleQuote();
         }
+        if (quote == null) {
+            throw new RuntimeException(emptyMessage);
+        }
+        return quote;
+    }
 
-        // Seleccionar una cita aleatoria
-        BookQuote quote = quotes.get((int) (Math.random() * quotes.size()));
+    /**
+     * Construye la respuesta de la "Cita a Ciegas" a partir de la cita elegida.
+     */
+    private BlindDateResponse buildBlindDate(BookQuote quote, String defaultGenre) {
         Book book = quote.getBook();
 
-        String genreName = "Varios";
+        // Intentamos obtener el nombre del género, si existe
+        String genreName = defaultGenre;
         if (!book.getGenres().isEmpty()) {
             genreName = book.getGenres().iterator().next().getName();
         }
@@ -109,189 +164,184 @@ public class RecommendationService {
      * LÓGICA DE RECOMENDACIÓN PERSONALIZADA CON PUNTUACIÓN
      * Mezcla: Preferencias del perfil + Géneros de libros bien valorados.
      * Calcula una puntuación (0-100) para cada libro basada en múltiples factores.
+     * El resultado se guarda por usuario en RecommendationCache: mientras no cambien sus
+     * preferencias, reseñas o estantería, las visitas repetidas no recalculan nada.
      */
     public List<RecommendationResponse> getPersonalizedRecommendationsWithScore(Long userId) {
-        // 1. Obtener el usuario
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> new RuntimeException("Usuario no encontrado"));
-
-        // Usamos un Set para evitar géneros duplicados
-        Set<String> targetGenres = new HashSet<>();
+        return recommendationCache.get(userId, this::computeRecommendationsWithScore);
+    }
 
-        // A. Añadir géneros seleccionados en el perfil (Formulario inicial)
-        if (user.getGenrePreferences() != null) {
-            user.getGenrePreferences().forEach(pref ->
-                    targetGenres.add(pref.getGenre().getName())
-            );
+    /**
+     * Calcula las recomendaciones con puntuación de un usuario.
+     * El scoring se hace sobre la instantánea en memoria de RecommendationScoringEngine,
+     * así que no se inicializa ninguna colección de entidades por petición.
+     *
+     * @param userId ID del usuario.
+     * @param previousFingerprint Huella del cálculo anterior (o null). Si los datos de entrada
+     *                            no han cambiado, no se vuelve a puntuar.
+     */
+    private RecommendationCache.Result computeRecommendationsWithScore(Long userId, Long previousFingerprint) {
+        // 1. Validar el usuario
+        if (!userRepository.existsById(userId)) {
+            throw new RuntimeException("Usuario no encontrado");
         }
 
-        // B. Añadir géneros de libros que el usuario ha valorado con 4 o 5 estrellas
-        List<Review> goodReviews = reviewRepository.findByUser_UserIdAndRatingGreaterThanEqual(userId, 4);
-        for (Review review : goodReviews) {
-            review.getBook().getGenres().forEach(g -> targetGenres.add(g.getName()));
-        }
+        // A. Géneros seleccionados en el perfil (Formulario inicial)
+        List<Long> preferredGenreIds = userGenrePreferenceRepository.findGenreIdsByUserId(userId);
 
-        // 2. Si no sabemos nada del usuario (ni perfil ni reseñas), devolvemos aleatorios (Cold Start)
-        if (targetGenres.isEmpty()) {
-            List<Book> randomBooks = bookRepository.findRandomBooks(10);
-            return randomBooks.stream()
-                    .map(book -> createRecommendationResponse(book, 50.0, null))
-                    .collect(Collectors.toList());
-        }
+        // B. Libros que el usuario ha valorado con 4 o 5 estrellas (se usan sus géneros)
+        List<Long> likedBookIds = reviewRepository.findBookIdsByUserIdAndMinRating(userId, 4);
 
-        // 3. Buscar libros en la BD que coincidan con esos géneros y NO haya leído
-        List<String> genreList = new ArrayList<>(targetGenres);
-        List<Book> recommendations = bookRepository.findRecommendations(genreList, userId);
+        // C. Libros de su estantería (no se recomiendan)
+        Set<Long> shelvedBookIds = new HashSet<>(readingStatusRepository.findBookIdsByUserId(userId));
 
-        // Si la búsqueda personalizada devuelve muy pocos resultados, rellenamos con aleatorios
-        if (recommendations.size() < 5) {
-            List<Book> filler = bookRepository.findRandomBooks(5);
-            // Añadimos solo los que no estén ya en la lista (evitar duplicados simples)
-            for (Book b : filler) {
-                if (!recommendations.contains(b)) {
-                    recommendations.add(b);
-                }
-            }
+        long fingerprint = RecommendationCache.fingerprint(preferredGenreIds, likedBookIds, shelvedBookIds);
+        if (previousFingerprint != null && previousFingerprint == fingerprint) {
+            return new RecommendationCache.Result(fingerprint, null);
         }
 
-        // 4. Calcular puntuaciones para cada libro
-        List<RecommendationResponse> recommendationsWithScores = recommendations.stream()
-                .map(book -> {
-                    Double score = calculateRecommendationScore(book, userId, targetGenres);
-                    List<String> reasons = generateRecommendationReasons(book, userId, targetGenres);
-                    return createRecommendationResponse(book, score, reasons);
-                })
-                .collect(Collectors.toList());
-
-        // 5. Ordenar por puntuación (mayor primero) y limitar a 10 resultados
-        return recommendationsWithScores.stream()
-                .sorted(Comparator.comparingDouble(RecommendationResponse::getScore).reversed())
-                .limit(10)
-                .collect(Collectors.toList());
-    }
-
-    /**
-     * Calcula la puntuación de recomendación para un libro (0-100)
-     * Basada en: coincidencia de géneros (40%), reseñas altas (30%), tendencias (20%), popularidad (10%)
-     */
-    private Double calculateRecommendationScore(Book book, Long userId, Set<String> targetGenres) {
-        double totalScore = 0.0;
-
-        // 1. Coincidencia de géneros (40 puntos máximo)
-        double genreScore = calculateGenreMatchScore(book, targetGenres);
-        totalScore += genreScore * 0.4;
+        BitSet targetGenres = scoringEngine.resolveTargetGenres(preferredGenreIds, likedBookIds);
 
-        // 2. Reseñas altas de otros usuarios (30 puntos máximo)
-        double ratingScore = calculateRatingScore(book);
-        totalScore += ratingScore * 0.3;
+        // 2. Si no sabemos nada del usuario (ni perfil ni reseñas), devolvemos aleatorios (Cold Start)
+        if (targetGenres.isEmpty()) {
+            return new RecommendationCache.Result(fingerprint,
+                    bookResponseAssembler.byIds(randomSampler.sampleBookIds(10, Set.of())).values().stream()
+                            .map(book -> createRecommendationResponse(book, 50.0, null, null))
+                            .collect(Collectors.toList()));
+        }
 
-        // 3. Tendencias recientes (20 puntos máximo)
-        double trendingScore = calculateTrendingScore(book);
-        totalScore += trendingScore * 0.2;
+        // 3. Puntuar los libros de esos géneros que NO estén en su estantería y quedarnos con los 10 mejores
+        // (si hay menos de 5 candidatos se rellena con aleatorios)
+        List<RecommendationScoringEngine.ScoredBook> scoredBooks =
+                scoringEngine.scoreTopBooks(targetGenres, shelvedBookIds, 10, 5, 5);
 
-        // 4. Popularidad general (10 puntos máximo)
-        double popularityScore = calculatePopularityScore(book);
-        totalScore += popularityScore * 0.1;
+        // 4. Datos de los libros (géneros, etiquetas y reseñas con consultas IN)
+        Map<Long, BookResponse> books = bookResponseAssembler.byIds(
+                scoredBooks.stream().map(RecommendationScoringEngine.ScoredBook::getBookId).toList());
 
-        return Math.min(100.0, totalScore);
+        return new RecommendationCache.Result(fingerprint, scoredBooks.stream()
+                .filter(scored -> books.containsKey(scored.getBookId()))
+                .map(scored -> createRecommendationResponse(books.get(scored.getBookId()), scored.getScore(),
+                        generateRecommendationReasons(scored), buildScoreBreakdown(scored)))
+                .collect(Collectors.toList()));
     }
 
     /**
-     * Calcula la puntuación por coincidencia de géneros (0-100)
+     * Las reseñas, los cambios de estantería y los cambios de perfil invalidan las
+     * recomendaciones cacheadas del usuario (se recalculan en segundo plano).
+     * Se atienden tras el commit: si el recálculo empezara antes, podría leer los datos
+     * anteriores al cambio y guardarlos como frescos.
      */
-    private Double calculateGenreMatchScore(Book book, Set<String> targetGenres) {
-        if (targetGenres.isEmpty()) return 0.0;
-
-        Set<String> bookGenres = book.getGenres().stream()
-                .map(Genre::getName)
-                .collect(Collectors.toSet());
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onReviewSaved(ReviewSavedEvent event) {
+        recommendationCache.invalidate(event.getUserId(), this::computeRecommendationsWithScore);
+    }
 
-        long matches = bookGenres.stream()
-                .filter(targetGenres::contains)
-                .count();
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onReadingStatusChanged(ReadingStatusChangedEvent event) {
+        recommendationCache.invalidate(event.getUserId(), this::computeRecommendationsWithScore);
+    }
 
-        return (double) (matches * 100 / targetGenres.size());
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onUserProfileUpdated(UserProfileUpdatedEvent event) {
+        recommendationCache.invalidate(event.getUserId(), this::computeRecommendationsWithScore);
     }
 
     /**
-     * Calcula la puntuación por reseñas altas (0-100)
+     * LÓGICA DE RECOMENDACIÓN POR FILTRADO COLABORATIVO
+     * Recomienda libros parecidos a los que el usuario ha leído o valorado bien, entendiendo por
+     * "parecidos" que los han leído los mismos lectores. La puntuación (0-100) es relativa a la
+     * mejor recomendación de la lista.
+     * Si el usuario no tiene historial suficiente (o sus libros no tienen vecinos todavía) se usa
+     * la recomendación por géneros.
      */
-    private Double calculateRatingScore(Book book) {
-        List<Review> reviews = reviewRepository.findByBook(book);
-
-        if (reviews.isEmpty()) return 50.0; // Puntuación neutral si no hay reseñas
-
-        double averageRating = reviews.stream()
-                .mapToInt(Review::getRating)
-                .average()
-                .orElse(0.0);
-
-        // Convertir de escala 1-5 a 0-100
-        return (averageRating / 5.0) * 100.0;
+    public List<RecommendationResponse> getCollaborativeRecommendations(Long userId) {
+        return collaborativeRecommendations(userId, true);
     }
 
     /**
-     * Calcula la puntuación por tendencias recientes (0-100)
-     * Basada en reseñas recientes (últimos 30 días)
+     * Igual que {@link #getCollaborativeRecommendations(Long)}, pero la recomendación por
+     * géneros de respaldo se calcula en el momento en lugar de leerse de RecommendationCache.
+     * Lo usa HomeRecommendationStore al precalcular: una entrada de la caché pendiente de
+     * recalcular quedaría guardada en el almacén como si fuera fresca.
      */
-    private Double calculateTrendingScore(Book book) {
-        List<Review> allReviews = reviewRepository.findByBook(book);
+    public List<RecommendationResponse> computeCollaborativeRecommendations(Long userId) {
+        return collaborativeRecommendations(userId, false);
+    }
 
-        if (allReviews.isEmpty()) return 20.0;
+    private List<RecommendationResponse> collaborativeRecommendations(Long userId, boolean cachedFallback) {
+        if (!userRepository.existsById(userId)) {
+            throw new RuntimeException("Usuario no encontrado");
+        }
 
-        java.time.LocalDateTime thirtyDaysAgo = java.time.LocalDateTime.now().minusDays(30);
-        long recentReviews = allReviews.stream()
-                .filter(r -> r.getCreatedAt().isAfter(thirtyDaysAgo))
-                .count();
+        // 1. Historial del usuario: el peso de cada libro es el mayor entre su reseña y su estado
+        Map<Long, Float> history = new HashMap<>();
+        Set<Long> excludedBookIds = new HashSet<>();
+        for (ReviewRepository.RatingView rating : reviewRepository.findRatingsByUserId(userId)) {
+            excludedBookIds.add(rating.getBookId());
+            float weight = CollaborativeFilteringEngine.reviewWeight(rating.getRating());
+            if (weight > 0) history.merge(rating.getBookId(), weight, Math::max);
+        }
+        for (ReadingStatusRepository.StatusView status : readingStatusRepository.findStatusesByUserId(userId)) {
+            excludedBookIds.add(status.getBookId());
+            float weight = CollaborativeFilteringEngine.statusWeight(status.getStatus());
+            if (weight > 0) history.merge(status.getBookId(), weight, Math::max);
+        }
 
-        // Puntuación basada en cantidad de reseñas recientes
-        return Math.min(100.0, (recentReviews * 10.0));
-    }
+        // 2. Sumar las similitudes de los vecinos de cada libro del historial
+        List<CollaborativeFilteringEngine.Recommendation> recommendations =
+                collaborativeFilteringEngine.recommend(history, excludedBookIds, 10);
+        if (recommendations.isEmpty()) {
+            return cachedFallback
+                    ? getPersonalizedRecommendationsWithScore(userId)
+                    : computeRecommendationsWithScore(userId, null).getResults();
+        }
 
-    /**
-     * Calcula la puntuación por popularidad general (0-100)
-     * Basada en número total de reseñas
-     */
-    private Double calculatePopularityScore(Book book) {
-        List<Review> reviews = reviewRepository.findByBook(book);
-        long reviewCount = reviews.size();
+        // 3. Datos de los libros recomendados y de los libros que los explican (consultas IN)
+        Set<Long> bookIds = new LinkedHashSet<>();
+        recommendations.forEach(r -> bookIds.add(r.getBookId()));
+        recommendations.forEach(r -> bookIds.add(r.getBecauseOfBookId()));
+        Map<Long, BookResponse> books = bookResponseAssembler.byIds(bookIds);
+
+        double maxScore = recommendations.get(0).getScore();
+        List<RecommendationResponse> result = new ArrayList<>();
+        for (CollaborativeFilteringEngine.Recommendation recommendation : recommendations) {
+            BookResponse book = books.get(recommendation.getBookId());
+            if (book == null) continue; // Libro borrado desde el último cálculo
+
+            List<String> reasons = new ArrayList<>();
+            BookResponse source = books.get(recommendation.getBecauseOfBookId());
+            if (source != null) {
+                reasons.add("Porque te gustó «" + source.getTitle() + "»");
+            }
+            reasons.add("Lectores con gustos parecidos a los tuyos también lo han leído");
 
-        // Puntuación basada en cantidad de reseñas (asumiendo que 100+ reseñas = 100 puntos)
-        return Math.min(100.0, (reviewCount * 100.0 / 100.0));
+            result.add(createRecommendationResponse(book,
+                    maxScore > 0 ? Math.round(recommendation.getScore() / maxScore * 1000) / 10.0 : 0.0,
+                    reasons, null));
+        }
+        return result;
     }
 
     /**
      * Genera razones de recomendación para mostrar al usuario
      */
-    private List<String> generateRecommendationReasons(Book book, Long userId, Set<String> targetGenres) {
+    private List<String> generateRecommendationReasons(RecommendationScoringEngine.ScoredBook scored) {
         List<String> reasons = new ArrayList<>();
 
         // Razón 1: Coincidencia de géneros
-        Set<String> matchingGenres = book.getGenres().stream()
-                .map(Genre::getName)
-                .filter(targetGenres::contains)
-                .collect(Collectors.toSet());
-
-        if (!matchingGenres.isEmpty()) {
-            reasons.add("Coincide con tu género preferido: " + String.join(", ", matchingGenres));
+        if (!scored.getMatchingGenres().isEmpty()) {
+            reasons.add("Coincide con tu género preferido: " + String.join(", ", scored.getMatchingGenres()));
         }
 
         // Razón 2: Alta valoración
-        List<Review> reviews = reviewRepository.findByBook(book);
-        if (!reviews.isEmpty()) {
-            double avgRating = reviews.stream()
-                    .mapToInt(Review::getRating)
-                    .average()
-                    .orElse(0.0);
-
-            if (avgRating >= 4.0) {
-                reasons.add("Altamente valorado por otros usuarios (" + String.format("%.1f", avgRating) + "/5)");
-            }
+        if (scored.getReviewCount() > 0 && scored.getAverageRating() >= 4.0) {
+            reasons.add("Altamente valorado por otros usuarios (" + String.format("%.1f", scored.getAverageRating()) + "/5)");
         }
 
         // Razón 3: Popular
-        if (reviews.size() >= 10) {
-            reasons.add("Muy popular en BookMatch (" + reviews.size() + " reseñas)");
+        if (scored.getReviewCount() >= 10) {
+            reasons.add("Muy popular en BookMatch (" + scored.getReviewCount() + " reseñas)");
         }
 
         if (reasons.isEmpty()) {
@@ -301,14 +351,28 @@ public class RecommendationService {
         return reasons;
     }
 
+    /**
+     * Construye el desglose de la puntuación (puntos aportados por cada factor)
+     */
+    private RecommendationResponse.ScoreBreakdown buildScoreBreakdown(RecommendationScoringEngine.ScoredBook scored) {
+        return RecommendationResponse.ScoreBreakdown.builder()
+                .genreMatch(scored.getGenreScore() * 0.4)
+                .highRatings(scored.getRatingScore() * 0.3)
+                .trendingScore(scored.getTrendingScore() * 0.2)
+                .popularity(scored.getPopularityScore() * 0.1)
+                .build();
+    }
+
     /**
      * Método auxiliar para crear RecommendationResponse
      */
-    private RecommendationResponse createRecommendationResponse(Book book, Double score, List<String> reasons) {
+    private RecommendationResponse createRecommendationResponse(BookResponse book, Double score, List<String> reasons,
+                                                                RecommendationResponse.ScoreBreakdown breakdown) {
         return RecommendationResponse.builder()
-                .book(null) // Se llenará en el controlador con BookResponse enriquecida
+                .book(book)
                 .score(score)
                 .reasons(reasons != null ? reasons : new ArrayList<>())
+                .scoreBreakdown(breakdown)
                 .build();
     }
 
@@ -316,7 +380,8 @@ public class RecommendationService {
      * LÓGICA DE RECOMENDACIÓN LEGACY (sin puntuación)
      * Se mantiene para compatibilidad hacia atrás
      */
-    public List<Book> getPersonalizedRecommendations(Long userId) {
+    @Transactional(readOnly = true)
+    public List<BookResponse> getPersonalizedRecommendations(Long userId) {
         // 1. Obtener el usuario
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new RuntimeException("Usuario no encontrado"));
@@ -339,7 +404,7 @@ public class RecommendationService {
 
         // 2. Si no sabemos nada del usuario (ni perfil ni reseñas), devolvemos aleatorios (Cold Start)
         if (targetGenres.isEmpty()) {
-            return bookRepository.findRandomBooks(10);
+            return bookResponseAssembler.toResponses(randomSampler.sampleBooks(10));
         }
 
         // 3. Buscar libros en la BD que coincidan con esos géneros y NO haya leído
@@ -348,17 +413,14 @@ public class RecommendationService {
 
         // Si la búsqueda personalizada devuelve muy pocos resultados, rellenamos con aleatorios
         if (recommendations.size() < 5) {
-            List<Book> filler = bookRepository.findRandomBooks(5);
-            // Añadimos solo los que no estén ya en la lista (evitar duplicados simples)
-            for (Book b : filler) {
-                if (!recommendations.contains(b)) {
-                    recommendations.add(b);
-                }
-            }
+            // Excluimos los que ya están en la lista y los de su estantería
+            Set<Long> excludedIds = new HashSet<>(readingStatusRepository.findBookIdsByUserId(userId));
+            recommendations.forEach(b -> excludedIds.add(b.getBookId()));
+            recommendations.addAll(randomSampler.sampleBooks(5, excludedIds));
         }
 
         // 4. Mezclar y limitar a 10 resultados
         Collections.shuffle(recommendations);
-        return recommendations.stream().limit(10).toList();
+        return bookResponseAssembler.toResponses(recommendations.stream().limit(10).toList());
     }
 }
\ No newline at end of file
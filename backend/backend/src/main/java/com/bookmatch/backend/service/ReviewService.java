@@ -1,13 +1,17 @@
 package com.bookmatch.backend.service;
 
 import com.bookmatch.backend.dto.ReviewRequest;
+import com.bookmatch.backend.dto.ReviewResponse;
 import com.bookmatch.backend.entity.Book;
 import com.bookmatch.backend.entity.Review;
 import com.bookmatch.backend.entity.User;
+import com.bookmatch.backend.event.ReviewSavedEvent;
 import com.bookmatch.backend.repository.ReviewRepository;
 import com.bookmatch.backend.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 import java.util.Optional;
@@ -24,7 +28,14 @@ public class ReviewService {
     @Autowired
     private BookService bookService;
 
-    // Crear o Actualizar reseña
+    @Autowired
+    private BookReviewStatsService bookReviewStatsService;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    // Crear o Actualizar reseña (la reseña y el agregado del libro se guardan en la misma transacción)
+    @Transactional
     public Review saveReview(ReviewRequest request) {
         // 1. Validar Usuario
         User user = userRepository.findById(request.getUserId())
@@ -41,19 +52,13 @@ public class ReviewService {
 
         // 4. Comprobar si ya existe reseña (para editarla en vez de crear otra)
         // Como pusimos una restricción UNIQUE en la BD, mejor buscamos antes.
-        // Nota: ReviewRepository necesita un método para buscar por User y Book, vamos a crearlo si falta.
-        // Pero espera, JPA es listo. Vamos a usar un truco con Stream si no queremos tocar el Repo ahora,
-        // aunque lo ideal es añadir 'findByUserAndBook' en el repositorio.
-
-        // Vamos a asumir que editamos si ya existe
-        Optional<Review> existingReview = reviewRepository.findAll().stream()
-                .filter(r -> r.getUser().getUserId().equals(user.getUserId())
-                        && r.getBook().getBookId().equals(book.getBookId()))
-                .findFirst();
+        Optional<Review> existingReview = reviewRepository.findByUser_UserIdAndBook_BookId(user.getUserId(), book.getBookId());
 
         Review review;
+        Integer previousRating = null;
         if (existingReview.isPresent()) {
             review = existingReview.get();
+            previousRating = review.getRating();
             review.setRating(request.getRating());
             review.setComment(request.getComment());
             // Aquí se recalcularía el sentimiento con IA en el futuro
@@ -66,20 +71,35 @@ public class ReviewService {
                     .build();
         }
 
-        return reviewRepository.save(review);
+        Review savedReview = reviewRepository.save(review);
+
+        // 5. Mantener actualizado el agregado de reseñas del libro
+        bookReviewStatsService.recordReview(book.getBookId(), previousRating,
+                savedReview.getRating(), savedReview.getCreatedAt());
+        eventPublisher.publishEvent(new ReviewSavedEvent(user.getUserId(), book.getBookId()));
+
+        return savedReview;
     }
 
     /**
      * Obtiene todas las reseñas de un libro específico.
+     * Se leen con una proyección (reseña + nombre y bio del autor), sin cargar entidades.
      *
      * @param googleBookId El ID del libro en Google Books.
      * @return Lista de reseñas del libro, o lista vacía si el libro no existe en la base de datos.
      */
-    public List<Review> getReviewsByBook(String googleBookId) {
-        // Primero buscamos el libro en nuestra BD
-        Book book = bookService.getBookByGoogleId(googleBookId);
-        if (book == null) return List.of(); // Si no existe en nuestra BD, no tiene reseñas
-
-        return reviewRepository.findByBook(book);
+    public List<ReviewResponse> getReviewsByBook(String googleBookId) {
+        return reviewRepository.findViewsByGoogleBookId(googleBookId).stream()
+                .map(view -> ReviewResponse.builder()
+                        .reviewId(view.getReviewId())
+                        .username(view.getUsername())
+                        .userBio(view.getUserBio())
+                        .rating(view.getRating())
+                        .comment(view.getComment())
+                        .sentimentScore(view.getSentimentScore())
+                        .keywords(view.getKeywords())
+                        .createdAt(view.getCreatedAt())
+                        .build())
+                .toList();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,81 @@
+package com.bookmatch.backend.service;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Análisis de texto para los índices de búsqueda: pasa a minúsculas, quita tildes y diéresis
+ * ("Pérez" y "perez" son el mismo término), separa en palabras y descarta las palabras
+ * vacías más frecuentes en español (y unas pocas en inglés, porque parte del catálogo de
+ * Google Books está en inglés).
+ */
+final class TextAnalyzer {
+
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+    private static final Pattern NON_WORD = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    /** Longitud máxima de un término; lo que sobra se corta */
+    private static final int MAX_TERM_LENGTH = 40;
+
+    private static final Set<String> STOPWORDS = Set.of(
+            "a", "al", "algo", "ante", "con", "contra", "cual", "cuando", "de", "del", "desde", "donde",
+            "e", "el", "ella", "ellos", "en", "entre", "era", "es", "esa", "ese", "eso", "esta", "este",
+            "esto", "fue", "ha", "hay", "la", "las", "le", "les", "lo", "los", "mas", "me", "mi", "muy",
+            "ni", "no", "nos", "o", "para", "pero", "por", "porque", "que", "se", "si", "sin", "sobre",
+            "su", "sus", "te", "tu", "u", "un", "una", "uno", "unos", "y", "ya", "yo",
+            "and", "for", "of", "the", "to", "with");
+
+    private TextAnalyzer() {
+    }
+
+    /**
+     * Pasa un texto a minúsculas y le quita las tildes.
+     *
+     * @param text Texto original.
+     * @return Texto normalizado.
+     */
+    static String fold(String text) {
+        String decomposed = Normalizer.normalize(text.toLowerCase(Locale.ROOT), Normalizer.Form.NFD);
+        return DIACRITICS.matcher(decomposed).replaceAll("");
+    }
+
+    /**
+     * Normaliza una frase para compararla por prefijo: sin tildes, en minúsculas y con
+     * cualquier separador (espacios, signos de puntuación) reducido a un único espacio.
+     *
+     * @param text Texto original (puede ser null).
+     * @return Frase normalizada (vacía si el texto no tiene letras ni números).
+     */
+    static String normalizePhrase(String text) {
+        if (text == null) return "";
+        return NON_WORD.matcher(fold(text)).replaceAll(" ").trim();
+    }
+
+    /**
+     * Indica si una palabra (ya normalizada) es una palabra vacía.
+     */
+    static boolean isStopword(String word) {
+        return STOPWORDS.contains(word);
+    }
+
+    /**
+     * Separa un texto en términos normalizados, sin palabras vacías.
+     *
+     * @param text Texto original (puede ser null).
+     * @return Términos en el orden en que aparecen (con repetidos).
+     */
+    static List<String> tokenize(String text) {
+        List<String> terms = new ArrayList<>();
+        if (text == null || text.isBlank()) return terms;
+
+        for (String word : NON_WORD.split(fold(text))) {
+            if (word.isEmpty() || STOPWORDS.contains(word)) continue;
+            terms.add(word.length() > MAX_TERM_LENGTH ? word.substring(0, MAX_TERM_LENGTH) : word);
+        }
+        return terms;
+    }
+}
@@ -0,0 +1,139 @@
+package com.bookmatch.backend.service;
+
+/**
+ * Montículo acotado que conserva los K elementos con mayor puntuación
+ * sin necesidad de ordenar la colección completa (O(n log K)).
+ * Trabaja con arrays primitivos para evitar el boxing de Long/Double.
+ * En caso de empate se conserva el elemento que se ofreció primero,
+ * igual que una ordenación estable.
+ */
+final class TopKHeap {
+
+    private final long[] ids;
+    private final double[] scores;
+    private final long[] order;
+    private int size;
+    private long offered;
+
+    /**
+     * @param capacity Número máximo de elementos a conservar (K).
+     */
+    TopKHeap(int capacity) {
+        this.ids = new long[capacity];
+        this.scores = new double[capacity];
+        this.order = new long[capacity];
+    }
+
+    /**
+     * Ofrece un elemento al montículo. Solo se guarda si está entre los K mejores.
+     *
+     * @param id Identificador del elemento (normalmente el bookId).
+     * @param score Puntuación del elemento.
+     */
+    void offer(long id, double score) {
+        long seq = offered++;
+        if (ids.length == 0) return;
+
+        if (size < ids.length) {
+            ids[size] = id;
+            scores[size] = score;
+            order[size] = seq;
+            siftUp(size++);
+        } else if (score > scores[0]) {
+            // La raíz es el peor elemento conservado: lo sustituimos
+            ids[0] = id;
+            scores[0] = score;
+            order[0] = seq;
+            siftDown(0);
+        }
+    }
+
+    /** @return Número de elementos conservados. */
+    int size() {
+        return size;
+    }
+
+    /** @return Puntuación del peor elemento conservado (solo si no está vacío). */
+    double minScore() {
+        return scores[0];
+    }
+
+    /** @return true si no se ha conservado ningún elemento. */
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Devuelve los IDs conservados ordenados de mayor a menor puntuación.
+     */
+    long[] sortedIds() {
+        int[] positions = sortedPositions();
+        long[] result = new long[size];
+        for (int i = 0; i < size; i++) result[i] = ids[positions[i]];
+        return result;
+    }
+
+    /**
+     * Devuelve las puntuaciones conservadas ordenadas de mayor a menor
+     * (en el mismo orden que {@link #sortedIds()}).
+     */
+    double[] sortedScores() {
+        int[] positions = sortedPositions();
+        double[] result = new double[size];
+        for (int i = 0; i < size; i++) result[i] = scores[positions[i]];
+        return result;
+    }
+
+    /**
+     * Ordena las posiciones del montículo (K es pequeño, basta con inserción).
+     */
+    private int[] sortedPositions() {
+        int[] positions = new int[size];
+        for (int i = 0; i < size; i++) {
+            int current = i;
+            int j = i - 1;
+            while (j >= 0 && worse(positions[j], current)) {
+                positions[j + 1] = positions[j];
+                j--;
+            }
+            positions[j + 1] = current;
+        }
+        return positions;
+    }
+
+    /**
+     * Indica si el elemento en la posición a es peor que el de la posición b.
+     * Menor puntuación es peor; con la misma puntuación, el ofrecido más tarde es peor.
+     */
+    private boolean worse(int a, int b) {
+        if (scores[a] != scores[b]) return scores[a] < scores[b];
+        return order[a] > order[b];
+    }
+
+    private void siftUp(int index) {
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (!worse(index, parent)) break;
+            swap(index, parent);
+            index = parent;
+        }
+    }
+
+    private void siftDown(int index) {
+        while (true) {
+            int left = 2 * index + 1;
+            if (left >= size) break;
+            int right = left + 1;
+            int worst = (right < size && worse(right, left)) ? right : left;
+            if (!worse(worst, index)) break;
+            swap(index, worst);
+            index = worst;
+        }
+    }
+
+    private void swap(int a, int b) {
+        long id = ids[a]; ids[a] = ids[b]; ids[b] = id;
+        double score = scores[a]; scores[a] = scores[b]; scores[b] = score;
+        long seq = order[a]; order[a] = order[b]; order[b] = seq;
+    }
+}
@@ -0,0 +1,108 @@
+package com.bookmatch.backend.service;
+
+import com.bookmatch.backend.entity.Genre;
+import com.bookmatch.backend.entity.Tag;
+import com.bookmatch.backend.repository.GenreRepository;
+import com.bookmatch.backend.repository.TagRepository;
+import com.bookmatch.backend.repository.UserGenrePreferenceRepository;
+import com.bookmatch.backend.repository.UserTagPreferenceRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Servicio que guarda las preferencias de géneros y etiquetas de un usuario.
+ * En lugar de borrar todas las preferencias y volver a insertarlas fila a fila, compara
+ * las que pide el usuario con las que ya tiene y solo borra e inserta la diferencia,
+ * con un lote JDBC para cada operación. Los IDs se validan con una sola consulta IN,
+ * así que guardar 30 géneros cuesta un puñado de sentencias en lugar de más de 60.
+ * Las preferencias que se mantienen conservan su peso.
+ */
+@Service
+public class UserPreferenceService {
+
+    /** Peso de una preferencia elegida en el formulario */
+    private static final int DEFAULT_WEIGHT = 1;
+
+    @Autowired
+    private GenreRepository genreRepository;
+
+    @Autowired
+    private TagRepository tagRepository;
+
+    @Autowired
+    private UserGenrePreferenceRepository userGenrePreferenceRepository;
+
+    @Autowired
+    private UserTagPreferenceRepository userTagPreferenceRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Deja las preferencias del usuario exactamente en los géneros y etiquetas indicados.
+     * Los IDs que no existen se ignoran.
+     *
+     * @param userId ID del usuario.
+     * @param genreIds Géneros preferidos (null para no modificar los géneros).
+     * @param tagIds Etiquetas preferidas (null para no modificar las etiquetas).
+     */
+    @Transactional
+    public void replacePreferences(Long userId, Collection<Long> genreIds, Collection<Long> tagIds) {
+        if (genreIds != null) {
+            Set<Long> wanted = new LinkedHashSet<>();
+            for (Genre genre : genreRepository.findAllById(distinct(genreIds))) {
+                wanted.add(genre.getGenreId());
+            }
+            sync("user_genre_preferences", "genre_id", userId, wanted,
+                    userGenrePreferenceRepository.findGenreIdsByUserId(userId));
+        }
+
+        if (tagIds != null) {
+            Set<Long> wanted = new LinkedHashSet<>();
+            for (Tag tag : tagRepository.findAllById(distinct(tagIds))) {
+                wanted.add(tag.getTagId());
+            }
+            sync("user_tag_preferences", "tag_id", userId, wanted,
+                    userTagPreferenceRepository.findTagIdsByUserId(userId));
+        }
+    }
+
+    /**
+     * Borra las preferencias que sobran e inserta las nuevas, cada cosa en un lote JDBC.
+     */
+    private void sync(String table, String column, Long userId, Set<Long> wanted, List<Long> current) {
+        Set<Long> existing = new HashSet<>(current);
+
+        List<Object[]> deletes = new ArrayList<>();
+        for (Long id : existing) {
+            if (!wanted.contains(id)) deletes.add(new Object[]{userId, id});
+        }
+        List<Object[]> inserts = new ArrayList<>();
+        for (Long id : wanted) {
+            if (!existing.contains(id)) inserts.add(new Object[]{userId, id, DEFAULT_WEIGHT});
+        }
+
+        if (!deletes.isEmpty()) {
+            jdbcTemplate.batchUpdate("DELETE FROM " + table + " WHERE user_id = ? AND " + column + " = ?", deletes);
+        }
+        if (!inserts.isEmpty()) {
+            jdbcTemplate.batchUpdate("INSERT INTO " + table + " (user_id, " + column + ", weight) VALUES (?, ?, ?)", inserts);
+        }
+    }
+
+    private static List<Long> distinct(Collection<Long> ids) {
+        List<Long> result = new ArrayList<>(new LinkedHashSet<>(ids));
+        result.removeIf(Objects::isNull);
+        return result;
+    }
+}
@@ -0,0 +1,73 @@
+package com.bookmatch.backend.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BookDescriptionServiceTest {
+
+    @Test
+    void compressRoundTrip() {
+        String text = "Érase una vez un libro con tildes, eñes y comillas «así» — y un emoji 📚.";
+
+        assertEquals(text, BookDescriptionService.decompress(BookDescriptionService.compress(text)));
+        assertEquals("", BookDescriptionService.decompress(BookDescriptionService.compress("")));
+    }
+
+    @Test
+    void compressShrinksLongDescriptions() {
+        String text = "<p>Una historia de aventuras y de amistad. </p>".repeat(200);
+        byte[] data = BookDescriptionService.compress(text);
+
+        assertTrue(data.length < text.length() / 10);
+        assertEquals(text, BookDescriptionService.decompress(data));
+    }
+
+    @Test
+    void decompressRejectsInvalidData() {
+        assertNull(BookDescriptionService.decompress(null));
+        assertThrows(RuntimeException.class, () -> BookDescriptionService.decompress(new byte[]{1, 2, 3, 4}));
+
+        byte[] data = BookDescriptionService.compress("Descripción que se corta a la mitad. ".repeat(20));
+        byte[] truncated = Arrays.copyOf(data, data.length / 2);
+        assertThrows(RuntimeException.class, () -> BookDescriptionService.decompress(truncated));
+    }
+
+    @Test
+    void summarizeStripsHtmlAndEntities() {
+        assertEquals("Un libro \"clásico\" de Tom & Jerry's <editorial>",
+                BookDescriptionService.summarize("<p>Un <b>libro</b>&nbsp;&quot;clásico&quot;</p>\n<br/>de Tom &amp; Jerry&#39;s &lt;editorial&gt;"));
+    }
+
+    @Test
+    void summarizeKeepsShortTextsWhole() {
+        String text = "a".repeat(BookDescriptionService.SUMMARY_LENGTH);
+
+        assertEquals(text, BookDescriptionService.summarize(text));
+        assertNull(BookDescriptionService.summarize(null));
+        assertNull(BookDescriptionService.summarize("   "));
+    }
+
+    @Test
+    void summarizeCutsOnAWordBoundary() {
+        String text = "palabra ".repeat(60);
+        String summary = BookDescriptionService.summarize(text);
+
+        assertTrue(summary.endsWith("palabra…"));
+        assertTrue(summary.length() <= BookDescriptionService.SUMMARY_LENGTH);
+        assertTrue(text.startsWith(summary.substring(0, summary.length() - 1)));
+    }
+
+    @Test
+    void summarizeCutsLongWordsAtTheLimit() {
+        String summary = BookDescriptionService.summarize("x".repeat(1000));
+
+        assertEquals(BookDescriptionService.SUMMARY_LENGTH, summary.length());
+        assertTrue(summary.endsWith("…"));
+    }
+}
@@ -0,0 +1,147 @@
+package com.bookmatch.backend.service;
+
+import com.bookmatch.backend.repository.BookRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class BookSearchIndexTest {
+
+    @TempDir
+    Path tempDir;
+
+    private BookSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        BookRepository bookRepository = mock(BookRepository.class);
+        when(bookRepository.findSearchDocumentsAfter(eq(0L), any())).thenReturn(List.of(
+                new Document(1L, "El nombre del viento", "Patrick Rothfuss",
+                        "Kvothe cuenta su historia en una posada.", "978-84-01-33701-4"),
+                new Document(2L, "El temor de un hombre sabio", "Patrick Rothfuss",
+                        "Segunda parte: el viento vuelve a soplar.", null),
+                new Document(3L, "Cien años de soledad", "Gabriel García Márquez",
+                        "La historia de la familia Buendía en Macondo.", null),
+                new Document(4L, "Viento del este, viento del oeste", "Pearl S. Buck",
+                        null, null)));
+
+        index = new BookSearchIndex();
+        ReflectionTestUtils.setField(index, "bookRepository", bookRepository);
+        ReflectionTestUtils.setField(index, "indexFile", tempDir.resolve("index.bin.gz").toString());
+        index.sync();
+    }
+
+    @Test
+    void titleMatchesRankAboveDescriptionMatches() {
+        BookSearchIndex.SearchResult result = index.search("viento", false, 10);
+
+        assertEquals(3, result.getTotalHits());
+        // El libro 2 solo lo menciona en la descripción (peso 1 frente a 3 del título)
+        assertEquals(2L, result.getBookIds()[2]);
+        assertTrue(result.getScores()[1] > result.getScores()[2]);
+    }
+
+    @Test
+    void termsAreFoldedAndScoresAdd() {
+        BookSearchIndex.SearchResult result = index.search("GARCÍA marquez", false, 10);
+
+        assertArrayEquals(new long[]{3L}, result.getBookIds());
+        double single = index.search("garcia", false, 10).getScores()[0];
+        assertTrue(result.getScores()[0] > single);
+    }
+
+    @Test
+    void rareTermsWeighMore() {
+        // "rothfuss" aparece en dos libros y "kvothe" en uno: el IDF de "kvothe" es mayor
+        double common = index.search("rothfuss", false, 10).getScores()[0];
+        double rare = index.search("kvothe", false, 10).getScores()[0];
+        assertTrue(rare > common);
+        assertTrue(index.search("kvothe rothfuss", false, 10).getScores()[0] > Math.max(common, rare));
+    }
+
+    @Test
+    void prefixExpandsOnlyTheLastTerm() {
+        assertEquals(0, index.search("vien", false, 10).getTotalHits());
+        assertEquals(3, index.search("vien", true, 10).getTotalHits());
+        // Los términos se suman (OR): "vien" sin expandir no aporta nada
+        assertEquals(2, index.search("vien rothfuss", true, 10).getTotalHits());
+        assertEquals(3, index.search("rothfuss vien", true, 10).getTotalHits());
+    }
+
+    @Test
+    void isbnIsSearchableWithoutHyphens() {
+        assertArrayEquals(new long[]{1L}, index.search("9788401337014", false, 10).getBookIds());
+    }
+
+    @Test
+    void isbnIsSearchableWithHyphens() {
+        assertArrayEquals(new long[]{1L}, index.search("978-84-01-33701-4", false, 10).getBookIds());
+        assertArrayEquals(new long[]{1L}, index.search("978-84-01-33701-4", true, 10).getBookIds());
+    }
+
+    @Test
+    void stopwordOnlyQueriesReturnNothing() {
+        assertEquals(0, index.search("de la", true, 10).getBookIds().length);
+    }
+
+    @Test
+    void limitCutsTheResults() {
+        BookSearchIndex.SearchResult result = index.search("viento", false, 1);
+
+        assertEquals(1, result.getBookIds().length);
+        assertEquals(3, result.getTotalHits());
+    }
+
+    private static final class Document implements BookRepository.SearchDocumentView {
+        private final Long bookId;
+        private final String title;
+        private final String authors;
+        private final byte[] descriptionData;
+        private final String isbn;
+
+        Document(Long bookId, String title, String authors, String description, String isbn) {
+            this.bookId = bookId;
+            this.title = title;
+            this.authors = authors;
+            this.descriptionData = description != null ? BookDescriptionService.compress(description) : null;
+            this.isbn = isbn;
+        }
+
+        @Override
+        public Long getBookId() {
+            return bookId;
+        }
+
+        @Override
+        public String getTitle() {
+            return title;
+        }
+
+        @Override
+        public String getAuthors() {
+            return authors;
+        }
+
+        @Override
+        public byte[] getDescriptionData() {
+            return descriptionData;
+        }
+
+        @Override
+        public String getIsbn() {
+            return isbn;
+        }
+    }
+}
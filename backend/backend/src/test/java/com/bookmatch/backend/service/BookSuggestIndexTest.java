@@ -0,0 +1,164 @@
+package com.bookmatch.backend.service;
+
+import com.bookmatch.backend.dto.BookSummaryResponse;
+import com.bookmatch.backend.entity.BookReviewStats;
+import com.bookmatch.backend.event.BookSavedEvent;
+import com.bookmatch.backend.event.ReviewSavedEvent;
+import com.bookmatch.backend.repository.BookRepository;
+import com.bookmatch.backend.repository.BookReviewStatsRepository;
+import com.bookmatch.backend.repository.ReadingStatusRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class BookSuggestIndexTest {
+
+    private BookRepository bookRepository;
+    private BookReviewStatsRepository bookReviewStatsRepository;
+    private ReadingStatusRepository readingStatusRepository;
+    private BookSuggestIndex index;
+
+    @BeforeEach
+    void setUp() {
+        bookRepository = mock(BookRepository.class);
+        bookReviewStatsRepository = mock(BookReviewStatsRepository.class);
+        readingStatusRepository = mock(ReadingStatusRepository.class);
+        BookPageService bookPageService = mock(BookPageService.class);
+
+        when(bookRepository.findTitlesAfter(eq(0L), any())).thenReturn(List.of(
+                new Title(1L, "El nombre del viento", "Patrick Rothfuss"),
+                new Title(2L, "El temor de un hombre sabio", "Patrick Rothfuss"),
+                new Title(3L, "Cien años de soledad", "Gabriel García Márquez"),
+                new Title(4L, "Viento del este, viento del oeste", "Pearl S. Buck"),
+                new Title(5L, "El nombre de la rosa", "Umberto Eco")));
+
+        // Popularidad: 2 por reseña y 1 por estantería -> 1: 10, 2: 3, 3: 20, 4: 0, 5: 1
+        when(bookReviewStatsRepository.findAll()).thenReturn(List.of(stats(1L, 5), stats(3L, 10)));
+        when(readingStatusRepository.countByBook()).thenReturn(List.of(count(2L, 3), count(5L, 1)));
+
+        // Los datos de las sugerencias solo llevan el ID, en el orden pedido
+        when(bookPageService.getSummaries(anyList())).thenAnswer(invocation -> {
+            List<Long> ids = invocation.getArgument(0);
+            return ids.stream().map(id -> BookSummaryResponse.builder().bookId(id).build()).toList();
+        });
+
+        index = new BookSuggestIndex();
+        ReflectionTestUtils.setField(index, "bookRepository", bookRepository);
+        ReflectionTestUtils.setField(index, "bookReviewStatsRepository", bookReviewStatsRepository);
+        ReflectionTestUtils.setField(index, "readingStatusRepository", readingStatusRepository);
+        ReflectionTestUtils.setField(index, "bookPageService", bookPageService);
+        index.rebuild();
+    }
+
+    @Test
+    void shortPrefixesUsePrecomputedResultsByPopularity() {
+        assertEquals(List.of(1L, 5L), ids("nom"));
+        assertEquals(List.of(1L, 2L, 5L), ids("el"));
+    }
+
+    @Test
+    void longPrefixesScanTheRange() {
+        assertEquals(List.of(1L, 5L), ids("nombre de"));
+        assertEquals(List.of(5L), ids("nombre de la"));
+    }
+
+    @Test
+    void matchesSignificantTitleWordsAndAuthors() {
+        assertEquals(List.of(1L, 4L), ids("vient"));
+        assertEquals(List.of(1L, 2L), ids("Rothf"));
+        assertEquals(List.of(3L), ids("Márquez"));
+        assertEquals(List.of(3L), ids("gabriel garc"));
+    }
+
+    @Test
+    void stopwordsInsideTitlesAreNotKeys() {
+        assertTrue(ids("del").isEmpty());
+    }
+
+    @Test
+    void limitAndEmptyQueries() {
+        assertEquals(List.of(1L), ids("el", 1));
+        assertTrue(ids("  ").isEmpty());
+        assertTrue(ids("el", 0).isEmpty());
+    }
+
+    @Test
+    void newBooksAreRankedByPopularity() {
+        when(bookRepository.findTitleById(6L)).thenReturn(Optional.of(
+                new Title(6L, "El viento sabe mi nombre", "Isabel Allende")));
+        when(bookReviewStatsRepository.findById(6L)).thenReturn(Optional.of(stats(6L, 4)));
+        index.onBookSaved(new BookSavedEvent(6L));
+
+        // Con 8 de popularidad entra por delante de 2 y 5 aunque la lista ya estuviera llena
+        assertEquals(List.of(1L, 6L), ids("el", 2));
+        assertEquals(List.of(6L), ids("isabel"));
+
+        when(bookReviewStatsRepository.findById(6L)).thenReturn(Optional.of(stats(6L, 10)));
+        index.onReviewSaved(new ReviewSavedEvent(99L, 6L));
+        assertEquals(List.of(6L, 1L), ids("el", 2));
+    }
+
+    @Test
+    void newBooksWithoutActivityGoLast() {
+        when(bookRepository.findTitleById(6L)).thenReturn(Optional.of(
+                new Title(6L, "El viento sabe mi nombre", "Isabel Allende")));
+        index.onBookSaved(new BookSavedEvent(6L));
+
+        assertEquals(List.of(1L, 2L, 5L, 6L), ids("el"));
+        assertEquals(List.of(1L, 4L, 6L), ids("viento"));
+    }
+
+    private List<Long> ids(String prefix) {
+        return ids(prefix, 10);
+    }
+
+    private List<Long> ids(String prefix, int limit) {
+        return index.suggest(prefix, limit).stream().map(BookSummaryResponse::getBookId).toList();
+    }
+
+    private static BookReviewStats stats(Long bookId, long reviews) {
+        return BookReviewStats.builder().bookId(bookId).reviewCount(reviews).build();
+    }
+
+    private static ReadingStatusRepository.BookCountView count(Long bookId, long total) {
+        return new ReadingStatusRepository.BookCountView() {
+            @Override
+            public Long getBookId() {
+                return bookId;
+            }
+
+            @Override
+            public Long getTotal() {
+                return total;
+            }
+        };
+    }
+
+    private record Title(Long bookId, String title, String authors) implements BookRepository.TitleView {
+        @Override
+        public Long getBookId() {
+            return bookId;
+        }
+
+        @Override
+        public String getTitle() {
+            return title;
+        }
+
+        @Override
+        public String getAuthors() {
+            return authors;
+        }
+    }
+}
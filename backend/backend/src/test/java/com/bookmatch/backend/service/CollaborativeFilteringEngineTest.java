@@ -0,0 +1,161 @@
+package com.bookmatch.backend.service;
+
+import com.bookmatch.backend.enums.ReadingStatusType;
+import com.bookmatch.backend.event.ReadingStatusChangedEvent;
+import com.bookmatch.backend.repository.ReadingStatusRepository;
+import com.bookmatch.backend.repository.ReviewRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CollaborativeFilteringEngineTest {
+
+    private static final double DELTA = 1e-6;
+
+    private ReviewRepository reviewRepository;
+    private ReadingStatusRepository readingStatusRepository;
+    private CollaborativeFilteringEngine engine;
+
+    /*
+     * Lectores: 1 -> {10, 20}, 2 -> {10, 20, 30}, 3 -> {30, 40}, todos leídos (peso 1).
+     * Similitud = coseno * comunes / (comunes + 5):
+     *   10-20: 2 / (√2·√2) * 2/7 = 0.285714
+     *   10-30: 1 / (√2·√2) * 1/6 = 0.083333
+     *   30-40: 1 / (√2·1)  * 1/6 = 0.117851
+     */
+    @BeforeEach
+    void setUp() {
+        reviewRepository = mock(ReviewRepository.class);
+        readingStatusRepository = mock(ReadingStatusRepository.class);
+        when(readingStatusRepository.findAllStatuses()).thenReturn(List.of(
+                read(1L, 10L), read(1L, 20L),
+                read(2L, 10L), read(2L, 20L), read(2L, 30L),
+                read(3L, 30L), read(3L, 40L)));
+
+        engine = new CollaborativeFilteringEngine();
+        ReflectionTestUtils.setField(engine, "reviewRepository", reviewRepository);
+        ReflectionTestUtils.setField(engine, "readingStatusRepository", readingStatusRepository);
+        engine.initialize();
+    }
+
+    @Test
+    void cosineSimilarityWithShrinkage() {
+        List<CollaborativeFilteringEngine.Recommendation> result = engine.recommend(Map.of(10L, 1.0f), Set.of(), 10);
+
+        assertEquals(2, result.size());
+        assertEquals(20L, result.get(0).getBookId());
+        assertEquals(2.0 / 7, result.get(0).getScore(), DELTA);
+        assertEquals(30L, result.get(1).getBookId());
+        assertEquals(1.0 / 12, result.get(1).getScore(), DELTA);
+        assertEquals(10L, result.get(0).getBecauseOfBookId());
+    }
+
+    @Test
+    void historyWeightsAndExclusions() {
+        List<CollaborativeFilteringEngine.Recommendation> result =
+                engine.recommend(Map.of(30L, 0.5f, 10L, 1.0f), Set.of(20L), 10);
+
+        // 40 solo llega por 30 (0.5 * 0.117851); 20 está excluido y 10/30 ya están en el historial
+        assertEquals(1, result.size());
+        assertEquals(40L, result.get(0).getBookId());
+        assertEquals(0.5 / (6 * Math.sqrt(2)), result.get(0).getScore(), DELTA);
+        assertEquals(30L, result.get(0).getBecauseOfBookId());
+    }
+
+    @Test
+    void weights() {
+        assertEquals(0f, CollaborativeFilteringEngine.reviewWeight(2));
+        assertEquals(1f / 3, CollaborativeFilteringEngine.reviewWeight(3), DELTA);
+        assertEquals(1f, CollaborativeFilteringEngine.reviewWeight(5));
+        assertEquals(0f, CollaborativeFilteringEngine.statusWeight(ReadingStatusType.DROPPED));
+        assertEquals(0.5f, CollaborativeFilteringEngine.statusWeight(ReadingStatusType.WANT_TO_READ));
+    }
+
+    @Test
+    void incrementalRefreshReadsOnlyChangedUsers() {
+        // El lector 3 abandona 30: 40 se queda sin vecinos y la norma de 30 pasa a 1
+        when(readingStatusRepository.findStatusesByUserIds(any())).thenReturn(List.of(
+                status(3L, 30L, ReadingStatusType.DROPPED), read(3L, 40L)));
+        engine.onReadingStatusChanged(new ReadingStatusChangedEvent(3L, 30L));
+        engine.refresh();
+
+        verify(readingStatusRepository, times(1)).findAllStatuses();
+        assertTrue(engine.recommend(Map.of(40L, 1.0f), Set.of(), 10).isEmpty());
+
+        List<CollaborativeFilteringEngine.Recommendation> result = engine.recommend(Map.of(10L, 1.0f), Set.of(), 10);
+        assertEquals(30L, result.get(1).getBookId());
+        assertEquals(1 / (6 * Math.sqrt(2)), result.get(1).getScore(), DELTA);
+    }
+
+    @Test
+    void incrementalRefreshMatchesFullRebuild() {
+        // El lector 4 es nuevo y el 1 cambia 20 por 40
+        when(readingStatusRepository.findStatusesByUserIds(any())).thenReturn(List.of(
+                read(1L, 10L), read(1L, 40L), read(4L, 20L), read(4L, 40L)));
+        engine.onReadingStatusChanged(new ReadingStatusChangedEvent(1L, 40L));
+        engine.onReadingStatusChanged(new ReadingStatusChangedEvent(4L, 40L));
+        engine.refresh();
+        Map<Long, List<CollaborativeFilteringEngine.Recommendation>> incremental = recommendEach();
+
+        when(readingStatusRepository.findAllStatuses()).thenReturn(List.of(
+                read(1L, 10L), read(1L, 40L),
+                read(2L, 10L), read(2L, 20L), read(2L, 30L),
+                read(3L, 30L), read(3L, 40L),
+                read(4L, 20L), read(4L, 40L)));
+        engine.fullRebuild();
+        Map<Long, List<CollaborativeFilteringEngine.Recommendation>> full = recommendEach();
+
+        for (long bookId : List.of(10L, 20L, 30L, 40L)) {
+            List<CollaborativeFilteringEngine.Recommendation> expected = full.get(bookId);
+            List<CollaborativeFilteringEngine.Recommendation> actual = incremental.get(bookId);
+            assertEquals(expected.size(), actual.size(), "vecinos de " + bookId);
+            for (int i = 0; i < expected.size(); i++) {
+                assertEquals(expected.get(i).getBookId(), actual.get(i).getBookId());
+                assertEquals(expected.get(i).getScore(), actual.get(i).getScore(), DELTA);
+            }
+        }
+    }
+
+    private Map<Long, List<CollaborativeFilteringEngine.Recommendation>> recommendEach() {
+        return Map.of(
+                10L, engine.recommend(Map.of(10L, 1.0f), Set.of(), 10),
+                20L, engine.recommend(Map.of(20L, 1.0f), Set.of(), 10),
+                30L, engine.recommend(Map.of(30L, 1.0f), Set.of(), 10),
+                40L, engine.recommend(Map.of(40L, 1.0f), Set.of(), 10));
+    }
+
+    private static ReadingStatusRepository.StatusView read(Long userId, Long bookId) {
+        return status(userId, bookId, ReadingStatusType.READ);
+    }
+
+    private static ReadingStatusRepository.StatusView status(Long userId, Long bookId, ReadingStatusType status) {
+        return new ReadingStatusRepository.StatusView() {
+            @Override
+            public Long getUserId() {
+                return userId;
+            }
+
+            @Override
+            public Long getBookId() {
+                return bookId;
+            }
+
+            @Override
+            public ReadingStatusType getStatus() {
+                return status;
+            }
+        };
+    }
+}
@@ -0,0 +1,71 @@
+package com.bookmatch.backend.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class LongIntMapTest {
+
+    @Test
+    void putAndGet() {
+        LongIntMap map = new LongIntMap(4);
+        map.put(7L, 1);
+        map.put(-3L, 2);
+        map.put(0L, 3);
+
+        assertEquals(1, map.get(7L));
+        assertEquals(2, map.get(-3L));
+        assertEquals(3, map.get(0L));
+        assertEquals(-1, map.get(8L));
+        assertEquals(3, map.size());
+    }
+
+    @Test
+    void putReplacesExistingValues() {
+        LongIntMap map = new LongIntMap(4);
+        map.put(7L, 1);
+        map.put(7L, 5);
+
+        assertEquals(5, map.get(7L));
+        assertEquals(1, map.size());
+    }
+
+    @Test
+    void getOrPutKeepsTheFirstValue() {
+        LongIntMap map = new LongIntMap(4);
+
+        assertEquals(0, map.getOrPut(100L, map.size()));
+        assertEquals(1, map.getOrPut(200L, map.size()));
+        assertEquals(0, map.getOrPut(100L, map.size()));
+        assertEquals(2, map.size());
+    }
+
+    @Test
+    void growsPastTheExpectedSize() {
+        LongIntMap map = new LongIntMap(2);
+        for (int i = 0; i < 10_000; i++) {
+            map.put(i * 1_000_003L, i);
+        }
+
+        assertEquals(10_000, map.size());
+        for (int i = 0; i < 10_000; i++) {
+            assertEquals(i, map.get(i * 1_000_003L));
+        }
+    }
+
+    @Test
+    void copyIsIndependent() {
+        LongIntMap map = new LongIntMap(4);
+        map.put(1L, 10);
+        LongIntMap copy = map.copy();
+        copy.put(2L, 20);
+        copy.put(1L, 11);
+
+        assertEquals(10, map.get(1L));
+        assertEquals(-1, map.get(2L));
+        assertEquals(11, copy.get(1L));
+        assertEquals(20, copy.get(2L));
+        assertEquals(1, map.size());
+        assertEquals(2, copy.size());
+    }
+}
@@ -0,0 +1,135 @@
+package com.bookmatch.backend.service;
+
+import com.bookmatch.backend.repository.BookRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class QuizMatcherTest {
+
+    private static final String GENRE = "Fantasía";
+    private static final String EMOTION = "Intriga";
+
+    private BookRepository bookRepository;
+    private QuizMatcher matcher;
+    private List<Candidate> catalog;
+    private Set<Long> genreBooks;
+    private Set<Long> tagBooks;
+
+    @BeforeEach
+    void setUp() {
+        bookRepository = mock(BookRepository.class);
+        matcher = new QuizMatcher();
+        ReflectionTestUtils.setField(matcher, "bookRepository", bookRepository);
+        ReflectionTestUtils.setField(matcher, "pageSize", 1000);
+        ReflectionTestUtils.setField(matcher, "shortlistSize", 500);
+        ReflectionTestUtils.setField(matcher, "shortlistMinSize", 4);
+
+        when(bookRepository.findQuizCandidatesAfter(anyLong(), any(Pageable.class)))
+                .thenAnswer(invocation -> {
+                    long afterId = invocation.getArgument(0);
+                    return new ArrayList<BookRepository.QuizCandidateView>(
+                            catalog.stream().filter(c -> c.bookId > afterId).toList());
+                });
+        when(bookRepository.findGenreLinksByBookIds(anyCollection()))
+                .thenAnswer(invocation -> links(invocation.getArgument(0), genreBooks, GENRE));
+        when(bookRepository.findTagLinksByBookIds(anyCollection()))
+                .thenAnswer(invocation -> links(invocation.getArgument(0), tagBooks, EMOTION));
+    }
+
+    @Test
+    void longBookWithGenreAndEmotionIsNotLostByShortlist() {
+        // 1-3 puntúan 96; 4 (30 páginas, sin etiqueta) 68.8; 5 pasa del límite pero puntúa 69.2
+        catalog = List.of(
+                new Candidate(1L, 100, 4.0),
+                new Candidate(2L, 100, 4.0),
+                new Candidate(3L, 100, 4.0),
+                new Candidate(4L, 30, 4.2),
+                new Candidate(5L, 500, 4.8));
+        genreBooks = Set.of(1L, 2L, 3L, 4L, 5L);
+        tagBooks = Set.of(1L, 2L, 3L, 5L);
+        shortlist(catalog.get(3), catalog.get(0), catalog.get(1), catalog.get(2));
+
+        QuizService.QuizAnalysis analysis = analysis(200);
+        QuizMatcher.MatchResult expected = matcher.scanCatalog(analysis, 4);
+        QuizMatcher.MatchResult actual = matcher.findBestMatches(analysis, 4);
+
+        assertArrayEquals(new long[]{1L, 2L, 3L, 5L}, expected.bookIds);
+        assertArrayEquals(expected.bookIds, actual.bookIds);
+        assertArrayEquals(expected.scores, actual.scores, 1e-9);
+    }
+
+    @Test
+    void shortlistIsTrustedWhenNoOutsideBookCanBeatIt() {
+        catalog = List.of(
+                new Candidate(1L, 100, 4.0),
+                new Candidate(2L, 100, 4.0),
+                new Candidate(3L, 100, 4.0),
+                new Candidate(4L, 100, 4.0),
+                new Candidate(5L, 500, 5.0));
+        genreBooks = Set.of(1L, 2L, 3L, 4L, 5L);
+        tagBooks = Set.of(1L, 2L, 3L, 4L, 5L);
+        shortlist(catalog.get(0), catalog.get(1), catalog.get(2), catalog.get(3));
+
+        QuizService.QuizAnalysis analysis = analysis(200);
+        QuizMatcher.MatchResult actual = matcher.findBestMatches(analysis, 4);
+
+        verify(bookRepository, never()).findQuizCandidatesAfter(anyLong(), any(Pageable.class));
+        QuizMatcher.MatchResult expected = matcher.scanCatalog(analysis, 4);
+        assertArrayEquals(expected.bookIds, actual.bookIds);
+        assertArrayEquals(expected.scores, actual.scores, 1e-9);
+    }
+
+    private void shortlist(Candidate... candidates) {
+        when(bookRepository.findQuizShortlist(anyString(), anyString(), anyInt(), any(Pageable.class)))
+                .thenReturn(List.of(candidates));
+    }
+
+    private static QuizService.QuizAnalysis analysis(int maxPageCount) {
+        QuizService.QuizAnalysis analysis = new QuizService.QuizAnalysis();
+        analysis.preferredGenre = GENRE;
+        analysis.preferredEmotion = EMOTION;
+        analysis.maxPageCount = maxPageCount;
+        return analysis;
+    }
+
+    private static List<BookRepository.BookLinkView> links(Collection<Long> bookIds, Set<Long> linked, String name) {
+        List<BookRepository.BookLinkView> links = new ArrayList<>();
+        for (Long bookId : bookIds) {
+            if (linked.contains(bookId)) {
+                links.add(new Link(bookId, name));
+            }
+        }
+        return links;
+    }
+
+    private record Candidate(Long bookId, Integer pageCount, Double rating)
+            implements BookRepository.QuizCandidateView {
+        public Long getBookId() { return bookId; }
+        public Integer getPageCount() { return pageCount; }
+        public Double getAverageRatingApi() { return rating; }
+    }
+
+    private record Link(Long bookId, String name) implements BookRepository.BookLinkView {
+        public Long getBookId() { return bookId; }
+        public Long getLinkId() { return 1L; }
+        public String getName() { return name; }
+    }
+}
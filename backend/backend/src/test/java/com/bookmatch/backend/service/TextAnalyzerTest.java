@@ -0,0 +1,50 @@
+package com.bookmatch.backend.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TextAnalyzerTest {
+
+    @Test
+    void foldRemovesCaseAndAccents() {
+        assertEquals("perez galdos", TextAnalyzer.fold("Pérez Galdós"));
+        assertEquals("pinguino", TextAnalyzer.fold("Pingüino"));
+    }
+
+    @Test
+    void tokenizeDropsStopwordsAndPunctuation() {
+        assertEquals(List.of("nombre", "viento"), TextAnalyzer.tokenize("El nombre del viento"));
+        assertEquals(List.of("lord", "rings"), TextAnalyzer.tokenize("The Lord of the Rings!"));
+        assertEquals(List.of("cien", "anos", "soledad", "anos"), TextAnalyzer.tokenize("Cien años de soledad... años"));
+    }
+
+    @Test
+    void tokenizeCutsLongTerms() {
+        String term = TextAnalyzer.tokenize("a".repeat(100)).get(0);
+        assertEquals(40, term.length());
+    }
+
+    @Test
+    void tokenizeAcceptsEmptyText() {
+        assertTrue(TextAnalyzer.tokenize(null).isEmpty());
+        assertTrue(TextAnalyzer.tokenize("   ").isEmpty());
+    }
+
+    @Test
+    void normalizePhraseKeepsStopwordsAndCollapsesSeparators() {
+        assertEquals("el senor de los anillos", TextAnalyzer.normalizePhrase("  El Señor   de los-anillos. "));
+        assertEquals("", TextAnalyzer.normalizePhrase(null));
+        assertEquals("", TextAnalyzer.normalizePhrase("¡!"));
+    }
+
+    @Test
+    void stopwords() {
+        assertTrue(TextAnalyzer.isStopword("de"));
+        assertFalse(TextAnalyzer.isStopword("viento"));
+    }
+}
@@ -0,0 +1,77 @@
+package com.bookmatch.backend.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TopKHeapTest {
+
+    @Test
+    void keepsTheKBestInDescendingOrder() {
+        TopKHeap heap = new TopKHeap(3);
+        double[] scores = {5, 1, 9, 3, 7, 2, 8};
+        for (int i = 0; i < scores.length; i++) {
+            heap.offer(i + 1, scores[i]);
+        }
+
+        assertEquals(3, heap.size());
+        assertArrayEquals(new long[]{3, 7, 5}, heap.sortedIds());
+        assertArrayEquals(new double[]{9, 8, 7}, heap.sortedScores());
+        assertEquals(7, heap.minScore());
+    }
+
+    @Test
+    void tiesKeepTheFirstOffered() {
+        TopKHeap heap = new TopKHeap(2);
+        heap.offer(10, 1.0);
+        heap.offer(20, 1.0);
+        heap.offer(30, 1.0);
+        heap.offer(40, 2.0);
+
+        assertArrayEquals(new long[]{40, 10}, heap.sortedIds());
+    }
+
+    @Test
+    void returnsFewerElementsThanCapacity() {
+        TopKHeap heap = new TopKHeap(5);
+        heap.offer(1, 0.5);
+        heap.offer(2, 1.5);
+
+        assertArrayEquals(new long[]{2, 1}, heap.sortedIds());
+    }
+
+    @Test
+    void zeroCapacityKeepsNothing() {
+        TopKHeap heap = new TopKHeap(0);
+        heap.offer(1, 10);
+
+        assertTrue(heap.isEmpty());
+        assertEquals(0, heap.sortedIds().length);
+    }
+
+    @Test
+    void matchesAFullSort() {
+        Random random = new Random(42);
+        int n = 1000;
+        double[] scores = new double[n];
+        TopKHeap heap = new TopKHeap(10);
+        for (int i = 0; i < n; i++) {
+            scores[i] = random.nextInt(200);
+            heap.offer(i, scores[i]);
+        }
+
+        // Ordenación estable de referencia: mayor puntuación primero, a igualdad el primero ofrecido
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i++) order[i] = i;
+        Arrays.sort(order, (a, b) -> Double.compare(scores[b], scores[a]));
+
+        long[] expected = new long[10];
+        for (int i = 0; i < 10; i++) expected[i] = order[i];
+        assertArrayEquals(expected, heap.sortedIds());
+    }
+}
@@ -0,0 +1,121 @@
+package com.bookmatch.backend.service;
+
+import com.bookmatch.backend.entity.Genre;
+import com.bookmatch.backend.entity.Tag;
+import com.bookmatch.backend.repository.GenreRepository;
+import com.bookmatch.backend.repository.TagRepository;
+import com.bookmatch.backend.repository.UserGenrePreferenceRepository;
+import com.bookmatch.backend.repository.UserTagPreferenceRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class UserPreferenceServiceTest {
+
+    private static final Long USER_ID = 7L;
+
+    private static final String DELETE_GENRES = "DELETE FROM user_genre_preferences WHERE user_id = ? AND genre_id = ?";
+    private static final String INSERT_GENRES = "INSERT INTO user_genre_preferences (user_id, genre_id, weight) VALUES (?, ?, ?)";
+    private static final String INSERT_TAGS = "INSERT INTO user_tag_preferences (user_id, tag_id, weight) VALUES (?, ?, ?)";
+
+    private GenreRepository genreRepository;
+    private TagRepository tagRepository;
+    private UserGenrePreferenceRepository userGenrePreferenceRepository;
+    private UserTagPreferenceRepository userTagPreferenceRepository;
+    private JdbcTemplate jdbcTemplate;
+    private UserPreferenceService service;
+
+    @BeforeEach
+    void setUp() {
+        genreRepository = mock(GenreRepository.class);
+        tagRepository = mock(TagRepository.class);
+        userGenrePreferenceRepository = mock(UserGenrePreferenceRepository.class);
+        userTagPreferenceRepository = mock(UserTagPreferenceRepository.class);
+        jdbcTemplate = mock(JdbcTemplate.class);
+
+        service = new UserPreferenceService();
+        ReflectionTestUtils.setField(service, "genreRepository", genreRepository);
+        ReflectionTestUtils.setField(service, "tagRepository", tagRepository);
+        ReflectionTestUtils.setField(service, "userGenrePreferenceRepository", userGenrePreferenceRepository);
+        ReflectionTestUtils.setField(service, "userTagPreferenceRepository", userTagPreferenceRepository);
+        ReflectionTestUtils.setField(service, "jdbcTemplate", jdbcTemplate);
+    }
+
+    @Test
+    void writesOnlyTheDifference() {
+        // 99 no existe, 3 viene repetido y null se ignora; el usuario ya tenía 2 y 4
+        when(genreRepository.findAllById(List.of(1L, 2L, 3L, 99L))).thenReturn(List.of(genre(1L), genre(2L), genre(3L)));
+        when(userGenrePreferenceRepository.findGenreIdsByUserId(USER_ID)).thenReturn(List.of(2L, 4L));
+
+        service.replacePreferences(USER_ID, Arrays.asList(1L, 2L, 3L, 3L, null, 99L), null);
+
+        assertEquals(List.of(List.of(USER_ID, 4L)), rows(DELETE_GENRES));
+        assertEquals(List.of(List.of(USER_ID, 1L, 1), List.of(USER_ID, 3L, 1)), rows(INSERT_GENRES));
+        verifyNoInteractions(tagRepository, userTagPreferenceRepository);
+    }
+
+    @Test
+    void unchangedPreferencesWriteNothing() {
+        when(genreRepository.findAllById(List.of(1L, 2L))).thenReturn(List.of(genre(1L), genre(2L)));
+        when(userGenrePreferenceRepository.findGenreIdsByUserId(USER_ID)).thenReturn(List.of(2L, 1L));
+
+        service.replacePreferences(USER_ID, List.of(1L, 2L), null);
+
+        verify(jdbcTemplate, never()).batchUpdate(anyString(), anyList());
+    }
+
+    @Test
+    void emptySelectionDeletesEverything() {
+        when(tagRepository.findAllById(List.of())).thenReturn(List.of());
+        when(userTagPreferenceRepository.findTagIdsByUserId(USER_ID)).thenReturn(List.of(5L));
+
+        service.replacePreferences(USER_ID, null, List.of());
+
+        assertEquals(List.of(List.of(USER_ID, 5L)),
+                rows("DELETE FROM user_tag_preferences WHERE user_id = ? AND tag_id = ?"));
+        verify(jdbcTemplate, never()).batchUpdate(eq(INSERT_TAGS), anyList());
+        verifyNoInteractions(genreRepository, userGenrePreferenceRepository);
+    }
+
+    @Test
+    void newUserInsertsEverything() {
+        when(tagRepository.findAllById(List.of(8L, 9L))).thenReturn(List.of(tag(8L), tag(9L)));
+
+        service.replacePreferences(USER_ID, null, List.of(8L, 9L));
+
+        assertEquals(List.of(List.of(USER_ID, 8L, 1), List.of(USER_ID, 9L, 1)), rows(INSERT_TAGS));
+    }
+
+    /**
+     * Filas enviadas en el lote de una sentencia, como listas para poder compararlas.
+     */
+    @SuppressWarnings("unchecked")
+    private List<List<Object>> rows(String sql) {
+        ArgumentCaptor<List<Object[]>> captor = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(eq(sql), captor.capture());
+        return captor.getValue().stream().map(Arrays::asList).toList();
+    }
+
+    private static Genre genre(Long id) {
+        return Genre.builder().genreId(id).name("genero-" + id).build();
+    }
+
+    private static Tag tag(Long id) {
+        return Tag.builder().tagId(id).name("etiqueta-" + id).build();
+    }
+}